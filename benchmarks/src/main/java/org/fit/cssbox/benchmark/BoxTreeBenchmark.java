@@ -0,0 +1,76 @@
+/*
+ * BoxTreeBenchmark.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 16:21:13
+ */
+package org.fit.cssbox.benchmark;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.fit.cssbox.layout.LRUImageCache;
+import org.fit.cssbox.layout.LayoutEngine;
+import org.fit.cssbox.layout.Viewport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+
+/**
+ * Creating the box tree using {@link org.fit.cssbox.layout.BoxFactory#createViewportTree}
+ * for a document with the styles already computed. The images are cached so that
+ * their decoding is not included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoxTreeBenchmark
+{
+    @Param({"text", "tables", "nested-tables", "floats", "images"})
+    public String page;
+
+    private LayoutEngine engine;
+
+    @Setup(Level.Trial)
+    public void preparePage() throws IOException, SAXException
+    {
+        URL url = Corpus.getPageURL(page);
+        engine = Pipeline.createEngine(Pipeline.computeStyles(Pipeline.parse(Corpus.getPageData(page), url), url),
+                url, new LRUImageCache());
+    }
+
+    @Benchmark
+    public Viewport createBoxTree()
+    {
+        return engine.createBoxTree(Pipeline.WINDOW, new Rectangle(Pipeline.WINDOW));
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Corpus.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 16:02:47
+ */
+package org.fit.cssbox.benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The offline page corpus used by the benchmarks. The corpus is bundled as class path resources;
+ * it is extracted to a temporary directory so that the pages and the referenced images are
+ * available through {@code file:} URLs and no network access is required.
+ */
+public class Corpus
+{
+    private static final String BASE = "/corpus/";
+    private static final String INDEX = BASE + "index.txt";
+
+    private static File directory;
+
+    /**
+     * Obtains the URL of a corpus page.
+     * @param page the page name without the extension (e.g. {@code text})
+     * @return the page URL
+     * @throws IOException when the corpus cannot be extracted
+     */
+    public static URL getPageURL(String page) throws IOException
+    {
+        File file = new File(getDirectory(), page + ".html");
+        if (!file.exists())
+            throw new IOException("No such page in the corpus: " + page);
+        return file.toURI().toURL();
+    }
+
+    /**
+     * Reads the source code of a corpus page.
+     * @param page the page name without the extension (e.g. {@code text})
+     * @return the page contents
+     * @throws IOException when the corpus cannot be extracted or read
+     */
+    public static byte[] getPageData(String page) throws IOException
+    {
+        InputStream in = getPageURL(page).openStream();
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            copy(in, out);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Obtains the directory that contains the extracted corpus. The corpus is extracted upon
+     * the first call.
+     * @return the corpus directory
+     * @throws IOException when the corpus cannot be extracted
+     */
+    public static synchronized File getDirectory() throws IOException
+    {
+        if (directory == null)
+        {
+            File dir = File.createTempFile("cssbox-corpus", "");
+            if (!dir.delete() || !dir.mkdir())
+                throw new IOException("Couldn't create the corpus directory " + dir);
+            dir.deleteOnExit();
+            for (String name : listFiles())
+                extract(name, new File(dir, name));
+            directory = dir;
+        }
+        return directory;
+    }
+
+    //=====================================================================================
+
+    private static List<String> listFiles() throws IOException
+    {
+        InputStream in = Corpus.class.getResourceAsStream(INDEX);
+        if (in == null)
+            throw new IOException("Couldn't find the corpus index " + INDEX);
+        List<String> ret = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    ret.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return ret;
+    }
+
+    private static void extract(String name, File dest) throws IOException
+    {
+        InputStream in = Corpus.class.getResourceAsStream(BASE + name);
+        if (in == null)
+            throw new IOException("Missing corpus file " + name);
+        if (dest.getParentFile().mkdirs())
+            dest.getParentFile().deleteOnExit();
+        dest.deleteOnExit();
+        OutputStream out = new FileOutputStream(dest);
+        try
+        {
+            copy(in, out);
+        } finally {
+            out.close();
+            in.close();
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException
+    {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1)
+            out.write(buffer, 0, n);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * HintsBenchmark.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 23:41:05
+ */
+package org.fit.cssbox.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import cz.vutbr.web.css.MediaSpec;
+
+/**
+ * Computing the styles of a legacy table layout page that uses the HTML presentation attributes
+ * (<code>bgcolor</code>, <code>cellpadding</code>, <code>border</code>, <code>align</code>, etc.) heavily.
+ * The attributes are either converted to inline styles ({@link DOMAnalyzer#attributesToStyles()})
+ * or applied directly ({@link DOMAnalyzer#attributesToHints()}). The page is generated with
+ * the given number of table rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HintsBenchmark
+{
+    @Param({"styles", "hints"})
+    public String mode;
+
+    @Param({"200", "2000"})
+    public int rows;
+
+    private URL url;
+    private byte[] data;
+    private Document doc;
+
+    @Setup(Level.Trial)
+    public void createPage() throws IOException
+    {
+        url = new File(Corpus.getDirectory(), "legacy-tables.html").toURI().toURL();
+        data = createSource(rows).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Invocation)
+    public void parsePage() throws IOException, SAXException
+    {
+        doc = Pipeline.parse(data, url);
+    }
+
+    @Benchmark
+    public DOMAnalyzer computeStyles()
+    {
+        MediaSpec media = new MediaSpec("screen");
+        media.setDimensions(Pipeline.WINDOW.width, Pipeline.WINDOW.height);
+        media.setDeviceDimensions(Pipeline.WINDOW.width, Pipeline.WINDOW.height);
+        DOMAnalyzer da = new DOMAnalyzer(doc, url);
+        da.setMediaSpec(media);
+        if (mode.equals("hints"))
+            da.attributesToHints();
+        else
+            da.attributesToStyles();
+        da.addAgentStyleSheets();
+        da.getStyleSheets();
+        da.getElementStyleInherited(da.getRoot());
+        return da;
+    }
+
+    //=====================================================================================
+
+    private static String createSource(int rows)
+    {
+        final String[] colors = {"#ffffff", "#eeeeff"};
+        StringBuilder ret = new StringBuilder();
+        ret.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>Legacy table layout</title>\n");
+        ret.append("<style>\nbody { font-family: sans-serif; }\ntd.num { font-weight: bold; }\n</style>\n");
+        ret.append("</head>\n<body bgcolor=\"#ffffff\">\n");
+        ret.append("<table width=\"100%\" border=\"1\" cellpadding=\"3\" cellspacing=\"0\" bgcolor=\"#cccccc\">\n");
+        for (int i = 0; i < rows; i++)
+        {
+            ret.append("<tr bgcolor=\"").append(colors[i % 2]).append("\" valign=\"top\">");
+            ret.append("<td align=\"right\" class=\"num\">").append(i + 1).append("</td>");
+            ret.append("<td><font face=\"Verdana, Arial\" size=\"2\" color=\"#333366\">Row ").append(i + 1).append("</font></td>");
+            ret.append("<td align=\"center\"><img src=\"img/photo1.png\" width=\"16\" height=\"16\" border=\"0\" align=\"left\"></td>");
+            ret.append("<td bgcolor=\"#ffffcc\" align=\"left\"><font size=\"-1\">").append(i * 7 % 100).append("%</font></td>");
+            ret.append("</tr>\n");
+        }
+        ret.append("</table>\n</body>\n</html>\n");
+        return ret.toString();
+    }
+
+}
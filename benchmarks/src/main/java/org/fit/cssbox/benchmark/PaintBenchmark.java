@@ -0,0 +1,123 @@
+/*
+ * PaintBenchmark.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 16:33:27
+ */
+package org.fit.cssbox.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.fit.cssbox.layout.LRUImageCache;
+import org.fit.cssbox.layout.LayoutEngine;
+import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.render.SVGRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.SAXException;
+
+/**
+ * Drawing a document with the layout already computed using {@link org.fit.cssbox.render.GraphicsRenderer}
+ * (to a preallocated page image) and {@link SVGRenderer} (to a writer that discards the output).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaintBenchmark
+{
+    @Param({"text", "tables", "nested-tables", "floats", "images"})
+    public String page;
+
+    private LayoutEngine engine;
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void preparePage() throws IOException, SAXException
+    {
+        URL url = Corpus.getPageURL(page);
+        engine = Pipeline.createEngine(Pipeline.computeStyles(Pipeline.parse(Corpus.getPageData(page), url), url),
+                url, new LRUImageCache());
+        Viewport viewport = engine.createLayout(Pipeline.WINDOW);
+        image = new BufferedImage(viewport.getWidth(), viewport.getHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = image.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void dispose()
+    {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paintGraphics()
+    {
+        engine.draw(graphics);
+        return image;
+    }
+
+    @Benchmark
+    public void paintSVG()
+    {
+        Viewport viewport = engine.getViewport();
+        Rectangle cb = viewport.getClippedContentBounds();
+        SVGRenderer r = new SVGRenderer(cb.width, cb.height, new NullWriter());
+        viewport.draw(r);
+        r.close();
+    }
+
+    /**
+     * A writer that discards all the output.
+     */
+    private static class NullWriter extends Writer
+    {
+        @Override
+        public void write(char[] cbuf, int off, int len)
+        {
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+
+}
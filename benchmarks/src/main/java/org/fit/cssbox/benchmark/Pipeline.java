@@ -0,0 +1,115 @@
+/*
+ * Pipeline.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 16:10:05
+ */
+package org.fit.cssbox.benchmark;
+
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.fit.cssbox.io.DefaultDOMSource;
+import org.fit.cssbox.io.DocumentSource;
+import org.fit.cssbox.io.StreamDocumentSource;
+import org.fit.cssbox.layout.ImageCache;
+import org.fit.cssbox.layout.LayoutEngine;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import cz.vutbr.web.css.MediaSpec;
+
+/**
+ * The individual stages of the rendering pipeline as they are used by the benchmarks. Each stage
+ * is implemented the same way as in {@link org.fit.cssbox.demo.ImageRenderer}.
+ */
+public class Pipeline
+{
+    /** The browser window size used for all the benchmarks */
+    public static final Dimension WINDOW = new Dimension(1200, 600);
+
+    /**
+     * Parses the page source.
+     * @param data the page source code
+     * @param url the page URL
+     * @return the DOM
+     */
+    public static Document parse(byte[] data, URL url) throws IOException, SAXException
+    {
+        DocumentSource src = new StreamDocumentSource(new ByteArrayInputStream(data), url, "text/html; charset=utf-8");
+        try
+        {
+            return new DefaultDOMSource(src).parse();
+        } finally {
+            src.close();
+        }
+    }
+
+    /**
+     * Loads the style sheets and computes the styles of all the elements.
+     * @param doc the DOM
+     * @param url the page URL
+     * @return the analyzer with the computed styles
+     */
+    public static DOMAnalyzer computeStyles(Document doc, URL url)
+    {
+        return computeStyles(doc, url, false, false);
+    }
+
+    /**
+     * Loads the style sheets and computes the styles of all the elements using the given analyzer settings.
+     * In the on-demand mode, only the root element style is computed.
+     * @param doc the DOM
+     * @param url the page URL
+     * @param sharing {@code true} for sharing the styles among the equal sibling elements
+     * @param lazy {@code true} for computing the styles on demand
+     * @return the analyzer with the computed styles
+     */
+    public static DOMAnalyzer computeStyles(Document doc, URL url, boolean sharing, boolean lazy)
+    {
+        MediaSpec media = new MediaSpec("screen");
+        media.setDimensions(WINDOW.width, WINDOW.height);
+        media.setDeviceDimensions(WINDOW.width, WINDOW.height);
+        DOMAnalyzer da = new DOMAnalyzer(doc, url);
+        da.setMediaSpec(media);
+        da.setStyleSharing(sharing);
+        da.setLazyStyles(lazy);
+        da.attributesToStyles();
+        da.addAgentStyleSheets();
+        da.getStyleSheets();
+        da.getElementStyleInherited(da.getRoot());
+        return da;
+    }
+
+    /**
+     * Creates a layout engine for the analyzed document.
+     * @param da the analyzer with the computed styles
+     * @param url the page URL
+     * @param imageCache the image cache to be used
+     * @return the layout engine
+     */
+    public static LayoutEngine createEngine(DOMAnalyzer da, URL url, ImageCache imageCache)
+    {
+        LayoutEngine engine = new LayoutEngine(da.getRoot(), da, url);
+        engine.setAutoMediaUpdate(false); //the media specification is fixed
+        engine.getConfig().setImageCache(imageCache);
+        return engine;
+    }
+
+}
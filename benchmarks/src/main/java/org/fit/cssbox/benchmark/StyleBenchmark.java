@@ -0,0 +1,95 @@
+/*
+ * StyleBenchmark.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 16:17:50
+ */
+package org.fit.cssbox.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Loading the style sheets and computing the styles of all the elements using {@link DOMAnalyzer}.
+ * A freshly parsed DOM is used for each invocation because the analyzer modifies the DOM.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StyleBenchmark
+{
+    @Param({"text", "tables", "nested-tables", "floats", "images"})
+    public String page;
+
+    /** All the styles computed at once, with the style sharing or on demand */
+    @Param({"all", "shared", "lazy"})
+    public String mode;
+
+    private URL url;
+    private byte[] data;
+    private Document doc;
+
+    @Setup(Level.Trial)
+    public void loadPage() throws IOException
+    {
+        url = Corpus.getPageURL(page);
+        data = Corpus.getPageData(page);
+    }
+
+    @Setup(Level.Invocation)
+    public void parsePage() throws IOException, SAXException
+    {
+        doc = Pipeline.parse(data, url);
+    }
+
+    @Benchmark
+    public int computeStyles()
+    {
+        DOMAnalyzer da = Pipeline.computeStyles(doc, url, mode.equals("shared"), mode.equals("lazy"));
+        //read the styles of all the elements as the box tree creation does
+        NodeList elems = doc.getElementsByTagName("*");
+        int cnt = 0;
+        for (int i = 0; i < elems.getLength(); i++)
+        {
+            if (da.getElementStyleInherited((Element) elems.item(i)) != null)
+                cnt++;
+        }
+        return cnt;
+    }
+
+}
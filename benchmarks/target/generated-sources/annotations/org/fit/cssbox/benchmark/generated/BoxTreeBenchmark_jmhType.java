@@ -0,0 +1,4 @@
+package org.fit.cssbox.benchmark.generated;
+public class BoxTreeBenchmark_jmhType extends BoxTreeBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.fit.cssbox.benchmark.generated;
+public class HintsBenchmark_jmhType extends HintsBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.fit.cssbox.benchmark.generated;
+public class PaintBenchmark_jmhType extends PaintBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.fit.cssbox.benchmark.generated;
+public class ParseBenchmark_jmhType extends ParseBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.fit.cssbox.benchmark.generated;
+public class PositionBenchmark_jmhType extends PositionBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.fit.cssbox.benchmark.generated;
+public class StyleBenchmark_jmhType extends StyleBenchmark_jmhType_B3 {
+}
+
@@ -20,6 +20,15 @@
 
 package org.fit.cssbox.css;
 
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cz.vutbr.web.css.CSSException;
+import cz.vutbr.web.css.CSSFactory;
+import cz.vutbr.web.css.StyleSheet;
+
 /**
  * This class provides standard style sheets for the browser.
  *
@@ -27,6 +36,8 @@ package org.fit.cssbox.css;
  */
 public class CSSNorm 
 {
+    private static Logger log = LoggerFactory.getLogger(CSSNorm.class);
+    
 
     /**
      * Defines a standard HTML style sheet defining the basic style of the individual elements.
@@ -228,4 +239,64 @@ public class CSSNorm
             "}";
     }
     
+    //====================================================================
+    
+    /**
+     * Obtains the standard style sheet ({@link #stdStyleSheet()}) parsed as a user agent style sheet.
+     * The style sheet is parsed only once and the same instance is shared by all the callers
+     * (and threads); it must not be modified.
+     * @return the parsed style sheet
+     */
+    public static StyleSheet parsedStdStyleSheet()
+    {
+        return AgentStyleSheets.STD;
+    }
+    
+    /**
+     * Obtains the additional style sheet ({@link #userStyleSheet()}) parsed as a user agent style sheet.
+     * The style sheet is parsed only once and the same instance is shared by all the callers
+     * (and threads); it must not be modified.
+     * @return the parsed style sheet
+     */
+    public static StyleSheet parsedUserStyleSheet()
+    {
+        return AgentStyleSheets.USER;
+    }
+    
+    /**
+     * Obtains the form fields style sheet ({@link #formsStyleSheet()}) parsed as a user agent style sheet.
+     * The style sheet is parsed only once and the same instance is shared by all the callers
+     * (and threads); it must not be modified.
+     * @return the parsed style sheet
+     */
+    public static StyleSheet parsedFormsStyleSheet()
+    {
+        return AgentStyleSheets.FORMS;
+    }
+    
+    /**
+     * The parsed style sheets. They are created upon the first use; the class initialization
+     * guarantees that they are safely published to all the threads.
+     */
+    private static class AgentStyleSheets
+    {
+        static final StyleSheet STD = parseAgentStyleSheet(stdStyleSheet());
+        static final StyleSheet USER = parseAgentStyleSheet(userStyleSheet());
+        static final StyleSheet FORMS = parseAgentStyleSheet(formsStyleSheet());
+        
+        private static StyleSheet parseAgentStyleSheet(String cssdata)
+        {
+            try {
+                StyleSheet ret = CSSFactory.parseString(cssdata, null);
+                ret.setOrigin(StyleSheet.Origin.AGENT);
+                return ret;
+            } catch (IOException e) {
+                log.error("I/O Error: "+e.getMessage());
+            } catch (CSSException e) {
+                log.error("CSS Error: "+e.getMessage());
+            }
+            return null;
+        }
+    }
+    
 }
@@ -30,16 +30,21 @@ import org.w3c.dom.*;
 
 import cz.vutbr.web.css.CSSException;
 import cz.vutbr.web.css.CSSFactory;
+import cz.vutbr.web.css.CombinedSelector;
 import cz.vutbr.web.css.MediaSpec;
 import cz.vutbr.web.css.NetworkProcessor;
 import cz.vutbr.web.css.NodeData;
 import cz.vutbr.web.css.RuleBlock;
 import cz.vutbr.web.css.RuleFontFace;
+import cz.vutbr.web.css.RuleMedia;
 import cz.vutbr.web.css.RuleSet;
 import cz.vutbr.web.css.Selector;
 import cz.vutbr.web.css.Selector.PseudoElementType;
 import cz.vutbr.web.css.StyleSheet;
-import cz.vutbr.web.domassign.Analyzer;
+import cz.vutbr.web.domassign.Analyzer.Holder;
+import cz.vutbr.web.domassign.Analyzer.OrderedRule;
+import cz.vutbr.web.domassign.AnalyzerUtil;
+import cz.vutbr.web.domassign.DirectAnalyzer;
 import cz.vutbr.web.domassign.StyleMap;
 
 
@@ -52,6 +57,8 @@ public class DOMAnalyzer
 {
     private static Logger log = LoggerFactory.getLogger(DOMAnalyzer.class);
 	private static final String DEFAULT_MEDIA = "screen";
+	/** The pseudo-elements whose styles are computed together with the element style */
+	private static final PseudoElementType[] SHARED_PSEUDO = {PseudoElementType.BEFORE, PseudoElementType.AFTER};
 	
     private Document doc;   //the root node of the DOM tree
     private URL baseUrl;    //base URL
@@ -59,10 +66,17 @@ public class DOMAnalyzer
     private String encoding; //default character encoding for style sheet parsing
     
     private Vector<StyleSheet> styles;  //vector of StyleSheet sheets
-    private Analyzer analyzer; //style sheet analyzer
+    private DirectAnalyzer analyzer; //style sheet analyzer
     private StyleMap stylemap; //style map for DOM nodes
     private StyleMap istylemap; //style map with inheritance
     private FontTable fontTable; //local font table
+    private boolean styleSharing; //share the computed styles among equal sibling elements?
+    private int sharedCount; //the number of elements that obtained a shared style
+    private boolean lazyStyles; //compute the inherited styles on demand?
+    private Map<Element, ElementStyle> lazymap; //inherited styles computed on demand
+    private StyleSharing lazySharing; //style sharing rules used in the on-demand mode
+    private Holder lazyRules; //classified style sheet rules used in the on-demand mode
+    private PresentationalHints hints; //HTML presentation attributes applied directly or null
     
     /** The origin of a style sheet */
     public enum Origin 
@@ -325,6 +339,32 @@ public class DOMAnalyzer
             log.error("No <body> element found in the DOM.");
     }
     
+    /**
+     * Converts the HTML presentation attributes in the document body to style declarations that
+     * are applied directly to the computed styles (see {@link PresentationalHints}). This is
+     * an alternative to {@link #attributesToStyles()} that avoids encoding the declarations
+     * to the DOM and parsing them again for every element. The computed styles are the same with
+     * one exception: the hints always lose to the author style rules setting the same property,
+     * including the rules with the universal selector (see {@link PresentationalHints}).
+     */
+    public void attributesToHints()
+    {
+        //fix the DOM tree structure according to HTML syntax
+        HTMLNorm.normalizeHTMLTree(doc);
+        //convert attributes to style declarations
+        Element body = getBody();
+        if (body != null)
+        {
+            hints = new PresentationalHints(baseUrl);
+            HTMLNorm.attributesToHints(body, hints);
+            if (hints.isEmpty())
+                hints = null;
+            recomputeStyles();
+        }
+        else
+            log.error("No <body> element found in the DOM.");
+    }
+    
     /**
      * Removes all the external style sheet links and puts the whole style sheet locally
      * to the document head.
@@ -386,6 +426,20 @@ public class DOMAnalyzer
         styles.add(newsheet);
     }
 
+    /** 
+     * Returns a vector of CSSStyleSheet objects referenced from the document for the specified
+     * media type and features. The internal style sheets are read from the document directly, the external
+     * ones are downloaded using the given network processor and parsed automatically.
+     * @param media the media specification
+     * @param processor the network processor used for handling the URL connections
+     */
+    public void getStyleSheets(MediaSpec media, NetworkProcessor processor)
+    {
+        this.media = media;
+        StyleSheet newsheet = CSSFactory.getUsedStyles(doc, encoding, baseUrl, this.media, processor);
+        styles.add(newsheet);
+    }
+
     /** 
      * Returns a vector of CSSStyleSheet objects referenced from the document for the media
      * type set by <code>setMedia()</code> (or "screen" by default). The internal style 
@@ -527,6 +581,111 @@ public class DOMAnalyzer
         }
     }
 	
+    /**
+     * Adds an already parsed style sheet to the end of the used style sheet list. The origin
+     * of the style sheet must be already set. The style sheet is not modified by the analyzer
+     * so that the same instance may be shared by multiple analyzers.
+     * @param sheet the style sheet to be added
+     */
+    public void addStyleSheet(StyleSheet sheet)
+    {
+        if (sheet != null)
+        {
+            styles.add(sheet);
+            fontTable = null; //force recomputing the font table the next time
+        }
+    }
+    
+    /**
+     * Adds the standard user agent style sheets: the default HTML style sheet, the additional
+     * style sheet and the style sheet for form fields (see {@link CSSNorm}). The style sheets are parsed
+     * only once and shared by all the analyzers. This is equivalent to adding
+     * {@link CSSNorm#stdStyleSheet()}, {@link CSSNorm#userStyleSheet()} and {@link CSSNorm#formsStyleSheet()}
+     * using {@link #addStyleSheet(URL, String, Origin)} with the {@code AGENT} origin.
+     */
+    public void addAgentStyleSheets()
+    {
+        addStyleSheet(CSSNorm.parsedStdStyleSheet());
+        addStyleSheet(CSSNorm.parsedUserStyleSheet());
+        addStyleSheet(CSSNorm.parsedFormsStyleSheet());
+    }
+    
+    /**
+     * Checks whether the computed styles are shared among the equal sibling elements.
+     * @return {@code true} when the style sharing is enabled
+     */
+    public boolean getStyleSharing()
+    {
+        return styleSharing;
+    }
+
+    /**
+     * Enables or disables sharing the computed styles among the sibling elements. When enabled,
+     * the sibling elements with the same name and attributes obtain the same instance of the
+     * computed style (see {@link StyleSharing}) instead of matching the style sheets for each of them
+     * again. The shared styles must not be modified. The style sharing is not used when the style sheets
+     * contain some selectors that may make the styles of such siblings different for any element.
+     * The default value is {@code false}.
+     * @param styleSharing {@code true} for enabling the style sharing
+     */
+    public void setStyleSharing(boolean styleSharing)
+    {
+        if (this.styleSharing != styleSharing)
+        {
+            this.styleSharing = styleSharing;
+            istylemap = null; //recompute the inherited styles upon next read
+            lazymap = null;
+        }
+    }
+
+    /**
+     * Obtains the number of elements that obtained a shared style during the last computation
+     * of the inherited styles.
+     * @return the number of elements with a shared style
+     */
+    public int getSharedStyleCount()
+    {
+        return sharedCount;
+    }
+    
+    /**
+     * Checks whether the inherited styles are computed on demand.
+     * @return {@code true} when the on-demand mode is enabled
+     */
+    public boolean getLazyStyles()
+    {
+        return lazyStyles;
+    }
+
+    /**
+     * Enables or disables the on-demand computation of the inherited styles. In the on-demand mode,
+     * the inherited style of an element is computed when it is first requested using the style of its
+     * parent element. The styles of the elements that are never requested (e.g. the contents of the
+     * <code>display: none</code> subtrees during the box tree creation) are never computed and the styles
+     * that are not needed anymore may be released using {@link #releaseStyles(Element)}. Only the
+     * <code>:before</code> and <code>:after</code> pseudo-element styles are available in this mode.
+     * The default value is {@code false}.
+     * @param lazyStyles {@code true} for enabling the on-demand mode
+     */
+    public void setLazyStyles(boolean lazyStyles)
+    {
+        this.lazyStyles = lazyStyles;
+        istylemap = null;
+        lazymap = null;
+    }
+
+    /**
+     * Releases the computed inherited styles of an element and its pseudo-elements in the on-demand mode
+     * so that they may be garbage collected. When the styles are requested again, they are computed again.
+     * This has no effect when the on-demand mode is not enabled.
+     * @param el the element whose styles are not needed anymore
+     */
+    public void releaseStyles(Element el)
+    {
+        if (lazyStyles && lazymap != null)
+            lazymap.remove(el);
+    }
+    
 	/**
 	 * Forces recomputing the element styles. This method should be called when a new style sheet
 	 * has been added or a DOM has changed after some styles have been read from the analyzer.
@@ -537,6 +696,7 @@ public class DOMAnalyzer
 	    analyzer = null;
 	    stylemap = null;
 	    istylemap = null;
+	    lazymap = null;
 	}
 	
     /**
@@ -547,11 +707,21 @@ public class DOMAnalyzer
      */
     public NodeData getElementStyle(Element el)
     {
-    	if (analyzer == null)
-    		analyzer = new Analyzer(styles);
+    	checkAnalyzer();
     	
     	if (stylemap == null)
+    	{
     		stylemap = analyzer.evaluateDOM(doc, media, false);
+    		if (hints != null)
+    		{
+    			for (Element hel : hints.getElements())
+    			{
+    				NodeData data = stylemap.get(hel);
+    				if (data != null)
+    					hints.apply(hel, data);
+    			}
+    		}
+    	}
     	
     	return stylemap.get(el);
     }
@@ -561,11 +731,27 @@ public class DOMAnalyzer
      */
     private void checkStylesInherited()
     {
-    	if (analyzer == null)
-    		analyzer = new Analyzer(styles);
+    	checkAnalyzer();
         
         if (istylemap == null)
-            istylemap = analyzer.evaluateDOM(doc, media, true);
+        {
+            StyleSharing sharing = styleSharing ? new StyleSharing(styles) : null;
+            if (sharing != null && sharing.isApplicable())
+                istylemap = evaluateShared(sharing);
+            else if (hints != null) //the hints must be applied before inheriting (the rules are classified once as in evaluateDOM)
+                istylemap = evaluateShared(null);
+            else
+                istylemap = analyzer.evaluateDOM(doc, media, true);
+        }
+    }
+    
+    /**
+     * Checks whether the style sheet analyzer has been created and creates it when necessary.
+     */
+    private void checkAnalyzer()
+    {
+        if (analyzer == null)
+            analyzer = new DirectAnalyzer(styles);
     }
     
     /**
@@ -576,6 +762,8 @@ public class DOMAnalyzer
      */
     public NodeData getElementStyleInherited(Element el)
     {
+        if (lazyStyles)
+            return getLazyStyle(el).main;
         checkStylesInherited();
     	return istylemap.get(el);
     }
@@ -589,6 +777,8 @@ public class DOMAnalyzer
      */
     public NodeData getElementStyleInherited(Element el, PseudoElementType pseudo)
     {
+        if (lazyStyles)
+            return (pseudo == null) ? getLazyStyle(el).main : getLazyStyle(el).getPseudo(pseudo);
         checkStylesInherited();
         return istylemap.get(el, pseudo);
     }
@@ -601,6 +791,8 @@ public class DOMAnalyzer
      */
     public boolean hasPseudoDef(Element el, PseudoElementType pseudo)
     {
+        if (lazyStyles)
+            return getLazyStyle(el).getPseudo(pseudo) != null;
         checkStylesInherited();
         return istylemap.hasPseudo(el, pseudo);
     }
@@ -613,10 +805,47 @@ public class DOMAnalyzer
      */
     public void useStyle(Element el, PseudoElementType pseudo, NodeData style)
     {
+        if (lazyStyles)
+        {
+            if (pseudo == null)
+            {
+                checkLazyStyles();
+                ElementStyle estyle = lazymap.get(el);
+                if (estyle == null)
+                {
+                    estyle = new ElementStyle(); //do not compute, the element may not be a part of the document
+                    lazymap.put(el, estyle);
+                }
+                estyle.main = style;
+            }
+            else
+                getLazyStyle(el).setPseudo(pseudo, style);
+            return;
+        }
         checkStylesInherited();
         istylemap.put(el, pseudo, style);
     }
     
+    /**
+     * Checks whether changing the display area size in the current media specification would change
+     * the result of some media query used in the style sheets and therefore the computed styles.
+     * Only the {@code @media} rules of the loaded style sheets are considered; the style sheets
+     * that have been skipped while loading because of their media are not.
+     * @param width the new display area width
+     * @param height the new display area height
+     * @return {@code true} when the computed styles may be different for the new size
+     */
+    public boolean isMediaChanged(float width, float height)
+    {
+        final float oldw = media.getWidth();
+        final float oldh = media.getHeight();
+        List<Boolean> before = evaluateMediaRules();
+        media.setDimensions(width, height);
+        List<Boolean> after = evaluateMediaRules();
+        media.setDimensions(oldw, oldh);
+        return !before.equals(after);
+    }
+    
     public FontTable getFontTable()
     {
         if (fontTable == null)
@@ -641,6 +870,20 @@ public class DOMAnalyzer
         }
     }
     
+    private List<Boolean> evaluateMediaRules()
+    {
+        List<Boolean> ret = new ArrayList<Boolean>();
+        for (StyleSheet sheet : styles)
+        {
+            for (RuleBlock<?> block : sheet.asList())
+            {
+                if (block instanceof RuleMedia)
+                    ret.add(media.matchesOneOf(((RuleMedia) block).getMediaQueries()));
+            }
+        }
+        return ret;
+    }
+    
     private void processFontFaceRule(RuleFontFace rule)
     {
         FontSpec spec = new FontSpec(rule.getFontFamily(), rule.getFontWeight(), rule.getFontStyle());
@@ -651,6 +894,171 @@ public class DOMAnalyzer
 
     //====================================================================
     
+    /**
+     * Computes the inherited styles of all the elements while sharing the styles among
+     * the equal sibling elements.
+     * @param sharing the sharing rules for the current style sheets or {@code null} when the styles should not be shared
+     * @return the resulting style map
+     */
+    private StyleMap evaluateShared(StyleSharing sharing)
+    {
+        StyleMap map = new StyleMap(doc.getElementsByTagName("*").getLength());
+        sharedCount = 0;
+        Element root = doc.getDocumentElement();
+        if (root != null)
+        {
+            final Holder rules = AnalyzerUtil.getClassifiedRules(styles, media); //classified once for all the elements
+            ElementStyle rstyle = computeElementStyle(root, null, rules);
+            rstyle.storeTo(map, root);
+            recursiveEvaluateShared(root, rstyle, map, sharing, rules);
+        }
+        return map;
+    }
+    
+    private void recursiveEvaluateShared(Element parent, ElementStyle pstyle, StyleMap map, StyleSharing sharing, Holder rules)
+    {
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++)
+        {
+            if (children.item(i).getNodeType() == Node.ELEMENT_NODE)
+            {
+                final Element child = (Element) children.item(i);
+                final ElementStyle cstyle = computeSharedStyle(child, pstyle, sharing, rules);
+                cstyle.storeTo(map, child);
+                recursiveEvaluateShared(child, cstyle, map, sharing, rules);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the on-demand style computation has been initialized and initializes it when necessary.
+     */
+    private void checkLazyStyles()
+    {
+        checkAnalyzer();
+        
+        if (lazymap == null)
+        {
+            lazymap = new HashMap<Element, ElementStyle>();
+            lazySharing = styleSharing ? new StyleSharing(styles) : null;
+            if (lazySharing != null && !lazySharing.isApplicable())
+                lazySharing = null;
+            lazyRules = AnalyzerUtil.getClassifiedRules(styles, media); //shared by all the styles computed on demand
+            sharedCount = 0;
+        }
+    }
+    
+    /**
+     * Obtains the style of an element in the on-demand mode. The style is computed when it has not been
+     * computed yet or it has been released. The parent element style is obtained in the same way.
+     * @param el the element
+     * @return the element style
+     */
+    private ElementStyle getLazyStyle(Element el)
+    {
+        checkLazyStyles();
+        ElementStyle ret = lazymap.get(el);
+        if (ret == null)
+        {
+            final Node pnode = el.getParentNode();
+            final ElementStyle pstyle = (pnode != null && pnode.getNodeType() == Node.ELEMENT_NODE) ? getLazyStyle((Element) pnode) : null;
+            ret = computeSharedStyle(el, pstyle, lazySharing, lazyRules);
+            lazymap.put(el, ret);
+        }
+        return ret;
+    }
+    
+    /**
+     * Obtains the style of an element. When an equal sibling element has been computed before, its style is shared.
+     * Otherwise, the style is computed and remembered for the following siblings.
+     * @param el the element
+     * @param pstyle the parent element style or {@code null} for the root element
+     * @param sharing the style sharing rules or {@code null} when the styles should not be shared
+     * @param rules the classified style sheet rules
+     * @return the element style
+     */
+    private ElementStyle computeSharedStyle(Element el, ElementStyle pstyle, StyleSharing sharing, Holder rules)
+    {
+        final String key = (sharing == null || pstyle == null) ? null : sharing.getKey(el);
+        final ElementStyle same = (key == null || pstyle.children == null) ? null : pstyle.children.get(key);
+        if (same != null)
+        {
+            sharedCount++;
+            return same.share();
+        }
+        else
+        {
+            ElementStyle ret = computeElementStyle(el, pstyle, rules);
+            if (key != null)
+            {
+                if (pstyle.children == null)
+                    pstyle.children = new HashMap<String, ElementStyle>();
+                pstyle.children.put(key, ret.share()); //do not keep the styles of the descendants
+            }
+            return ret;
+        }
+    }
+    
+    /**
+     * Computes the style of a single element and its pseudo-elements including the inheritance.
+     * The candidate rules are obtained once for the element and its pseudo-elements.
+     * @param el the element
+     * @param pstyle the parent element style or {@code null} for the root element
+     * @param rules the classified style sheet rules
+     * @return the element style
+     */
+    private ElementStyle computeElementStyle(Element el, ElementStyle pstyle, Holder rules)
+    {
+        final OrderedRule[] applicable = AnalyzerUtil.getApplicableRules(el, rules, null);
+        ElementStyle ret = new ElementStyle();
+        ret.main = AnalyzerUtil.getElementStyle(el, null, analyzer.getElementMatcher(), analyzer.getMatchCondition(), applicable);
+        if (hints != null)
+            hints.apply(el, ret.main);
+        if (pstyle != null && pstyle.main != null)
+            ret.main.inheritFrom(pstyle.main);
+        ret.main.concretize();
+        for (PseudoElementType pseudo : SHARED_PSEUDO)
+        {
+            final OrderedRule[] prules = filterPseudoRules(applicable, pseudo);
+            if (prules.length > 0) //do not match the selectors when there are no rules for the pseudo-element
+            {
+                NodeData pdata = AnalyzerUtil.getElementStyle(el, pseudo, analyzer.getElementMatcher(), analyzer.getMatchCondition(), prules);
+                if (!pdata.getPropertyNames().isEmpty())
+                {
+                    pdata.inheritFrom(ret.main);
+                    pdata.concretize();
+                    ret.setPseudo(pseudo, pdata);
+                }
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Selects the rules that contain some selector of the given pseudo-element.
+     * @param rules the candidate rules
+     * @param pseudo the pseudo-element
+     * @return the selected rules in the original order
+     */
+    private OrderedRule[] filterPseudoRules(OrderedRule[] rules, PseudoElementType pseudo)
+    {
+        List<OrderedRule> ret = null;
+        for (OrderedRule rule : rules)
+        {
+            for (CombinedSelector sel : rule.getRule().getSelectors())
+            {
+                if (sel.getPseudoElementType() == pseudo)
+                {
+                    if (ret == null)
+                        ret = new ArrayList<OrderedRule>();
+                    ret.add(rule);
+                    break;
+                }
+            }
+        }
+        return (ret == null) ? new OrderedRule[0] : ret.toArray(new OrderedRule[ret.size()]);
+    }
+    
     private void recursiveStylesToDom(Node n)
     {
         if (n.getNodeType() == Node.ELEMENT_NODE)
@@ -753,4 +1161,53 @@ public class DOMAnalyzer
     	else
     		return StyleSheet.Origin.USER;
     }
+    
+    //========================================================================
+    
+    /**
+     * The computed style of an element and its pseudo-elements.
+     */
+    private static class ElementStyle
+    {
+        /** The element style */
+        public NodeData main;
+        /** The pseudo-element styles or {@code null} when there are none */
+        public Map<PseudoElementType, NodeData> pseudo;
+        /** The styles of the child elements that may be shared by their siblings */
+        public Map<String, ElementStyle> children;
+        
+        public NodeData getPseudo(PseudoElementType type)
+        {
+            return (pseudo == null) ? null : pseudo.get(type);
+        }
+        
+        public void setPseudo(PseudoElementType type, NodeData data)
+        {
+            if (pseudo == null)
+                pseudo = new EnumMap<PseudoElementType, NodeData>(PseudoElementType.class);
+            pseudo.put(type, data);
+        }
+        
+        /**
+         * Creates a style for a sibling element that shares the computed data with this style.
+         */
+        public ElementStyle share()
+        {
+            ElementStyle ret = new ElementStyle();
+            ret.main = main;
+            if (pseudo != null)
+                ret.pseudo = new EnumMap<PseudoElementType, NodeData>(pseudo);
+            return ret;
+        }
+        
+        public void storeTo(StyleMap map, Element el)
+        {
+            map.put(el, null, main);
+            if (pseudo != null)
+            {
+                for (Map.Entry<PseudoElementType, NodeData> entry : pseudo.entrySet())
+                    map.put(el, entry.getKey(), entry.getValue());
+            }
+        }
+    }
 }
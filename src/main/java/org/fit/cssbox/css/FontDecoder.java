@@ -22,11 +22,11 @@ package org.fit.cssbox.css;
 import java.awt.Font;
 import java.awt.FontFormatException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.fit.cssbox.io.DocumentSource;
 
@@ -43,22 +43,28 @@ public class FontDecoder
         supportedFormats.add("truetype");
     }
     
-    private static Map<URL, String> registeredFonts = new HashMap<>();
+    /** The fonts registered by the documents rendered concurrently (keyed by the URL strings) */
+    private static ConcurrentHashMap<String, String> registeredFonts = new ConcurrentHashMap<>();
 
     public static void registerFont(URL url, String family)
     {
-        registeredFonts.put(url, family);
+        registeredFonts.put(url.toString(), family);
     }
     
     public static String findRegisteredFont(URL url)
     {
-        return registeredFonts.get(url);
+        return registeredFonts.get(url.toString());
     }
     
     public static Font decodeFont(DocumentSource fontSource, String format) throws FontFormatException, IOException
+    {
+        return decodeFont(fontSource.getInputStream(), format);
+    }
+    
+    public static Font decodeFont(InputStream fontData, String format) throws FontFormatException, IOException
     {
         //TODO decode other formats than TTF
-        return Font.createFont(Font.TRUETYPE_FONT, fontSource.getInputStream());
+        return Font.createFont(Font.TRUETYPE_FONT, fontData);
     }
     
     
@@ -0,0 +1,214 @@
+/*
+ * FontRegistry.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 13:02:51
+ */
+package org.fit.cssbox.css;
+
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fit.cssbox.layout.FontAdvanceCache;
+import org.fit.cssbox.layout.FontMetricsCache;
+
+import cz.vutbr.web.css.CSSProperty;
+
+/**
+ * A process-wide registry of the available system fonts. It indexes the system font family names
+ * for case-insensitive lookup and remembers the results of font-family resolution and the created
+ * fonts so that they may be shared among all the documents. The registry must be invalidated
+ * using {@link #invalidate()} when the set of available fonts changes (e.g. a new font is registered
+ * in the graphics environment).
+ */
+public class FontRegistry
+{
+    /** Lower-case family name to the system family name */
+    private static volatile Map<String, String> systemFamilies;
+
+    /** Resolved font-family specifications */
+    private static final ConcurrentHashMap<String, String> resolved = new ConcurrentHashMap<String, String>();
+
+    /** Created font instances */
+    private static final ConcurrentHashMap<String, Font> fonts = new ConcurrentHashMap<String, Font>();
+
+    /** The maximal number of resolved specifications or fonts; the maps are cleared when exceeded */
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final AtomicLong resolutionCount = new AtomicLong();
+    private static final AtomicLong resolutionHits = new AtomicLong();
+    private static final AtomicLong resolutionTime = new AtomicLong();
+
+    /**
+     * Finds an available system font family.
+     * @param family the font family name (case-insensitive)
+     * @return the exact name of the system font family or {@code null} when it's not available
+     */
+    public static String findSystemFamily(String family)
+    {
+        return getSystemFamilies().get(family.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Obtains a remembered result of a font-family resolution.
+     * @param key the resolution key (see {@link #createResolutionKey(String, CSSProperty.FontWeight, CSSProperty.FontStyle)})
+     * @return the resolved font family name or {@code null} when not available
+     */
+    public static String getResolvedFamily(String key)
+    {
+        return resolved.get(key);
+    }
+
+    /**
+     * Remembers a result of a font-family resolution.
+     * @param key the resolution key (see {@link #createResolutionKey(String, CSSProperty.FontWeight, CSSProperty.FontStyle)})
+     * @param family the resolved font family name
+     */
+    public static void putResolvedFamily(String key, String family)
+    {
+        if (resolved.size() >= MAX_ENTRIES)
+            resolved.clear();
+        resolved.put(key, family);
+    }
+
+    /**
+     * Creates a key for remembering the font-family resolution results.
+     * @param familyList the font-family specification (a list of families)
+     * @param weight the font weight
+     * @param style the font style
+     * @return the key
+     */
+    public static String createResolutionKey(String familyList, CSSProperty.FontWeight weight, CSSProperty.FontStyle style)
+    {
+        return familyList.toLowerCase(Locale.ROOT) + '|' + weight + '|' + style;
+    }
+
+    /**
+     * Obtains a font instance. The fonts are immutable so that the same instance is shared
+     * for all the equal requests.
+     * @param family the font family name
+     * @param style the font style ({@link Font#PLAIN}, {@link Font#BOLD}, {@link Font#ITALIC} or their combination)
+     * @param size the font size
+     * @return the font
+     */
+    public static Font getFont(String family, int style, int size)
+    {
+        final String key = family + '|' + style + '|' + size;
+        Font ret = fonts.get(key);
+        if (ret == null)
+        {
+            if (fonts.size() >= MAX_ENTRIES)
+                fonts.clear();
+            ret = new Font(family, style, size);
+            Font prev = fonts.putIfAbsent(key, ret);
+            if (prev != null)
+                ret = prev;
+        }
+        return ret;
+    }
+
+    /**
+     * Invalidates all the cached information including the cached font metrics and character advances
+     * ({@link FontMetricsCache}, {@link FontAdvanceCache}). This should be called whenever the set
+     * of the available fonts changes.
+     */
+    public static void invalidate()
+    {
+        systemFamilies = null;
+        resolved.clear();
+        fonts.clear();
+        FontMetricsCache.clear(); //a font with the same name may have different metrics now
+        FontAdvanceCache.clear();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Records a font-family resolution for the statistics.
+     * @param nanos the time spent by the resolution in nanoseconds
+     * @param hit {@code true} when the resolution result has been found in the registry
+     */
+    public static void recordResolution(long nanos, boolean hit)
+    {
+        resolutionCount.incrementAndGet();
+        resolutionTime.addAndGet(nanos);
+        if (hit)
+            resolutionHits.incrementAndGet();
+    }
+
+    /**
+     * Obtains the total number of font-family resolutions.
+     * @return the resolution count
+     */
+    public static long getResolutionCount()
+    {
+        return resolutionCount.get();
+    }
+
+    /**
+     * Obtains the number of font-family resolutions that have been answered from the registry.
+     * @return the hit count
+     */
+    public static long getResolutionHits()
+    {
+        return resolutionHits.get();
+    }
+
+    /**
+     * Obtains the total time spent by font-family resolution.
+     * @return the time in nanoseconds
+     */
+    public static long getResolutionTime()
+    {
+        return resolutionTime.get();
+    }
+
+    /**
+     * Resets the resolution statistics.
+     */
+    public static void resetStatistics()
+    {
+        resolutionCount.set(0);
+        resolutionHits.set(0);
+        resolutionTime.set(0);
+    }
+
+    //=====================================================================================
+
+    private static Map<String, String> getSystemFamilies()
+    {
+        Map<String, String> ret = systemFamilies;
+        if (ret == null)
+        {
+            final String[] names = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
+            ret = new HashMap<String, String>(names.length * 2);
+            for (String name : names)
+            {
+                final String key = name.toLowerCase(Locale.ROOT);
+                if (!ret.containsKey(key)) //the first one wins as in a linear scan
+                    ret.put(key, name);
+            }
+            systemFamilies = ret;
+        }
+        return ret;
+    }
+
+}
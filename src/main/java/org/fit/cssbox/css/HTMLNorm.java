@@ -59,6 +59,23 @@ public class HTMLNorm
      * @param tab_inh the inline style inherited from a parent table, empty if we're not in a table
      */
     public static void attributesToStyles(Node n, String tab_inh)
+    {
+        attributesToStyles(n, tab_inh, null);
+    }
+    
+    /**
+     * Recursively converts some HTML presentation attributes to style declarations the same way as
+     * {@link #attributesToStyles(Node, String)} but the declarations are added to the given hints
+     * instead of the <code>XDefaultStyle</code> attribute. The DOM tree is not modified.
+     * @param n the root node of the DOM subtree where the conversion is done
+     * @param hints the hints where the resulting declarations are added
+     */
+    public static void attributesToHints(Node n, PresentationalHints hints)
+    {
+        attributesToStyles(n, "", hints);
+    }
+    
+    private static void attributesToStyles(Node n, String tab_inh, PresentationalHints hints)
     {
         String itab = tab_inh;
         if (n.getNodeType() == Node.ELEMENT_NODE)
@@ -308,11 +325,16 @@ public class HTMLNorm
             }
 
             if (attrs.length() > 0)
-                el.setAttribute("XDefaultStyle", HTMLNorm.getAttribute(el, "XDefaultStyle") + ";" + attrs);
+            {
+                if (hints != null)
+                    hints.add(el, attrs);
+                else
+                    el.setAttribute("XDefaultStyle", HTMLNorm.getAttribute(el, "XDefaultStyle") + ";" + attrs);
+            }
         }                
         NodeList child = n.getChildNodes();
         for (int i = 0; i < child.getLength(); i++)
-            attributesToStyles(child.item(i), itab);
+            attributesToStyles(child.item(i), itab, hints);
     }
     
     /**
@@ -0,0 +1,240 @@
+/*
+ * PresentationalHints.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 23:12:27
+ */
+package org.fit.cssbox.css;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+
+import cz.vutbr.web.css.CSSException;
+import cz.vutbr.web.css.CSSFactory;
+import cz.vutbr.web.css.Declaration;
+import cz.vutbr.web.css.NodeData;
+import cz.vutbr.web.css.RuleBlock;
+import cz.vutbr.web.css.RuleSet;
+import cz.vutbr.web.css.StyleSheet;
+import cz.vutbr.web.domassign.AssignedDeclaration;
+
+/**
+ * The style declarations obtained from the HTML presentation attributes (see {@link HTMLNorm}) that
+ * are applied directly to the computed element styles instead of being encoded to the <code>XDefaultStyle</code>
+ * attribute and parsed again for every element. Each distinct declaration string is parsed only once for
+ * each document base URL (used for resolving the relative URLs such as the <code>background</code>
+ * attribute values) and the resulting declarations are shared process-wide.
+ * <p>
+ * The hints take precedence over the user agent style sheets but not over the author style sheets
+ * or the inline styles. As the HTML specification requires, the hints lose to any author rule that sets
+ * the same property including the rules with the universal selector.
+ */
+public class PresentationalHints
+{
+    private static Logger log = LoggerFactory.getLogger(PresentationalHints.class);
+
+    /** The cascade origin order of the author declarations (see {@link AssignedDeclaration#getOriginOrder()}) */
+    private static final int AUTHOR_NORMAL = 3;
+    private static final int AUTHOR_IMPORTANT = 4;
+    /** Maximal number of parsed declaration strings kept in the cache */
+    private static final int MAX_CACHED = 1024;
+    /** Parsed declaration strings (the key contains the base URL and the string) */
+    private static final ConcurrentHashMap<String, List<Hint>> parsed = new ConcurrentHashMap<String, List<Hint>>();
+
+    /** The base URL used for resolving the relative URLs */
+    private URL base;
+    /** The hints assigned to the individual elements */
+    private Map<Element, List<Hint>> hints;
+
+    /**
+     * Creates an empty set of hints.
+     * @param base the document base URL used for resolving the relative URLs or {@code null} when unknown
+     */
+    public PresentationalHints(URL base)
+    {
+        this.base = base;
+        hints = new HashMap<Element, List<Hint>>();
+    }
+
+    /**
+     * Adds the style declarations to the hints of an element.
+     * @param el the element
+     * @param css the declarations (e.g. <code>text-align:left;vertical-align:top;</code>)
+     */
+    public void add(Element el, String css)
+    {
+        final List<Hint> decls = getDeclarations(css, base);
+        if (!decls.isEmpty())
+        {
+            List<Hint> current = hints.get(el);
+            if (current == null)
+                hints.put(el, decls);
+            else
+            {
+                current = new ArrayList<Hint>(current);
+                current.addAll(decls);
+                hints.put(el, current);
+            }
+        }
+    }
+
+    /**
+     * Checks whether there are no hints at all.
+     * @return {@code true} when no element has any hints
+     */
+    public boolean isEmpty()
+    {
+        return hints.isEmpty();
+    }
+
+    /**
+     * Obtains the elements that have some hints assigned.
+     * @return the set of elements
+     */
+    public Set<Element> getElements()
+    {
+        return hints.keySet();
+    }
+
+    /**
+     * Applies the hints of an element to its style. The style must not be inherited or concretized yet.
+     * The properties set by the author style sheets are recognized by the origin of their source
+     * declarations in the style so that the author rules are not matched again.
+     * @param el the element
+     * @param style the element style obtained from the style sheets
+     */
+    public void apply(Element el, NodeData style)
+    {
+        final List<Hint> decls = hints.get(el);
+        if (decls != null)
+        {
+            for (Hint hint : decls)
+            {
+                List<Declaration> restore = null;
+                boolean overrides = false;
+                for (String name : hint.properties)
+                {
+                    final Declaration src = style.getSourceDeclaration(name);
+                    if (src != null && (src.isImportant() || isAuthorDeclaration(src)))
+                    {
+                        if (restore == null)
+                            restore = new ArrayList<Declaration>(1);
+                        if (src != null && !restore.contains(src))
+                            restore.add(src);
+                    }
+                    else
+                        overrides = true;
+                }
+                if (overrides)
+                {
+                    style.push(hint.decl);
+                    if (restore != null) //a shorthand partially overridden by the author
+                    {
+                        for (Declaration d : restore)
+                            style.push(d);
+                    }
+                }
+            }
+        }
+    }
+
+    //====================================================================
+
+    /**
+     * Checks whether a declaration assigned to an element comes from an author style sheet
+     * (including the inline styles).
+     */
+    private static boolean isAuthorDeclaration(Declaration d)
+    {
+        if (d instanceof AssignedDeclaration)
+        {
+            final int order = ((AssignedDeclaration) d).getOriginOrder();
+            return order == AUTHOR_NORMAL || order == AUTHOR_IMPORTANT;
+        }
+        else
+            return false; //the hints themselves
+    }
+
+    /**
+     * Obtains the parsed declarations for a declaration string from the cache. The string is parsed
+     * when it is not cached yet.
+     */
+    private static List<Hint> getDeclarations(String css, URL base)
+    {
+        final String key = (base == null ? "" : base.toString()) + '\u0000' + css;
+        List<Hint> ret = parsed.get(key);
+        if (ret == null)
+        {
+            ret = parseDeclarations(css, base);
+            if (parsed.size() >= MAX_CACHED)
+                parsed.clear();
+            parsed.put(key, ret);
+        }
+        return ret;
+    }
+
+    private static List<Hint> parseDeclarations(String css, URL base)
+    {
+        List<Hint> ret = new ArrayList<Hint>();
+        try {
+            StyleSheet sheet = CSSFactory.parseString("* {" + css + "}", base);
+            for (RuleBlock<?> block : sheet.asList())
+            {
+                if (block instanceof RuleSet)
+                {
+                    for (Declaration d : (RuleSet) block)
+                        ret.add(new Hint(d));
+                }
+            }
+        } catch (IOException e) {
+            log.error("I/O Error: "+e.getMessage());
+        } catch (CSSException e) {
+            log.error("CSS Error: "+e.getMessage());
+        }
+        return Collections.unmodifiableList(ret);
+    }
+
+    /**
+     * A parsed declaration together with the names of the properties it defines
+     * (more than one for the shorthand properties).
+     */
+    private static class Hint
+    {
+        public final Declaration decl;
+        public final Collection<String> properties;
+
+        public Hint(Declaration decl)
+        {
+            this.decl = decl;
+            NodeData data = CSSFactory.createNodeData();
+            data.push(decl);
+            this.properties = new ArrayList<String>(data.getPropertyNames());
+        }
+    }
+
+}
@@ -0,0 +1,259 @@
+/*
+ * StyleSharing.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 22:03:41
+ */
+package org.fit.cssbox.css;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+
+import cz.vutbr.web.css.CSSFactory;
+import cz.vutbr.web.css.CombinedSelector;
+import cz.vutbr.web.css.Declaration;
+import cz.vutbr.web.css.NodeData;
+import cz.vutbr.web.css.RuleBlock;
+import cz.vutbr.web.css.RuleMedia;
+import cz.vutbr.web.css.RuleSet;
+import cz.vutbr.web.css.Selector;
+import cz.vutbr.web.css.StyleSheet;
+
+/**
+ * The rules for sharing the computed styles among sibling elements. Two sibling elements
+ * with the same name and the same attributes are guaranteed to obtain the same computed style
+ * unless some selector that may match them depends on the position of the element among
+ * its siblings or on its contents (sibling combinators, structural pseudo-classes such as
+ * <code>:first-child</code> or <code>:nth-of-type()</code>, <code>:empty</code>, etc.)
+ * The style sheets are scanned for such selectors and the element names they may
+ * apply to are excluded from sharing.
+ * <p>
+ * The shared styles are the same {@code NodeData} instances. The boxes must therefore not modify
+ * their styles; a box that needs to add some declarations modifies its own copy obtained using
+ * {@link #copyStyle(NodeData)} instead.
+ */
+public class StyleSharing
+{
+    /** Pseudo-class name fragments that make a selector depend on the element siblings or contents */
+    private static final String[] STRUCTURAL = {"child", "of-type", "empty", "not(", "has("};
+
+    /** Element names (lower case) that may be matched by a position-dependent selector */
+    private Set<String> excluded;
+    /** Set to true when a position-dependent selector may match any element */
+    private boolean excludedAll;
+
+    /**
+     * Creates the sharing rules for the given style sheets.
+     * @param sheets the style sheets used for computing the styles
+     */
+    public StyleSharing(List<StyleSheet> sheets)
+    {
+        excluded = new HashSet<String>();
+        excludedAll = false;
+        for (StyleSheet sheet : sheets)
+        {
+            for (RuleBlock<?> block : sheet.asList())
+            {
+                if (block instanceof RuleSet)
+                    scanRuleSet((RuleSet) block);
+                else if (block instanceof RuleMedia)
+                {
+                    for (RuleSet rule : (RuleMedia) block) //all the media are considered
+                        scanRuleSet(rule);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the style sharing may be used at all with the given style sheets.
+     * @return {@code false} when some position-dependent selector may match any element
+     */
+    public boolean isApplicable()
+    {
+        return !excludedAll;
+    }
+
+    /**
+     * Creates the sharing key of an element. Two sibling elements with the same key are guaranteed
+     * to have the same computed style.
+     * @param el the element
+     * @return the key or {@code null} when the element style must not be shared
+     */
+    public String getKey(Element el)
+    {
+        final String name = el.getTagName().toLowerCase(Locale.ROOT);
+        if (excludedAll || excluded.contains(name))
+            return null;
+        StringBuilder ret = new StringBuilder(name);
+        NamedNodeMap attrs = el.getAttributes();
+        for (int i = 0; i < attrs.getLength(); i++)
+        {
+            Attr attr = (Attr) attrs.item(i);
+            ret.append('\u0000').append(attr.getName()).append('=').append(attr.getValue());
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Creates a copy of a computed style that may be modified without affecting the elements
+     * that share the original style. The copy is created by pushing the source declarations of
+     * the current property values again. A declaration that sets several properties (a shorthand)
+     * is pushed before the declarations that have overridden some of its properties.
+     * @param style the computed style (including the inheritance)
+     * @return the new style with the same property values
+     */
+    public static NodeData copyStyle(NodeData style)
+    {
+        NodeData ret = CSSFactory.createNodeData();
+        ret.inheritFrom(style); //the values of the inherited properties not declared for the element
+        //the source declarations and the properties they provide
+        Map<String, Declaration> owners = new HashMap<String, Declaration>();
+        Map<Declaration, List<Declaration>> following = new LinkedHashMap<Declaration, List<Declaration>>();
+        for (String name : style.getPropertyNames())
+        {
+            final Declaration src = style.getSourceDeclaration(name, false);
+            if (src != null)
+            {
+                owners.put(name, src);
+                if (!following.containsKey(src))
+                    following.put(src, new ArrayList<Declaration>());
+            }
+        }
+        //a declaration must be pushed before the declarations that override some of its properties
+        Map<Declaration, Integer> preceding = new HashMap<Declaration, Integer>();
+        for (Map.Entry<Declaration, List<Declaration>> entry : following.entrySet())
+        {
+            NodeData tmp = CSSFactory.createNodeData();
+            tmp.push(entry.getKey());
+            for (String name : tmp.getPropertyNames())
+            {
+                final Declaration owner = owners.get(name);
+                if (owner != null && !owner.equals(entry.getKey()) && !entry.getValue().contains(owner))
+                {
+                    entry.getValue().add(owner);
+                    final Integer cnt = preceding.get(owner);
+                    preceding.put(owner, (cnt == null) ? 1 : cnt + 1);
+                }
+            }
+        }
+        List<Declaration> remaining = new ArrayList<Declaration>(following.keySet());
+        while (!remaining.isEmpty())
+        {
+            Declaration next = null;
+            for (Declaration d : remaining)
+            {
+                if (preceding.get(d) == null)
+                {
+                    next = d;
+                    break;
+                }
+            }
+            if (next == null)
+                next = remaining.get(0); //a cycle caused by the 'inherit' values, keep the original order
+            remaining.remove(next);
+            ret.push(next);
+            for (Declaration d : following.get(next))
+            {
+                final Integer cnt = preceding.get(d);
+                if (cnt != null)
+                {
+                    if (cnt > 1)
+                        preceding.put(d, cnt - 1);
+                    else
+                        preceding.remove(d);
+                }
+            }
+        }
+        ret.concretize(); //the 'initial' and 'unset' values
+        return ret;
+    }
+    
+    //====================================================================
+
+    private void scanRuleSet(RuleSet rule)
+    {
+        for (CombinedSelector sel : rule.getSelectors())
+        {
+            if (isPositionDependent(sel))
+            {
+                final String name = getSubjectName(sel);
+                if (name == null)
+                    excludedAll = true;
+                else
+                    excluded.add(name);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the selector depends on the position of the subject among its siblings
+     * or its contents. The sibling combinators are considered anywhere in the selector.
+     */
+    private boolean isPositionDependent(CombinedSelector sel)
+    {
+        for (Selector s : sel)
+        {
+            if (s.getCombinator() == Selector.Combinator.ADJACENT
+                    || s.getCombinator() == Selector.Combinator.PRECEDING)
+                return true;
+        }
+        final Selector subject = sel.get(sel.size() - 1);
+        for (Selector.SelectorPart part : subject)
+        {
+            if (part instanceof Selector.PseudoClass)
+            {
+                final String pc = part.toString().toLowerCase(Locale.ROOT);
+                for (String s : STRUCTURAL)
+                {
+                    if (pc.contains(s))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Obtains the element name required by the selector subject.
+     * @return the lower-case element name or {@code null} when the selector may match any element
+     */
+    private String getSubjectName(CombinedSelector sel)
+    {
+        final Selector subject = sel.get(sel.size() - 1);
+        for (Selector.SelectorPart part : subject)
+        {
+            if (part instanceof Selector.ElementName)
+            {
+                final String name = ((Selector.ElementName) part).getName();
+                if (name != null && !name.equals("*"))
+                    return name.toLowerCase(Locale.ROOT);
+            }
+        }
+        return null;
+    }
+
+}
@@ -26,7 +26,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
 
-import org.fit.cssbox.css.CSSNorm;
 import org.fit.cssbox.css.CSSUnits;
 import org.fit.cssbox.css.DOMAnalyzer;
 import org.fit.cssbox.io.DOMSource;
@@ -157,9 +156,7 @@ public class BoxBrowser
             da.setDefaultEncoding(encoding);
             da.setMediaSpec(media);
             da.attributesToStyles();
-            da.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT);
-            da.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT);
-            da.addStyleSheet(null, CSSNorm.formsStyleSheet(), DOMAnalyzer.Origin.AGENT);
+            da.addAgentStyleSheets(); //use the standard agent style sheets including the form fields
             da.getStyleSheets();
             
             contentCanvas = new BrowserCanvas(da.getRoot(), da, docSource.getURL());
@@ -65,8 +65,8 @@ public class ComputeStyles
             //Create the CSS analyzer
             DOMAnalyzer da = new DOMAnalyzer(doc, docSource.getURL());
             da.attributesToStyles(); //convert the HTML presentation attributes to inline styles
-            da.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the standard style sheet
-            da.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the additional style sheet
+            da.addStyleSheet(CSSNorm.parsedStdStyleSheet()); //use the standard style sheet
+            da.addStyleSheet(CSSNorm.parsedUserStyleSheet()); //use the additional style sheet
             da.getStyleSheets(); //load the author style sheets
             
             //Compute the styles
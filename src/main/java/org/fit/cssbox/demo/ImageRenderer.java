@@ -23,22 +23,22 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 
-import javax.imageio.ImageIO;
-
-import org.fit.cssbox.css.CSSNorm;
 import org.fit.cssbox.css.DOMAnalyzer;
 import org.fit.cssbox.io.DOMSource;
 import org.fit.cssbox.io.DefaultDOMSource;
 import org.fit.cssbox.io.DefaultDocumentSource;
 import org.fit.cssbox.io.DocumentSource;
-import org.fit.cssbox.layout.BrowserCanvas;
 import org.fit.cssbox.layout.BrowserConfig;
+import org.fit.cssbox.layout.LayoutEngine;
 import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.render.PNGEncoder;
 import org.fit.cssbox.render.SVGRenderer;
+import org.fit.cssbox.render.TiledRenderer;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -114,29 +114,28 @@ public class ImageRenderer
         //Create the CSS analyzer
         DOMAnalyzer da = new DOMAnalyzer(doc, docSource.getURL());
         da.setMediaSpec(media);
+        da.setLazyStyles(true); //compute the styles while creating the boxes
         da.attributesToStyles(); //convert the HTML presentation attributes to inline styles
-        da.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the standard style sheet
-        da.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the additional style sheet
-        da.addStyleSheet(null, CSSNorm.formsStyleSheet(), DOMAnalyzer.Origin.AGENT); //render form fields using css
+        da.addAgentStyleSheets(); //use the standard agent style sheets including the form fields
         da.getStyleSheets(); //load the author style sheets
         
-        BrowserCanvas contentCanvas = new BrowserCanvas(da.getRoot(), da, docSource.getURL());
-        contentCanvas.setAutoMediaUpdate(false); //we have a correct media specification, do not update
-        contentCanvas.getConfig().setClipViewport(cropWindow);
-        contentCanvas.getConfig().setLoadImages(loadImages);
-        contentCanvas.getConfig().setLoadBackgroundImages(loadBackgroundImages);
+        LayoutEngine engine = new LayoutEngine(da.getRoot(), da, docSource.getURL());
+        engine.setAutoMediaUpdate(false); //we have a correct media specification, do not update
+        engine.getConfig().setClipViewport(cropWindow);
+        engine.getConfig().setLoadImages(loadImages);
+        engine.getConfig().setLoadBackgroundImages(loadBackgroundImages);
 
         if (type == Type.PNG)
         {
-            contentCanvas.createLayout(windowSize);
-            ImageIO.write(contentCanvas.getImage(), "png", out);
+            engine.createLayout(windowSize);
+            writePNG(engine.getViewport(), out);
         }
         else if (type == Type.SVG)
         {
-            setDefaultFonts(contentCanvas.getConfig());
-            contentCanvas.createLayout(windowSize);
+            setDefaultFonts(engine.getConfig());
+            engine.createLayout(windowSize);
             Writer w = new OutputStreamWriter(out, "utf-8");
-            writeSVG(contentCanvas.getViewport(), w);
+            writeSVG(engine.getViewport(), w);
             w.close();
         }
         
@@ -155,6 +154,29 @@ public class ImageRenderer
         config.setDefaultFont(Font.MONOSPACED, "Courier New");
     }
     
+    /**
+     * Renders the viewport in tiles and encodes the tiles to a PNG image while they are being painted.
+     * @param vp the viewport to be rendered
+     * @param out the output stream
+     * @throws IOException
+     */
+    protected void writePNG(Viewport vp, OutputStream out) throws IOException
+    {
+        TiledRenderer render = new TiledRenderer(vp);
+        PNGEncoder encoder = new PNGEncoder(out, render.getPageWidth(), render.getPageHeight());
+        try
+        {
+            render.render(encoder);
+            encoder.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering the image");
+        } finally {
+            encoder.close();
+            render.close();
+        }
+    }
+    
     /**
      * Renders the viewport using an SVGRenderer to the given output writer.
      * @param vp
@@ -23,7 +23,6 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.net.URL;
 
-import org.fit.cssbox.css.CSSNorm;
 import org.fit.cssbox.css.DOMAnalyzer;
 import org.fit.cssbox.io.DOMSource;
 import org.fit.cssbox.io.DefaultDOMSource;
@@ -138,9 +137,7 @@ public class SimpleBrowser extends javax.swing.JFrame
             //Create the CSS analyzer
             DOMAnalyzer da = new DOMAnalyzer(doc, docSource.getURL());
             da.attributesToStyles(); //convert the HTML presentation attributes to inline styles
-            da.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the standard style sheet
-            da.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the additional style sheet
-            da.addStyleSheet(null, CSSNorm.formsStyleSheet(), DOMAnalyzer.Origin.AGENT); //render form fields using css
+            da.addAgentStyleSheets(); //use the standard agent style sheets including the form fields
             da.getStyleSheets(); //load the author style sheets
             
             //Display the result
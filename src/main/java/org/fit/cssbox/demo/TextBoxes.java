@@ -26,8 +26,8 @@ import org.fit.cssbox.io.DefaultDOMSource;
 import org.fit.cssbox.io.DefaultDocumentSource;
 import org.fit.cssbox.io.DocumentSource;
 import org.fit.cssbox.layout.Box;
-import org.fit.cssbox.layout.BrowserCanvas;
 import org.fit.cssbox.layout.ElementBox;
+import org.fit.cssbox.layout.LayoutEngine;
 import org.fit.cssbox.layout.TextBox;
 import org.w3c.dom.Document;
 
@@ -83,12 +83,12 @@ public class TextBoxes
             //Create the CSS analyzer
             DOMAnalyzer da = new DOMAnalyzer(doc, docSource.getURL());
             da.attributesToStyles(); //convert the HTML presentation attributes to inline styles
-            da.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the standard style sheet
-            da.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the additional style sheet
+            da.addStyleSheet(CSSNorm.parsedStdStyleSheet()); //use the standard style sheet
+            da.addStyleSheet(CSSNorm.parsedUserStyleSheet()); //use the additional style sheet
             da.getStyleSheets(); //load the author style sheets
             
-            //Create the browser canvas
-            BrowserCanvas browser = new BrowserCanvas(da.getRoot(), da, docSource.getURL());
+            //Create the layout engine (no page image is needed)
+            LayoutEngine browser = new LayoutEngine(da.getRoot(), da, docSource.getURL());
             //Disable the image loading
             browser.getConfig().setLoadImages(false);
             browser.getConfig().setLoadBackgroundImages(false);
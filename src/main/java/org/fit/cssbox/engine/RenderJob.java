@@ -0,0 +1,118 @@
+/*
+ * RenderJob.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 14:21:08
+ */
+package org.fit.cssbox.engine;
+
+import java.awt.Dimension;
+
+/**
+ * A specification of a single document to be rendered by the {@link RenderingEngine}.
+ */
+public class RenderJob
+{
+    public enum Type { PNG, SVG }
+
+    private String url;
+    private Type type;
+    private String mediaType;
+    private Dimension windowSize;
+    private boolean cropWindow;
+
+    /**
+     * Creates a new job for rendering a document with the default window size (1200x600)
+     * and the "screen" media type.
+     * @param url the document URL. When no protocol is specified, http is assumed.
+     * @param type the output type
+     */
+    public RenderJob(String url, Type type)
+    {
+        this.url = url;
+        this.type = type;
+        this.mediaType = "screen";
+        this.windowSize = new Dimension(1200, 600);
+        this.cropWindow = false;
+    }
+
+    /**
+     * Obtains the URL of the rendered document.
+     * @return the URL string
+     */
+    public String getUrl()
+    {
+        return url;
+    }
+
+    /**
+     * Obtains the URL of the rendered document with a protocol added when missing.
+     * @return the URL string
+     */
+    public String getNormalizedUrl()
+    {
+        if (!url.startsWith("http:") &&
+            !url.startsWith("https:") &&
+            !url.startsWith("ftp:") &&
+            !url.startsWith("file:"))
+                return "http://" + url;
+        else
+            return url;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public String getMediaType()
+    {
+        return mediaType;
+    }
+
+    public void setMediaType(String mediaType)
+    {
+        this.mediaType = mediaType;
+    }
+
+    public Dimension getWindowSize()
+    {
+        return windowSize;
+    }
+
+    public boolean getCropWindow()
+    {
+        return cropWindow;
+    }
+
+    /**
+     * Sets the browser window size used for the layout.
+     * @param size the window size
+     * @param crop when {@code true}, the output is cropped to the window size
+     */
+    public void setWindowSize(Dimension size, boolean crop)
+    {
+        windowSize = new Dimension(size);
+        cropWindow = crop;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RenderJob[" + url + " " + type + " " + windowSize.width + "x" + windowSize.height + "]";
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * RenderResult.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 14:23:40
+ */
+package org.fit.cssbox.engine;
+
+import java.awt.Dimension;
+
+/**
+ * The result of a single {@link RenderJob}. It contains the encoded output (PNG or SVG data)
+ * or the error that occured during the rendering, and the time spent in the individual
+ * rendering stages.
+ */
+public class RenderResult
+{
+    /** The rendering stages */
+    public enum Stage
+    {
+        /** Obtaining the document and parsing the DOM */
+        LOAD,
+        /** Loading the style sheets and computing the element styles */
+        STYLE,
+        /** Creating the box tree */
+        BOXES,
+        /** Computing the layout and the absolute positions */
+        LAYOUT,
+        /** Drawing the boxes */
+        PAINT,
+        /** Encoding the output */
+        ENCODE
+    }
+
+    private RenderJob job;
+    private byte[] data;
+    private Dimension pageSize;
+    private Throwable error;
+    private long[] times;
+
+    public RenderResult(RenderJob job)
+    {
+        this.job = job;
+        this.times = new long[Stage.values().length];
+    }
+
+    /**
+     * Obtains the job that produced this result.
+     * @return the job
+     */
+    public RenderJob getJob()
+    {
+        return job;
+    }
+
+    /**
+     * Checks whether the rendering has been completed successfully.
+     * @return {@code true} when the output data is available
+     */
+    public boolean isSuccess()
+    {
+        return error == null && data != null;
+    }
+
+    /**
+     * Obtains the encoded output.
+     * @return the PNG or SVG data depending on the job type or {@code null} when the rendering failed
+     */
+    public byte[] getData()
+    {
+        return data;
+    }
+
+    public void setData(byte[] data)
+    {
+        this.data = data;
+    }
+
+    /**
+     * Obtains the size of the rendered page.
+     * @return the page size or {@code null} when the layout has not been computed
+     */
+    public Dimension getPageSize()
+    {
+        return pageSize;
+    }
+
+    public void setPageSize(Dimension pageSize)
+    {
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Obtains the error that caused the rendering to fail.
+     * @return the error or {@code null} when no error occured
+     */
+    public Throwable getError()
+    {
+        return error;
+    }
+
+    public void setError(Throwable error)
+    {
+        this.error = error;
+    }
+
+    /**
+     * Obtains the time spent in the given stage.
+     * @param stage the rendering stage
+     * @return the time in nanoseconds
+     */
+    public long getTime(Stage stage)
+    {
+        return times[stage.ordinal()];
+    }
+
+    /**
+     * Adds time spent in the given stage.
+     * @param stage the rendering stage
+     * @param nanos the time in nanoseconds
+     */
+    public void addTime(Stage stage, long nanos)
+    {
+        times[stage.ordinal()] += nanos;
+    }
+
+    /**
+     * Obtains the total time spent in all the stages.
+     * @return the time in nanoseconds
+     */
+    public long getTotalTime()
+    {
+        long ret = 0;
+        for (long t : times)
+            ret += t;
+        return ret;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder ret = new StringBuilder("RenderResult[");
+        ret.append(job.getUrl());
+        if (isSuccess())
+            ret.append(" ").append(data.length).append(" bytes");
+        else
+            ret.append(" failed: ").append(error);
+        for (Stage stage : Stage.values())
+            ret.append(" ").append(stage.name().toLowerCase()).append("=").append(getTime(stage) / 1000000).append("ms");
+        ret.append("]");
+        return ret.toString();
+    }
+
+}
@@ -0,0 +1,384 @@
+/*
+ * RenderingEngine.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 14:30:12
+ */
+package org.fit.cssbox.engine;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.fit.cssbox.engine.RenderResult.Stage;
+import org.fit.cssbox.io.DOMSource;
+import org.fit.cssbox.io.DocumentSource;
+import org.fit.cssbox.layout.BrowserConfig;
+import org.fit.cssbox.layout.ImageCache;
+import org.fit.cssbox.layout.LRUImageCache;
+import org.fit.cssbox.layout.LayoutEngine;
+import org.fit.cssbox.layout.ResourceLoader;
+import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.render.PNGEncoder;
+import org.fit.cssbox.render.SVGRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+
+import cz.vutbr.web.css.MediaSpec;
+
+/**
+ * A headless rendering engine that renders multiple documents in parallel using a pool of worker
+ * threads. Each document is processed by the complete pipeline (loading and parsing, style computation,
+ * box tree creation, layout, painting and encoding) using a {@link LayoutEngine}, i.e. without using
+ * any AWT components. The jobs share the image cache of the engine, the process-wide font registry
+ * and the pre-parsed user agent style sheets. The images, style sheets and fonts referenced by each
+ * document are prefetched concurrently by a {@link ResourceLoader} that uses a fetching pool shared by
+ * all the jobs.
+ * <p>
+ * The engine should be closed using {@link #close()} when it is not used anymore in order
+ * to stop the worker threads.
+ */
+public class RenderingEngine implements Closeable
+{
+    private static Logger log = LoggerFactory.getLogger(RenderingEngine.class);
+
+    private static final AtomicInteger engineCount = new AtomicInteger();
+
+    /** The number of threads used for fetching the document resources */
+    public static final int FETCH_THREADS = 16;
+
+    private final ExecutorService executor;
+    private final ExecutorService fetchExecutor;
+    private final int threadCount;
+
+    private ImageCache imageCache;
+    private boolean loadImages = true;
+    private boolean loadBackgroundImages = true;
+
+    /**
+     * Creates an engine that uses one worker thread for each available processor.
+     */
+    public RenderingEngine()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine with the given number of worker threads.
+     * @param threads the number of worker threads
+     */
+    public RenderingEngine(int threads)
+    {
+        if (threads <= 0)
+            throw new IllegalArgumentException("The number of threads must be positive");
+        threadCount = threads;
+        imageCache = new LRUImageCache();
+        final int engineNo = engineCount.incrementAndGet();
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger threadNo = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "cssbox-render-" + engineNo + "-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        fetchExecutor = Executors.newFixedThreadPool(FETCH_THREADS, new ThreadFactory() {
+            private final AtomicInteger threadNo = new AtomicInteger();
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "cssbox-fetch-" + engineNo + "-" + threadNo.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Obtains the number of worker threads.
+     * @return the thread count
+     */
+    public int getThreadCount()
+    {
+        return threadCount;
+    }
+
+    /**
+     * Obtains the image cache shared by all the jobs.
+     * @return the image cache or {@code null} when the images are not cached
+     */
+    public ImageCache getImageCache()
+    {
+        return imageCache;
+    }
+
+    /**
+     * Sets the image cache shared by all the jobs. By default, a {@link LRUImageCache} with the default
+     * memory budget is used. The cache must be thread-safe.
+     * @param imageCache the new image cache or {@code null} for no caching
+     */
+    public void setImageCache(ImageCache imageCache)
+    {
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * Configures the image loading for all the jobs.
+     * @param content load the content images
+     * @param background load the background images
+     */
+    public void setLoadImages(boolean content, boolean background)
+    {
+        loadImages = content;
+        loadBackgroundImages = background;
+    }
+
+    //=====================================================================================
+
+    /**
+     * Submits a job for rendering by the worker threads.
+     * @param job the job to be rendered
+     * @return the future result of the job. The future never fails with an exception; the rendering
+     * errors are reported using {@link RenderResult#getError()}.
+     */
+    public Future<RenderResult> submit(final RenderJob job)
+    {
+        return executor.submit(new Callable<RenderResult>() {
+            @Override
+            public RenderResult call()
+            {
+                return render(job);
+            }
+        });
+    }
+
+    /**
+     * Renders all the jobs using the worker threads and waits for the results.
+     * @param jobs the jobs to be rendered
+     * @return the list of results in the order of the jobs
+     * @throws InterruptedException when the current thread is interrupted while waiting for the results
+     */
+    public List<RenderResult> renderAll(Collection<RenderJob> jobs) throws InterruptedException
+    {
+        List<Future<RenderResult>> futures = new ArrayList<Future<RenderResult>>(jobs.size());
+        for (RenderJob job : jobs)
+            futures.add(submit(job));
+        List<RenderResult> ret = new ArrayList<RenderResult>(jobs.size());
+        for (Future<RenderResult> future : futures)
+        {
+            try
+            {
+                ret.add(future.get());
+            } catch (ExecutionException e) {
+                //should not happen, render() does not throw exceptions
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Renders a single job in the current thread.
+     * @param job the job to be rendered
+     * @return the rendering result
+     */
+    public RenderResult render(RenderJob job)
+    {
+        RenderResult result = new RenderResult(job);
+        try
+        {
+            renderJob(job, result);
+        } catch (Exception e) {
+            log.warn("Rendering of {} failed: {}", job.getUrl(), e.getMessage());
+            result.setError(e);
+        } catch (OutOfMemoryError e) {
+            log.error("Rendering of {} failed: out of memory", job.getUrl());
+            result.setError(e);
+        }
+        return result;
+    }
+
+    /**
+     * Stops the worker threads. The running jobs are completed, the remaining submitted jobs are
+     * rendered before the threads stop.
+     */
+    @Override
+    public void close()
+    {
+        executor.shutdown();
+        fetchExecutor.shutdown();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Creates the browser configuration for a job.
+     * @param job the job
+     * @return the new configuration
+     */
+    protected BrowserConfig createConfig(RenderJob job)
+    {
+        BrowserConfig config = new BrowserConfig();
+        config.setImageCache(imageCache);
+        config.setLoadImages(loadImages);
+        config.setLoadBackgroundImages(loadBackgroundImages);
+        config.setClipViewport(job.getCropWindow());
+        //the raster output does not need the full resolution of the images; SVG embeds them
+        config.setImageDownsampling(job.getType() == RenderJob.Type.PNG);
+        if (job.getType() == RenderJob.Type.SVG)
+            setDefaultFonts(config);
+        return config;
+    }
+
+    /**
+     * Sets some common fonts as the defaults for generic font families.
+     */
+    protected void setDefaultFonts(BrowserConfig config)
+    {
+        config.setDefaultFont(Font.SERIF, "Times New Roman");
+        config.setDefaultFont(Font.SANS_SERIF, "Arial");
+        config.setDefaultFont(Font.MONOSPACED, "Courier New");
+    }
+
+    /**
+     * Runs the complete rendering pipeline for a job.
+     */
+    protected void renderJob(RenderJob job, RenderResult result) throws Exception
+    {
+        final BrowserConfig config = createConfig(job);
+        final ResourceLoader loader = new ResourceLoader(config, fetchExecutor, ResourceLoader.DEFAULT_HOST_CONNECTIONS);
+        config.setResourceLoader(loader);
+        try
+        {
+            renderDocument(job, config, result);
+        } finally {
+            loader.close(); //cancel the unused prefetched resources
+        }
+    }
+
+    /**
+     * Loads and renders the document of a job using the given configuration.
+     */
+    protected void renderDocument(RenderJob job, BrowserConfig config, RenderResult result) throws Exception
+    {
+        final ResourceLoader loader = config.getResourceLoader();
+        final Dimension dim = job.getWindowSize();
+
+        //load and parse the document
+        long t = System.nanoTime();
+        DocumentSource docSource = config.createDocumentSource(new URL(job.getNormalizedUrl()));
+        if (docSource == null)
+            throw new IOException("Couldn't obtain the document source for " + job.getUrl());
+        Document doc;
+        URL baseurl;
+        try
+        {
+            DOMSource parser = config.createDOMSource(docSource);
+            doc = parser.parse();
+            baseurl = docSource.getURL();
+        } finally {
+            docSource.close();
+        }
+        result.addTime(Stage.LOAD, System.nanoTime() - t);
+
+        //load the style sheets and compute the styles
+        t = System.nanoTime();
+        MediaSpec media = new MediaSpec(job.getMediaType());
+        media.setDimensions(dim.width, dim.height);
+        media.setDeviceDimensions(dim.width, dim.height);
+        DOMAnalyzer da = new DOMAnalyzer(doc, baseurl);
+        da.setMediaSpec(media);
+        da.setStyleSharing(true); //share the computed styles among equal siblings
+        da.setLazyStyles(true); //compute the styles while creating the boxes
+        if (loader != null)
+            loader.prefetchDocument(da.getRoot(), baseurl, media); //start fetching the images and style sheets
+        da.attributesToHints(); //apply the HTML presentation attributes directly to the styles
+        da.addAgentStyleSheets(); //use the standard agent style sheets including the form fields
+        if (loader != null)
+        {
+            da.getStyleSheets(media, loader); //load the author style sheets
+            loader.prefetchFonts(da.getFontTable());
+        }
+        else
+            da.getStyleSheets(); //load the author style sheets
+        result.addTime(Stage.STYLE, System.nanoTime() - t);
+
+        //create the box tree
+        t = System.nanoTime();
+        LayoutEngine engine = new LayoutEngine(da.getRoot(), da, baseurl);
+        engine.setConfig(config);
+        engine.setAutoMediaUpdate(false); //we have a correct media specification
+        Viewport viewport = engine.createBoxTree(dim, new Rectangle(dim));
+        result.addTime(Stage.BOXES, System.nanoTime() - t);
+
+        //compute the layout
+        t = System.nanoTime();
+        engine.computeLayout(dim);
+        result.setPageSize(new Dimension(viewport.getWidth(), viewport.getHeight()));
+        result.addTime(Stage.LAYOUT, System.nanoTime() - t);
+
+        //paint and encode
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (job.getType() == RenderJob.Type.PNG)
+        {
+            t = System.nanoTime();
+            BufferedImage img = engine.renderImage();
+            result.addTime(Stage.PAINT, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            new PNGEncoder(out, img.getWidth(), img.getHeight(), null).writeImage(img); //the jobs already run in parallel
+            result.addTime(Stage.ENCODE, System.nanoTime() - t);
+        }
+        else
+        {
+            //the SVG output is encoded while painting
+            t = System.nanoTime();
+            Writer w = new OutputStreamWriter(out, "utf-8");
+            Rectangle cb = viewport.getClippedContentBounds();
+            SVGRenderer r = new SVGRenderer(cb.width, cb.height, w);
+            viewport.draw(r);
+            r.close();
+            result.addTime(Stage.PAINT, System.nanoTime() - t);
+
+            t = System.nanoTime();
+            w.close();
+            result.addTime(Stage.ENCODE, System.nanoTime() - t);
+        }
+        result.setData(out.toByteArray());
+    }
+
+}
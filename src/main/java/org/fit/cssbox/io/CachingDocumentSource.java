@@ -0,0 +1,255 @@
+/*
+ * CachingDocumentSource.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 19:52:14
+ */
+package org.fit.cssbox.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+
+import org.fit.net.DataURLHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A document source that uses a shared disk-backed {@link HTTPCache} for the HTTP(S) URLs. The fresh
+ * cached responses are served without contacting the server, the stale ones are revalidated
+ * using a conditional request. The cacheable responses obtained from the server are stored
+ * in the cache. The other URLs (e.g. {@code file:} or {@code data:} ones) are processed in the same way
+ * as by {@link DefaultDocumentSource}.
+ * <p>
+ * The cache must be configured using {@link #setCache(HTTPCache)} before the document source
+ * is used; the document source may be then registered using
+ * {@link org.fit.cssbox.layout.BrowserConfig#registerDocumentSource(Class)}. When no cache
+ * is configured, the document source does not cache anything. When the response cannot be stored
+ * or the cached body cannot be read, the resource is requested again without using the cache.
+ */
+public class CachingDocumentSource extends DocumentSource
+{
+    private static Logger log = LoggerFactory.getLogger(CachingDocumentSource.class);
+
+    private static HTTPCache cache;
+
+    private URL url;
+    private URLConnection con;
+    private HTTPCache.Entry entry;
+    private boolean opened;
+    private InputStream is;
+
+    /**
+     * Creates a network data source based on the target document URL.
+     * @param url the document URL
+     * @throws IOException
+     */
+    public CachingDocumentSource(URL url) throws IOException
+    {
+        super(url);
+        this.url = url;
+    }
+
+    /**
+     * Creates a data source based on the URL string. The data: urls are automatically
+     * recognized and  processed.
+     * @param urlstring The URL string
+     * @throws IOException
+     */
+    public CachingDocumentSource(String urlstring) throws IOException
+    {
+        super(null, urlstring);
+        this.url = DataURLHandler.createURL(null, urlstring);
+    }
+
+    /**
+     * Creates a data source based on the URL string. The data: urls are automatically
+     * recognized and  processed.
+     * @param base The base URL to be used for the relative URLs in the urlstring
+     * @param urlstring The URL string
+     * @throws IOException
+     */
+    public CachingDocumentSource(URL base, String urlstring) throws IOException
+    {
+        super(base, urlstring);
+        this.url = DataURLHandler.createURL(base, urlstring);
+    }
+
+    /**
+     * Obtains the cache used by all the caching document sources.
+     * @return the cache or {@code null} when no cache is configured
+     */
+    public static HTTPCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Sets the cache used by all the caching document sources.
+     * @param cache the cache to be used or {@code null} for no caching
+     */
+    public static void setCache(HTTPCache cache)
+    {
+        CachingDocumentSource.cache = cache;
+    }
+
+    @Override
+    public URL getURL()
+    {
+        try
+        {
+            open();
+        } catch (IOException e) {
+            return url; //the errors are reported when reading the document
+        }
+        if (entry != null)
+            return entry.getFinalURL();
+        else
+            return con.getURL();
+    }
+
+    @Override
+    public String getContentType()
+    {
+        try
+        {
+            open();
+        } catch (IOException e) {
+            return null;
+        }
+        if (entry != null)
+            return entry.getContentType();
+        else
+            return con.getHeaderField("Content-Type");
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        if (is == null)
+        {
+            open();
+            if (entry != null)
+            {
+                try
+                {
+                    is = cache.openBody(entry);
+                } catch (IOException e) {
+                    //the body may have been evicted meanwhile
+                    log.debug("Couldn't read the cached body of {}: {}", url, e.getMessage());
+                    entry = null;
+                    con = createConnection(url);
+                }
+            }
+            if (is == null)
+                is = con.getInputStream();
+        }
+        return is;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (is != null)
+            is.close();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Creates and configures the URL connection.
+     * @param url the target URL
+     * @return the created connection instance
+     * @throws IOException
+     */
+    protected URLConnection createConnection(URL url) throws IOException
+    {
+        URLConnection con = url.openConnection();
+        con.setRequestProperty("User-Agent", DefaultDocumentSource.getUserAgent());
+        return con;
+    }
+
+    /**
+     * Finds the cached response or sends the request. When a response is available in the cache,
+     * {@code entry} is set; otherwise, {@code con} is the connection used for reading the response.
+     */
+    private void open() throws IOException
+    {
+        if (!opened)
+        {
+            opened = true;
+            final HTTPCache c = cache;
+            final String protocol = url.getProtocol();
+            if (c == null || !(protocol.equals("http") || protocol.equals("https")))
+            {
+                con = createConnection(url);
+                return;
+            }
+
+            HTTPCache.Entry cached = c.get(url);
+            if (cached != null && c.isFresh(cached))
+            {
+                c.recordHit();
+                entry = cached;
+                return;
+            }
+
+            con = createConnection(url);
+            if (cached != null)
+            {
+                //conditional request
+                if (cached.getETag() != null)
+                    con.setRequestProperty("If-None-Match", cached.getETag());
+                if (cached.getLastModified() != 0)
+                    con.setIfModifiedSince(cached.getLastModified());
+            }
+            if (con instanceof HttpURLConnection)
+            {
+                HttpURLConnection hcon = (HttpURLConnection) con;
+                if (cached != null && hcon.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED)
+                {
+                    c.recordRevalidation();
+                    c.revalidated(cached, hcon);
+                    entry = cached;
+                    hcon.disconnect();
+                    con = null;
+                }
+                else
+                {
+                    c.recordMiss();
+                    if (c.isCacheable(hcon))
+                    {
+                        InputStream body = hcon.getInputStream();
+                        try
+                        {
+                            entry = c.store(url, hcon, body);
+                            con = null;
+                        } catch (IOException e) {
+                            //the body has been (partially) consumed, request it again without caching
+                            log.warn("Couldn't store {} to the cache: {}", url, e.getMessage());
+                            con = createConnection(url);
+                        } finally {
+                            body.close();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}
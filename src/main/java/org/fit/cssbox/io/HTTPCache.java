@@ -0,0 +1,827 @@
+/*
+ * HTTPCache.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 19:20:37
+ */
+package org.fit.cssbox.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A disk-backed cache of HTTP responses used by {@link CachingDocumentSource}. The response bodies
+ * are stored in files named by the SHA-256 hash of their contents so that identical resources
+ * obtained from different URLs are stored only once. The response metadata is kept in an in-memory
+ * index that is persisted in an append-only journal file and restored when the cache is reopened.
+ * <p>
+ * The freshness of the cached responses is determined from the {@code Cache-Control} ({@code max-age},
+ * {@code no-cache}, {@code no-store}), {@code Expires} and {@code Last-Modified} headers. The stale
+ * responses are revalidated using the {@code ETag} and {@code Last-Modified} validators. A {@code 304 Not Modified}
+ * response updates only the headers it contains; the stored directives remain valid otherwise. The cached bodies
+ * are read using memory-mapped files.
+ * <p>
+ * The total size of the stored bodies is limited. When the limit is exceeded, the least recently used
+ * entries are removed. The bodies that are not used by any entry anymore (e.g. replaced by a newer
+ * version of the resource) are deleted and the journal is compacted when it contains too many
+ * superseded records.
+ */
+public class HTTPCache
+{
+    private static Logger log = LoggerFactory.getLogger(HTTPCache.class);
+
+    private static final String JOURNAL = "index.txt";
+    /** The fraction of the Last-Modified age used as the heuristic freshness lifetime */
+    private static final double HEURISTIC_FRACTION = 0.1;
+    /** The default limit of the total size of the stored bodies in bytes */
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    /** The fraction of the size limit the cache is reduced to when the limit is exceeded */
+    private static final double EVICT_FRACTION = 0.9;
+    /** Minimal number of the journal records before the journal is compacted */
+    static final int COMPACT_MIN_RECORDS = 256;
+
+    private final File directory;
+    private final long maxSize;
+    private final ConcurrentMap<String, Entry> index;
+    private final Map<String, Integer> bodyRefs; //the number of entries using each body file
+    private long storedSize; //the total size of the body files
+    private int journalRecords; //the number of records in the journal file
+    private final AtomicLong clock = new AtomicLong(); //the access counter for the LRU eviction
+    private Writer journal;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+
+    /**
+     * Opens a cache in the given directory with the default size limit ({@link #DEFAULT_MAX_SIZE}).
+     * The directory is created when it does not exist; the existing cache contents are reused.
+     * @param directory the cache directory
+     * @throws IOException when the directory or the journal cannot be created
+     */
+    public HTTPCache(File directory) throws IOException
+    {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Opens a cache in the given directory. The directory is created when it does not exist;
+     * the existing cache contents are reused.
+     * @param directory the cache directory
+     * @param maxSize the maximal total size of the stored bodies in bytes
+     * @throws IOException when the directory or the journal cannot be created
+     */
+    public HTTPCache(File directory, long maxSize) throws IOException
+    {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Couldn't create the cache directory " + directory);
+        index = new ConcurrentHashMap<String, Entry>();
+        bodyRefs = new HashMap<String, Integer>();
+        File jfile = new File(directory, JOURNAL);
+        if (jfile.exists())
+            readJournal(jfile);
+        deleteUnusedFiles();
+        journal = new OutputStreamWriter(new FileOutputStream(jfile, true), "UTF-8");
+        synchronized (this)
+        {
+            if (storedSize > maxSize)
+                evict(null);
+            else if (journalRecords > index.size())
+                compact();
+        }
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Obtains the maximal total size of the stored bodies.
+     * @return the size limit in bytes
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Obtains the current total size of the stored bodies.
+     * @return the size in bytes
+     */
+    public synchronized long getStoredSize()
+    {
+        return storedSize;
+    }
+
+    /**
+     * Obtains the number of entries in the cache index.
+     * @return the number of cached URLs
+     */
+    public int size()
+    {
+        return index.size();
+    }
+
+    /**
+     * Obtains the number of requests served from the cache without contacting the server.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Obtains the number of requests served from the cache after a successful revalidation
+     * ({@code 304 Not Modified} response).
+     */
+    public long getRevalidationCount()
+    {
+        return revalidations.get();
+    }
+
+    /**
+     * Obtains the number of requests that had to be downloaded from the server.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Obtains the number of responses stored to the cache.
+     */
+    public long getStoreCount()
+    {
+        return stores.get();
+    }
+
+    /**
+     * Obtains the ratio of the requests that have been served from the cache (including the revalidated ones).
+     * @return the hit rate (0.0 - 1.0) or 0.0 when there have been no requests yet
+     */
+    public double getHitRate()
+    {
+        final long served = hits.get() + revalidations.get();
+        final long total = served + misses.get();
+        return total == 0 ? 0.0 : (double) served / total;
+    }
+
+    /**
+     * Resets the hit and miss counters.
+     */
+    public void resetStatistics()
+    {
+        hits.set(0);
+        revalidations.set(0);
+        misses.set(0);
+        stores.set(0);
+    }
+
+    /**
+     * Removes all the entries and the stored bodies from the cache.
+     * @throws IOException when the journal cannot be recreated
+     */
+    public synchronized void clear() throws IOException
+    {
+        index.clear();
+        bodyRefs.clear();
+        storedSize = 0;
+        journalRecords = 0;
+        journal.close();
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+                f.delete();
+        }
+        journal = new OutputStreamWriter(new FileOutputStream(new File(directory, JOURNAL), true), "UTF-8");
+    }
+
+    /**
+     * Closes the journal file. The cache cannot be modified after closing.
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException
+    {
+        journal.close();
+    }
+
+    /**
+     * Rewrites the journal so that it contains a single record for each cached entry.
+     * This is done automatically when the journal contains too many superseded records.
+     * @throws IOException when the journal cannot be rewritten
+     */
+    public synchronized void compact() throws IOException
+    {
+        File jfile = new File(directory, JOURNAL);
+        File tmp = new File(directory, JOURNAL + ".tmp");
+        Writer out = new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8");
+        try
+        {
+            for (Entry entry : index.values())
+            {
+                out.write(entry.toJournalLine());
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+        journal.close();
+        if (!tmp.renameTo(jfile) && !(jfile.delete() && tmp.renameTo(jfile)))
+            log.warn("Couldn't replace the cache journal {}", jfile);
+        else
+            journalRecords = index.size();
+        journal = new OutputStreamWriter(new FileOutputStream(jfile, true), "UTF-8");
+    }
+
+    //=====================================================================================
+
+    /**
+     * Finds a cached response for the given URL.
+     * @param url the requested URL
+     * @return the cache entry or {@code null} when the URL is not cached
+     */
+    public Entry get(URL url)
+    {
+        Entry entry = index.get(url.toString());
+        if (entry != null && !entry.getBodyFile().exists())
+        {
+            removeEntry(entry); //the body has been removed
+            entry = null;
+        }
+        if (entry != null)
+            entry.access = clock.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Checks whether the given entry may be used without revalidation.
+     * @param entry the cache entry
+     * @return {@code true} when the entry is fresh
+     */
+    public boolean isFresh(Entry entry)
+    {
+        return !entry.noCache && System.currentTimeMillis() < entry.expires;
+    }
+
+    /**
+     * Checks whether a response may be stored in the cache.
+     * @param con the connection with a received response
+     * @return {@code true} when the response may be stored
+     * @throws IOException
+     */
+    public boolean isCacheable(HttpURLConnection con) throws IOException
+    {
+        if (con.getResponseCode() != HttpURLConnection.HTTP_OK)
+            return false;
+        if (con.getContentLengthLong() > maxSize)
+            return false;
+        final String cc = con.getHeaderField("Cache-Control");
+        return cc == null || !hasDirective(cc, "no-store");
+    }
+
+    /**
+     * Stores the response body read from the input stream and the response metadata.
+     * The least recently used entries are removed when the size limit is exceeded.
+     * @param url the requested URL
+     * @param con the connection with the received response
+     * @param body the response body stream
+     * @return the new cache entry
+     * @throws IOException when the body cannot be read or stored
+     */
+    public Entry store(URL url, HttpURLConnection con, InputStream body) throws IOException
+    {
+        //copy the body to a temporary file and compute its hash
+        File tmp = File.createTempFile("body", ".tmp", directory);
+        String hash;
+        long size = 0;
+        try
+        {
+            MessageDigest digest = createDigest();
+            OutputStream out = new FileOutputStream(tmp);
+            try
+            {
+                byte[] buffer = new byte[16384];
+                int n;
+                while ((n = body.read(buffer)) != -1)
+                {
+                    digest.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                    size += n;
+                }
+            } finally {
+                out.close();
+            }
+            hash = toHex(digest.digest());
+            Entry entry = new Entry(url.toString(), con.getURL().toString(), hash, size);
+            entry.contentType = con.getHeaderField("Content-Type");
+            updateValidators(entry, con);
+            synchronized (this)
+            {
+                File dest = new File(directory, hash);
+                if (dest.exists())
+                    tmp.delete(); //the same contents have been already stored
+                else if (!tmp.renameTo(dest))
+                    throw new IOException("Couldn't store the cached body " + dest);
+                putEntry(entry);
+                appendJournal(entry);
+                if (storedSize > maxSize)
+                    evict(entry);
+            }
+            stores.incrementAndGet();
+            return entry;
+        } finally {
+            if (tmp.exists())
+                tmp.delete();
+        }
+    }
+
+    /**
+     * Updates the freshness of an entry after it has been revalidated by a {@code 304 Not Modified} response.
+     * @param entry the revalidated entry
+     * @param con the connection with the received response
+     */
+    public void revalidated(Entry entry, HttpURLConnection con)
+    {
+        Entry updated = entry.copy();
+        updateValidators(updated, con);
+        synchronized (this)
+        {
+            if (index.get(updated.url) == entry) //not replaced or removed concurrently
+            {
+                putEntry(updated);
+                appendJournal(updated);
+            }
+        }
+    }
+
+    /**
+     * Opens the cached response body. The file is memory-mapped and the returned stream reads
+     * the mapped buffer directly.
+     * @param entry the cache entry
+     * @return the input stream for reading the body
+     * @throws IOException when the body file cannot be opened
+     */
+    public InputStream openBody(Entry entry) throws IOException
+    {
+        RandomAccessFile file = new RandomAccessFile(entry.getBodyFile(), "r");
+        try
+        {
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ByteBufferInputStream(buffer);
+        } finally {
+            file.close(); //the mapping remains valid after closing the channel
+        }
+    }
+
+    void recordHit()
+    {
+        hits.incrementAndGet();
+    }
+
+    void recordRevalidation()
+    {
+        revalidations.incrementAndGet();
+    }
+
+    void recordMiss()
+    {
+        misses.incrementAndGet();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Adds an entry to the index. The body of the replaced entry is deleted when it is not used anymore.
+     */
+    private synchronized void putEntry(Entry entry)
+    {
+        entry.access = clock.incrementAndGet();
+        addBodyRef(entry);
+        Entry old = index.put(entry.url, entry);
+        if (old != null)
+            releaseBodyRef(old);
+    }
+
+    /**
+     * Removes an entry from the index. Its body is deleted when it is not used anymore.
+     */
+    private synchronized void removeEntry(Entry entry)
+    {
+        if (index.remove(entry.url, entry))
+            releaseBodyRef(entry);
+    }
+
+    private void addBodyRef(Entry entry)
+    {
+        Integer refs = bodyRefs.get(entry.hash);
+        if (refs == null)
+        {
+            bodyRefs.put(entry.hash, 1);
+            storedSize += entry.size;
+        }
+        else
+            bodyRefs.put(entry.hash, refs + 1);
+    }
+
+    private void releaseBodyRef(Entry entry)
+    {
+        Integer refs = bodyRefs.get(entry.hash);
+        if (refs != null && refs > 1)
+            bodyRefs.put(entry.hash, refs - 1);
+        else if (refs != null)
+        {
+            bodyRefs.remove(entry.hash);
+            storedSize -= entry.size;
+            if (!entry.getBodyFile().delete() && entry.getBodyFile().exists())
+                log.debug("Couldn't delete the cached body {}", entry.getBodyFile());
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the stored size fits the limit.
+     * @param keep the entry that should not be removed or {@code null}
+     */
+    private synchronized void evict(Entry keep)
+    {
+        List<Entry> entries = new ArrayList<Entry>(index.values());
+        Collections.sort(entries, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2)
+            {
+                return (e1.access < e2.access) ? -1 : ((e1.access == e2.access) ? 0 : 1);
+            }
+        });
+        final long target = (long) (maxSize * EVICT_FRACTION);
+        for (Entry entry : entries)
+        {
+            if (storedSize <= target)
+                break;
+            if (entry != keep)
+                removeEntry(entry);
+        }
+        try
+        {
+            compact();
+        } catch (IOException e) {
+            log.warn("Couldn't compact the cache journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the files in the cache directory that are not used by any entry
+     * (e.g. left by an interrupted store).
+     */
+    private void deleteUnusedFiles()
+    {
+        File[] files = directory.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+            {
+                final String name = f.getName();
+                if (!name.equals(JOURNAL) && !bodyRefs.containsKey(name) && f.isFile())
+                    f.delete();
+            }
+        }
+    }
+
+    private void updateValidators(Entry entry, HttpURLConnection con)
+    {
+        final String etag = con.getHeaderField("ETag");
+        if (etag != null)
+            entry.etag = etag;
+        final long lastModified = con.getHeaderFieldDate("Last-Modified", 0);
+        if (lastModified != 0)
+            entry.lastModified = lastModified;
+
+        //the headers missing in a 304 response keep their stored values
+        final String ccHeader = con.getHeaderField("Cache-Control");
+        if (ccHeader != null)
+            entry.cacheControl = ccHeader;
+        final long expiresHeader = con.getHeaderFieldDate("Expires", 0);
+        if (expiresHeader != 0)
+            entry.expiresHeader = expiresHeader;
+
+        final long now = System.currentTimeMillis();
+        final String cc = entry.cacheControl;
+        entry.noCache = cc != null && hasDirective(cc, "no-cache");
+        final long maxAge = (cc == null) ? -1 : getMaxAge(cc);
+        if (maxAge >= 0)
+            entry.expires = now + maxAge * 1000;
+        else
+        {
+            if (entry.expiresHeader != 0)
+                entry.expires = entry.expiresHeader;
+            else if (entry.lastModified != 0 && entry.lastModified < now)
+                entry.expires = now + (long) ((now - entry.lastModified) * HEURISTIC_FRACTION);
+            else
+                entry.expires = now; //no freshness information, always revalidate
+        }
+    }
+
+    private static boolean hasDirective(String cacheControl, String directive)
+    {
+        for (String part : cacheControl.split(","))
+        {
+            if (part.trim().toLowerCase(Locale.ROOT).startsWith(directive))
+                return true;
+        }
+        return false;
+    }
+
+    private static long getMaxAge(String cacheControl)
+    {
+        for (String part : cacheControl.split(","))
+        {
+            String p = part.trim().toLowerCase(Locale.ROOT);
+            if (p.startsWith("max-age="))
+            {
+                try
+                {
+                    return Long.parseLong(p.substring(8).replace("\"", "").trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private synchronized void appendJournal(Entry entry)
+    {
+        try
+        {
+            journal.write(entry.toJournalLine());
+            journal.write('\n');
+            journal.flush();
+            journalRecords++;
+            if (journalRecords > COMPACT_MIN_RECORDS && journalRecords > 2 * index.size())
+                compact();
+        } catch (IOException e) {
+            log.warn("Couldn't write the cache journal: {}", e.getMessage());
+        }
+    }
+
+    private void readJournal(File jfile) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(jfile), "UTF-8"));
+        try
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                journalRecords++;
+                Entry entry = parseJournalLine(line);
+                if (entry != null)
+                {
+                    entry.access = clock.incrementAndGet(); //the later records are the more recent ones
+                    index.put(entry.url, entry); //the later records replace the earlier ones
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        for (Entry entry : new ArrayList<Entry>(index.values()))
+        {
+            if (entry.getBodyFile().isFile())
+                addBodyRef(entry);
+            else
+                index.remove(entry.url); //the body has been removed
+        }
+    }
+
+    private Entry parseJournalLine(String line)
+    {
+        String[] f = line.split("\t", -1);
+        if (f.length != 9 && f.length != 11)
+            return null; //incomplete record (e.g. an interrupted write)
+        try
+        {
+            Entry entry = new Entry(f[0], f[1], f[2], Long.parseLong(f[3]));
+            entry.contentType = f[4].isEmpty() ? null : f[4];
+            entry.etag = f[5].isEmpty() ? null : f[5];
+            entry.lastModified = Long.parseLong(f[6]);
+            entry.expires = Long.parseLong(f[7]);
+            entry.noCache = Boolean.parseBoolean(f[8]);
+            if (f.length == 11)
+            {
+                entry.cacheControl = f[9].isEmpty() ? null : f[9];
+                entry.expiresHeader = Long.parseLong(f[10]);
+            }
+            else if (entry.noCache)
+                entry.cacheControl = "no-cache"; //a record without the stored headers
+            return entry;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //SHA-256 is required on every Java platform
+        }
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder ret = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+            ret.append(Character.forDigit((b >> 4) & 0x0f, 16)).append(Character.forDigit(b & 0x0f, 16));
+        return ret.toString();
+    }
+
+    //=====================================================================================
+
+    /**
+     * A cached response.
+     */
+    public class Entry
+    {
+        private final String url;
+        private final String finalUrl;
+        private final String hash;
+        private final long size;
+        private String contentType;
+        private String etag;
+        private long lastModified;
+        private long expires;
+        private boolean noCache;
+        private String cacheControl; //the last received Cache-Control header
+        private long expiresHeader; //the last received Expires header
+        private volatile long access; //the last access time for the LRU eviction
+
+        private Entry(String url, String finalUrl, String hash, long size)
+        {
+            this.url = url;
+            this.finalUrl = finalUrl;
+            this.hash = hash;
+            this.size = size;
+        }
+
+        /**
+         * Obtains the final URL of the response (after the redirects).
+         * @return the URL
+         */
+        public URL getFinalURL()
+        {
+            try
+            {
+                return new URL(finalUrl);
+            } catch (MalformedURLException e) {
+                return null; //should not happen, the URL has been obtained from a connection
+            }
+        }
+
+        public String getContentType()
+        {
+            return contentType;
+        }
+
+        public String getETag()
+        {
+            return etag;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+
+        public File getBodyFile()
+        {
+            return new File(directory, hash);
+        }
+
+        private Entry copy()
+        {
+            Entry ret = new Entry(url, finalUrl, hash, size);
+            ret.contentType = contentType;
+            ret.etag = etag;
+            ret.lastModified = lastModified;
+            ret.expires = expires;
+            ret.noCache = noCache;
+            ret.cacheControl = cacheControl;
+            ret.expiresHeader = expiresHeader;
+            ret.access = access;
+            return ret;
+        }
+
+        private String toJournalLine()
+        {
+            return url + '\t' + finalUrl + '\t' + hash + '\t' + size + '\t'
+                    + (contentType == null ? "" : clean(contentType)) + '\t'
+                    + (etag == null ? "" : clean(etag)) + '\t'
+                    + lastModified + '\t' + expires + '\t' + noCache + '\t'
+                    + (cacheControl == null ? "" : clean(cacheControl)) + '\t' + expiresHeader;
+        }
+
+        private String clean(String value)
+        {
+            return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    /**
+     * An input stream that reads the contents of a byte buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len)
+        {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            final int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            final int skipped = (int) Math.min(Math.max(n, 0), buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+    }
+
+}
@@ -183,6 +183,14 @@ public class BlockBox extends ElementBox
     /** Clipping region specified using the clip: property (with absolute coordinates) */
     protected TermRect clipRegion;
     
+    /** Cached minimal content width and the viewport width revision it is valid for */
+    private int minContentWidth;
+    private long minContentRevision = -1;
+    
+    /** Cached maximal content width and the viewport width revision it is valid for */
+    private int maxContentWidth;
+    private long maxContentRevision = -1;
+    
     //=====================================================================
     
     /** Creates a new instance of BlockBox */
@@ -587,6 +595,7 @@ public class BlockBox extends ElementBox
         if (min_size.width != -1 && w < min_size.width)
             w = min_size.width;
         content.width = w;
+        widthsChanged();
     }
     
     /**
@@ -1536,11 +1545,37 @@ public class BlockBox extends ElementBox
         return ret;
     }
 
+    @Override
+    protected void invalidateWidths()
+    {
+        super.invalidateWidths();
+        minContentRevision = -1;
+        maxContentRevision = -1;
+    }
+    
     /**
-     * Computes the minimal width of the box content from the contained sub-boxes.
+     * Obtains the minimal width of the box content. The width is computed once and cached until
+     * the sizes or the structure of the box or its descendants change or a new layout starts.
      * @return the minimal content width
      */
     protected int getMinimalContentWidth()
+    {
+        if (viewport == null)
+            return computeMinimalContentWidth();
+        final long rev = viewport.getWidthRevision();
+        if (minContentRevision != rev)
+        {
+            minContentWidth = computeMinimalContentWidth();
+            minContentRevision = rev;
+        }
+        return minContentWidth;
+    }
+    
+    /**
+     * Computes the minimal width of the box content from the contained sub-boxes.
+     * @return the minimal content width
+     */
+    protected int computeMinimalContentWidth()
     {
         int ret = 0;
         int max = 0; //block children
@@ -1617,10 +1652,28 @@ public class BlockBox extends ElementBox
     }
 
     /**
-     * Computes the maximal width of the box content from the contained sub-boxes.
+     * Obtains the maximal width of the box content. The width is computed once and cached until
+     * the sizes or the structure of the box or its descendants change or a new layout starts.
      * @return the maximal content width
      */
     protected int getMaximalContentWidth()
+    {
+        if (viewport == null)
+            return computeMaximalContentWidth();
+        final long rev = viewport.getWidthRevision();
+        if (maxContentRevision != rev)
+        {
+            maxContentWidth = computeMaximalContentWidth();
+            maxContentRevision = rev;
+        }
+        return maxContentWidth;
+    }
+    
+    /**
+     * Computes the maximal width of the box content from the contained sub-boxes.
+     * @return the maximal content width
+     */
+    protected int computeMaximalContentWidth()
     {
         int sum = 0;
         int max = 0;
@@ -1947,11 +2000,13 @@ public class BlockBox extends ElementBox
     protected int maxFloatWidth(int y1, int y2)
     {
         int ret = 0;
-        for (int y = y1; y <= y2; y++)
+        int y = y1;
+        while (y != -1 && y <= y2) //the widths only change at the float edges
         {
             int w = fleft.getWidth(y) + fright.getWidth(y);
             if (w > ret)
                 ret = w;
+            y = FloatList.getNextEdge(fleft, fright, y);
         }
         return ret;
     }
@@ -2009,6 +2064,7 @@ public class BlockBox extends ElementBox
      */  
     protected void loadSizes(boolean update)
     {
+        widthsChanged();
         CSSDecoder dec = new CSSDecoder(ctx);
         
         //containing box sizes
@@ -2536,10 +2592,33 @@ public class BlockBox extends ElementBox
             {
                 it.remove();
                 endChild--;
+                widthsChanged();
             }
         }
     }
     
+    /**
+     * Removes the previously splitted child boxes of this box and of all the block boxes contained in it.
+     * This is necessary when the intrinsic widths of the subtree are used before it is laid out again.
+     */
+    protected void clearSplittedSubtree()
+    {
+        clearSplitted();
+        clearSplittedBlocks(this);
+    }
+    
+    private static void clearSplittedBlocks(ElementBox parent)
+    {
+        for (int i = 0; i < parent.getSubBoxNumber(); i++)
+        {
+            Box box = parent.getSubBox(i);
+            if (box instanceof BlockBox)
+                ((BlockBox) box).clearSplittedSubtree();
+            else if (box instanceof ElementBox)
+                clearSplittedBlocks((ElementBox) box);
+        }
+    }
+    
 }
 
 /**
@@ -38,6 +38,7 @@ public class BlockTableBox extends BlockBox
     private TableBox table;
     private TableCaptionBox caption;
     private boolean captionbottom; //set to true, when caption should be in the bottom. Otherwise, caption is at the top.
+    private long layoutRevision = -1; //the viewport width revision the table has been prepared for
 
     public BlockTableBox(Element n, Graphics2D g, VisualContext ctx)
     {
@@ -110,6 +111,7 @@ public class BlockTableBox extends BlockBox
     @Override
     public boolean doLayout(int availw, boolean force, boolean linestart)
     {
+        checkLayoutPass();
         setAvailableWidth(availw);
         int x1 = fleft.getWidth(floatY) - floatXl;
         int x2 = fright.getWidth(floatY) - floatXr;
@@ -174,6 +176,7 @@ public class BlockTableBox extends BlockBox
     @Override
     public int getMaximalWidth()
     {
+        checkLayoutPass();
         if (caption == null)
             return table.getMaximalWidth();
         else
@@ -183,6 +186,7 @@ public class BlockTableBox extends BlockBox
     @Override
     public int getMinimalWidth()
     {
+        checkLayoutPass();
         if (caption == null)
             return table.getMinimalWidth();
         else
@@ -192,6 +196,7 @@ public class BlockTableBox extends BlockBox
     @Override
     protected int getMaximalContentWidth()
     {
+        checkLayoutPass();
         if (caption == null)
             return table.getMaximalContentWidth();
         else
@@ -201,6 +206,7 @@ public class BlockTableBox extends BlockBox
     @Override
     protected int getMinimalContentWidth()
     {
+        checkLayoutPass();
         if (caption == null)
             return table.getMinimalContentWidth();
         else
@@ -210,6 +216,7 @@ public class BlockTableBox extends BlockBox
     @Override
     protected int getMinimalDecorationWidth()
     {
+        checkLayoutPass();
         if (caption == null)
             return table.getMinimalDecorationWidth();
         else
@@ -251,6 +258,26 @@ public class BlockTableBox extends BlockBox
     
     //======================================================================================================
 
+    /**
+     * Prepares the table for a new layout pass. When the table has been laid out in a previous pass
+     * (e.g. for a different viewport size), the table, column and cell widths computed by that pass
+     * are discarded so that the new pass starts from the specified widths the same way as the first one.
+     */
+    private void checkLayoutPass()
+    {
+        final long rev = viewport.getWidthRevision();
+        if (rev != layoutRevision)
+        {
+            layoutRevision = rev;
+            if (widthComputed)
+            {
+                widthComputed = false; //start with the 'auto' width again
+                updateSizes();
+            }
+            table.resetLayout();
+        }
+    }
+    
     protected void loadCaptionStyle()
     {
         if (caption != null)
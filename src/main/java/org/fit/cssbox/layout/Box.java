@@ -65,6 +65,9 @@ abstract public class Box
     /** Absolute box position (on the whole page) */
     protected Rectangle absbounds;
     
+    /** Absolute bounds of the area painted by the box and its descendants (computed together with the absolute positions) */
+    protected Rectangle paintBounds;
+    
     /** The viewport */
     protected Viewport viewport;
     
@@ -473,6 +476,36 @@ abstract public class Box
     	return absbounds;
     }
     
+    /**
+     * Returns the absolute bounds of the area that may be painted by this box and all its descendants.
+     * The bounds are computed by {@link Viewport#absolutePositions()} and they are used for skipping
+     * the subtrees that lie outside of the drawn area.
+     * @return the paint bounds or {@code null} when they have not been computed yet
+     */
+    public Rectangle getPaintBounds()
+    {
+        return paintBounds;
+    }
+    
+    /**
+     * Computes the paint bounds of this box and all its descendants. This is called by the viewport
+     * after the absolute positions of all the boxes have been computed.
+     */
+    protected void computePaintBounds()
+    {
+        paintBounds = new Rectangle(absbounds);
+    }
+    
+    /**
+     * Checks whether the box or some of its descendants may paint anything in the given area.
+     * @param area the drawn area in absolute coordinates or {@code null} for the whole page
+     * @return {@code true} when the box should be drawn
+     */
+    public boolean isInDrawArea(Rectangle area)
+    {
+        return area == null || paintBounds == null || paintBounds.intersects(area);
+    }
+    
 
     /**
      * Adjusts the absolute bounds width and height in order to fit into the clip.
@@ -694,6 +727,25 @@ abstract public class Box
      */
     abstract public boolean affectsDisplay();
 
+    /**
+     * Indicates that the sizes or the structure of this box have changed so that the intrinsic
+     * (minimal and maximal) widths cached by this box and its ancestors may not be valid anymore.
+     * The widths cached by the other boxes remain valid.
+     */
+    protected void widthsChanged()
+    {
+        invalidateWidths();
+        for (Box box = getParent(); box != null; box = box.getParent())
+            box.invalidateWidths();
+    }
+    
+    /**
+     * Discards the intrinsic widths cached by this box (if any).
+     */
+    protected void invalidateWidths()
+    {
+    }
+    
     /**
 	 * @return the viewport
 	 */
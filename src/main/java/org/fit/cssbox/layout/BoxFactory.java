@@ -187,7 +187,7 @@ public class BoxFactory
      * Create the viewport and the underlying box tree from a DOM tree.
      * 
      * @param root the root element of the source DOM tree.
-     * @param g the root graphic context. Copies of this context will be used for the individual boxes. 
+     * @param g the root graphic context. A single copy of this context is shared by the individual boxes for measuring the text. 
      * @param ctx the visual context (computed style). Copies of this context will be used for the individual boxes.
      * @param width preferred viewport width.
      * @param height preferred viewport height.
@@ -196,7 +196,7 @@ public class BoxFactory
     public Viewport createViewportTree(Element root, Graphics2D g, VisualContext ctx, int width, int height)
     {
         Element vp = createAnonymousElement(root.getOwnerDocument(), "Xdiv", "block");
-        viewport = new Viewport(vp, g, ctx, this, root, width, height);
+        viewport = new Viewport(vp, (Graphics2D) g.create(), ctx, this, root, width, height);
         viewport.setConfig(config);
         overflowPropagated = false;
         BoxTreeCreationStatus stat = new BoxTreeCreationStatus(viewport);
@@ -344,6 +344,8 @@ public class BoxFactory
             }
             else
                 createBoxTree(newstat);
+            //the box keeps its own style, the analyzer does not have to keep it anymore
+            decoder.releaseStyles((Element) n);
         }
 
         //Add the new box to the parent according to its type
@@ -513,13 +515,14 @@ public class BoxFactory
     private TextBox createTextBox(Text n, BoxTreeCreationStatus stat)
     {
         //TODO: in some whitespace processing modes, multiple boxes may be created
-        TextBox text = new TextBox(n, (Graphics2D) stat.parent.getGraphics().create(), stat.parent.getVisualContext().create());
+        TextBox text = new TextBox(n, stat.parent.getGraphics(), stat.parent.getVisualContext().create());
         text.setOrder(next_order++);
         text.setContainingBlockBox(stat.contbox);
         text.setClipBlock(stat.clipbox);
         text.setViewport(viewport);
         text.setBase(baseurl);
         text.setParent(stat.parent);
+        text.setFastLineBreaking(config.getFastLineBreaking());
         return text;
     }
 
@@ -789,7 +792,7 @@ public class BoxFactory
         if (block)
         {
             Element anelem = createAnonymousElement(child.getNode().getOwnerDocument(), "Xdiv", "block");
-            anbox = new BlockBox(anelem, (Graphics2D) child.getGraphics().create(), child.getVisualContext().create());
+            anbox = new BlockBox(anelem, child.getGraphics(), child.getVisualContext().create());
             anbox.setViewport(viewport);
             anbox.setStyle(createAnonymousStyle("block"));
             ((BlockBox) anbox).contblock = false;
@@ -798,7 +801,7 @@ public class BoxFactory
         else
         {
             Element anelem = createAnonymousElement(child.getNode().getOwnerDocument(), "Xspan", "inline");
-            anbox = new InlineBox(anelem, (Graphics2D) child.getGraphics().create(), child.getVisualContext().create());
+            anbox = new InlineBox(anelem, child.getGraphics(), child.getVisualContext().create());
             anbox.setViewport(viewport);
             anbox.setStyle(createAnonymousStyle("inline"));
             anbox.isblock = false;
@@ -830,6 +833,8 @@ public class BoxFactory
         NodeData style = decoder.getElementStyleInherited(n);
         if (style == null)
                 style = createAnonymousStyle(display);
+        else if (decoder.getLazyStyles() && config.getResourceLoader() != null)
+            config.getResourceLoader().prefetchStyle(style); //the styles could not be scanned in advance
         
         //Special (HTML) tag names
         if (config.getUseHTML() && html.isTagSupported(n))
@@ -911,33 +916,40 @@ public class BoxFactory
      */
     public ElementBox createElementInstance(ElementBox parent, Element n, NodeData style)
     {
-        ElementBox root = new InlineBox(n, (Graphics2D) parent.getGraphics().create(), parent.getVisualContext().create());
+        final Graphics2D g = parent.getGraphics(); //the measurement context is shared by all the boxes
+        final VisualContext ctx = parent.getVisualContext().create();
+        final CSSProperty.Display display = ElementBox.computeDisplay(style, false);
+        ElementBox root;
+        if (display == ElementBox.DISPLAY_LIST_ITEM)
+            root = new ListItemBox(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_TABLE)
+            root = new BlockTableBox(n, g, ctx);
+        /*else if (display == ElementBox.DISPLAY_INLINE_TABLE)
+            root = new InlineTableBox(n, g, ctx);*/
+        else if (display == ElementBox.DISPLAY_TABLE_CAPTION)
+            root = new TableCaptionBox(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_TABLE_ROW_GROUP
+                 || display == ElementBox.DISPLAY_TABLE_HEADER_GROUP
+                 || display == ElementBox.DISPLAY_TABLE_FOOTER_GROUP)
+            root = new TableBodyBox(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_TABLE_ROW)
+            root = new TableRowBox(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_TABLE_CELL)
+            root = new TableCellBox(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_TABLE_COLUMN)
+            root = new TableColumn(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_TABLE_COLUMN_GROUP)
+            root = new TableColumnGroup(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_INLINE_BLOCK)
+            root = new InlineBlockBox(n, g, ctx);
+        else if (display == ElementBox.DISPLAY_BLOCK)
+            root = new BlockBox(n, g, ctx);
+        else
+            root = new InlineBox(n, g, ctx);
         root.setViewport(viewport);
         root.setStyle(style);
-        if (root.getDisplay() == ElementBox.DISPLAY_LIST_ITEM)
-            root = new ListItemBox((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE)
-            root = new BlockTableBox((InlineBox) root);
-        /*else if (root.getDisplay() == ElementBox.DISPLAY_INLINE_TABLE)
-            root = new InlineTableBox((InlineBox) root);*/
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_CAPTION)
-            root = new TableCaptionBox((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_ROW_GROUP
-                 || root.getDisplay() == ElementBox.DISPLAY_TABLE_HEADER_GROUP
-                 || root.getDisplay() == ElementBox.DISPLAY_TABLE_FOOTER_GROUP)
-            root = new TableBodyBox((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_ROW)
-            root = new TableRowBox((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_CELL)
-            root = new TableCellBox((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_COLUMN)
-            root = new TableColumn((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_COLUMN_GROUP)
-            root = new TableColumnGroup((InlineBox) root);
-        else if (root.getDisplay() == ElementBox.DISPLAY_INLINE_BLOCK)
-            root = new InlineBlockBox((InlineBox) root);
-        else if (root.isBlock())
-            root = new BlockBox((InlineBox) root);
+        if (root instanceof BlockBox && !(root instanceof InlineBlockBox))
+            root.isblock = true; //block-level regardless of the display value (e.g. table parts)
         return root;
     }
     
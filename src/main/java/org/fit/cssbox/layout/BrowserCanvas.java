@@ -34,9 +34,10 @@ import org.fit.cssbox.css.DOMAnalyzer;
 import org.fit.cssbox.render.GraphicsRenderer;
 
 /**
- * This class provides an abstraction of a browser rendering area and the main layout engine
- * interface. Afrer the layout, a document image is created by drawing all the boxes and it
- * is drawn on the component.
+ * This class provides an abstraction of a browser rendering area. The layout is computed
+ * using a {@link LayoutEngine}. Afrer the layout, a document image is created by drawing all
+ * the boxes and it is drawn on the component. For obtaining the layout without any AWT component
+ * and without the page image, use {@link LayoutEngine} directly.
  * 
  * @author  burgetr
  */
@@ -49,6 +50,7 @@ public class BrowserCanvas extends JPanel
     protected DOMAnalyzer decoder;
     protected URL baseurl;
     protected Viewport viewport;
+    protected LayoutEngine engine;
 
     protected BufferedImage img;
 
@@ -151,57 +153,78 @@ public class BrowserCanvas extends JPanel
      */
     public void createLayout(Dimension dim, Rectangle visibleRect)
     {
-        if (createImage)
-            img = new BufferedImage(dim.width, dim.height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D ig = img.createGraphics();
-        
-        if (autoMediaUpdate)
-        {
-            decoder.getMediaSpec().setDimensions(visibleRect.width, visibleRect.height);
-            decoder.recomputeStyles();
-        }
-        
-        log.trace("Creating boxes");
-        BoxFactory factory = new BoxFactory(decoder, baseurl);
-        factory.setConfig(config);
-        factory.reset();
-        VisualContext ctx = new VisualContext(null, factory);
-        viewport = factory.createViewportTree(root, ig, ctx, dim.width, dim.height);
-        log.trace("We have " + factory.next_order + " boxes");
-        viewport.setVisibleRect(visibleRect);
-        viewport.initSubtree();
-        
-        log.trace("Layout for "+dim.width+"px");
-        viewport.doLayout(dim.width, true, true);
-        log.trace("Resulting size: " + viewport.getWidth() + "x" + viewport.getHeight() + " (" + viewport + ")");
-
-        if (autoSizeUpdate)
+        engine = createEngine();
+        viewport = engine.createLayout(dim, visibleRect);
+        drawLayout(dim);
+    }
+    
+    /**
+     * Recomputes the document layout for a new viewport size where the visible area size is equal
+     * to the whole canvas.
+     * @param dim the new viewport size
+     * @see #relayout(Dimension, Rectangle)
+     */
+    public void relayout(Dimension dim)
+    {
+        relayout(dim, new Rectangle(dim));
+    }
+    
+    /**
+     * Recomputes the document layout for a new canvas and viewport size. Unlike
+     * {@link #createLayout(Dimension, Rectangle)}, the existing box tree and the computed styles are reused
+     * when the new size does not change the result of any media query (see {@link LayoutEngine#relayout(Dimension, Rectangle)}).
+     * This is suitable for rendering the same document in different widths. The browser configuration
+     * should not be changed between the calls.
+     * @param dim the total canvas size 
+     * @param visibleRect the viewport (the visible area) size and position
+     */
+    public void relayout(Dimension dim, Rectangle visibleRect)
+    {
+        if (engine == null)
+            createLayout(dim, visibleRect);
+        else
         {
-            log.trace("Updating viewport size");
-            viewport.updateBounds(dim);
-            log.trace("Resulting size: " + viewport.getWidth() + "x" + viewport.getHeight() + " (" + viewport + ")");
+            engine.setAutoSizeUpdate(autoSizeUpdate);
+            engine.setAutoMediaUpdate(autoMediaUpdate);
+            viewport = engine.relayout(dim, visibleRect);
+            drawLayout(dim);
         }
-        
-        if (createImage && (viewport.getWidth() > dim.width || viewport.getHeight() > dim.height))
-        {
+    }
+    
+    /**
+     * Allocates the canvas image for the current viewport and draws the boxes.
+     * @param dim the requested canvas size
+     */
+    protected void drawLayout(Dimension dim)
+    {
+        if (createImage)
             img = new BufferedImage(Math.max(viewport.getWidth(), dim.width),
                                     Math.max(viewport.getHeight(), dim.height),
                                     BufferedImage.TYPE_INT_RGB);
-            ig = img.createGraphics();
-        }
-        
-        log.trace("Positioning for "+viewport.getWidth()+"x"+viewport.getHeight()+"px");
-        viewport.absolutePositions();
         
         log.trace("Drawing");
         clearCanvas();
-        GraphicsRenderer r = new GraphicsRenderer(ig); 
+        GraphicsRenderer r = new GraphicsRenderer(img.createGraphics()); 
         viewport.draw(r);
         r.close();
         setPreferredSize(new Dimension(img.getWidth(), img.getHeight()));
         revalidate();
     }
     
+    /**
+     * Creates the layout engine used for computing the layout. The layout is computed without
+     * using the canvas image; the image is only used for drawing the resulting boxes.
+     * @return the configured layout engine
+     */
+    protected LayoutEngine createEngine()
+    {
+        LayoutEngine ret = new LayoutEngine(root, decoder, baseurl);
+        ret.setConfig(config);
+        ret.setAutoSizeUpdate(autoSizeUpdate);
+        ret.setAutoMediaUpdate(autoMediaUpdate);
+        return ret;
+    }
+    
     public void updateVisibleArea(Rectangle visibleRect)
     {
         viewport.setVisibleRect(visibleRect);
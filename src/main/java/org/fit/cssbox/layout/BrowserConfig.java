@@ -53,6 +53,9 @@ public class BrowserConfig
     /** Should we load the CSS background images? */
     private boolean loadBackgroundImages;
     
+    /** Should the content images be decoded at their used size? */
+    private boolean imageDownsampling;
+    
     /** Image loading timeout [ms] */
     private int imageLoadTimeout;
     
@@ -65,6 +68,9 @@ public class BrowserConfig
     /** Should the viewport clip its contents? */
     private boolean clipViewport;
     
+    /** Should we use the binary search for finding the text line breaks? */
+    private boolean fastLineBreaking;
+    
     /** Registered DocumentSource implementation */
     private Class<? extends DocumentSource> documentSourceClass;
     
@@ -74,8 +80,12 @@ public class BrowserConfig
     /** Registered content observer that tracks the image loading */
     private ContentObserver contentObserver;
 
+    /** The image cache used for the loaded images (if any) */
     private ImageCache imageCache;
     
+    /** The loader used for fetching the images and fonts (if any) */
+    private ResourceLoader resourceLoader;
+    
     /** Default font families */
     private Map<String, String> defaultFonts;
     
@@ -88,9 +98,11 @@ public class BrowserConfig
         loadImages = true;
         loadBackgroundImages = true;
         imageLoadTimeout = 500;
+        imageDownsampling = false;
         useHTML = true;
         replaceImagesWithAlt = false;
         clipViewport = false;
+        fastLineBreaking = true;
         documentSourceClass = DefaultDocumentSource.class;
         domSourceClass = DefaultDOMSource.class;
         contentObserver = null;
@@ -141,6 +153,24 @@ public class BrowserConfig
         this.loadBackgroundImages = loadBackgroundImages;
     }
 
+    public boolean getImageDownsampling()
+    {
+        return imageDownsampling;
+    }
+
+    /**
+     * Sets whether the content images should be decoded at their used size. When enabled, only the image
+     * size is read when the image is loaded and the image data is decoded using subsampling when the image
+     * is drawn so that large images displayed at a small size do not consume the memory for all their
+     * pixels. The drawn images may differ slightly from the images decoded at their full size.
+     * The default value is <code>false</code>.
+     * @param imageDownsampling
+     */
+    public void setImageDownsampling(boolean imageDownsampling)
+    {
+        this.imageDownsampling = imageDownsampling;
+    }
+
     public int getImageLoadTimeout()
     {
         return imageLoadTimeout;
@@ -174,10 +204,34 @@ public class BrowserConfig
         return imageCache;
     }
 
-    public void setImageCache(ImageCache imageCache) {
+    /**
+     * Configures the cache used for the loaded images. The cache may be shared among multiple
+     * configurations and threads. {@link UnlimitedImageCache} keeps all the images forever,
+     * {@link LRUImageCache} keeps the images within a limited memory budget. The default
+     * is {@code null} (no caching).
+     * @param imageCache the image cache to be used or {@code null} for no caching.
+     */
+    public void setImageCache(ImageCache imageCache)
+    {
         this.imageCache = imageCache;
     }
 
+    public ResourceLoader getResourceLoader()
+    {
+        return resourceLoader;
+    }
+
+    /**
+     * Configures the loader used for fetching the images and fonts. When a loader is used, the resources
+     * are fetched concurrently and the resources prefetched by the loader are reused. The default
+     * is {@code null}; the resources are fetched synchronously when they are needed.
+     * @param resourceLoader the loader to be used or {@code null} for synchronous loading.
+     */
+    public void setResourceLoader(ResourceLoader resourceLoader)
+    {
+        this.resourceLoader = resourceLoader;
+    }
+
     public boolean getUseHTML()
     {
         return useHTML;
@@ -228,6 +282,23 @@ public class BrowserConfig
         this.clipViewport = clipViewport;
     }
 
+    public boolean getFastLineBreaking()
+    {
+        return fastLineBreaking;
+    }
+
+    /**
+     * Configures whether the text line breaks should be found using the binary search over the
+     * precomputed text widths. When switched off, the text is shortened word by word until it fits
+     * to the line which may be slow for long text blocks. Both ways give the same results. The default
+     * is {@code true}.
+     * @param fastLineBreaking The configuration value.
+     */
+    public void setFastLineBreaking(boolean fastLineBreaking)
+    {
+        this.fastLineBreaking = fastLineBreaking;
+    }
+
     /**
      * Sets the class used by CSSBox for obtaining documents based on their URLs.
      * @param documentSourceClass the new document source class
@@ -20,18 +20,22 @@
 package org.fit.cssbox.layout;
 
 import java.awt.Container;
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.awt.image.ImageObserver;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
 import javax.imageio.ImageReader;
 import javax.imageio.event.IIOReadUpdateListener;
 import javax.imageio.stream.ImageInputStream;
@@ -72,6 +76,12 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
     protected boolean abort; //error or abort flag during loading in image observer
     protected boolean complete; //set to true when image loading is complete
     
+    protected boolean downsampling; //decode the image at its used size?
+    private byte[] encodedData; //the encoded image data when the image is decoded at its used size
+    private Image scaledImage; //the image decoded for the last used size
+    private int scaledWidth; //the used width of the scaled image
+    private int scaledHeight; //the used height of the scaled image
+    
     public ContentImage(ElementBox owner)
     {
         super(owner);
@@ -83,6 +93,7 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
         this.abort = false;
         this.complete = false;
         this.loadTimeout = owner.getViewport().getConfig().getImageLoadTimeout();
+        this.downsampling = owner.getViewport().getConfig().getImageDownsampling();
     }
 
     /**
@@ -164,6 +175,71 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
         return null;
     }
 
+    /**
+     * Loads the image size without decoding the image data. The encoded image data is kept so that
+     * the image may be decoded later for its used size using {@link #getImage(int, int)}. The encoded
+     * data is kept in the image cache as well when it supports that (see {@link SizedImageCache}) so that
+     * the repeated images are downloaded only once. When the full image is available in the cache
+     * or the image size cannot be determined from the image data, the complete image is loaded
+     * using {@link #loadImage(boolean)} instead.
+     * @param cache use the image cache?
+     */
+    protected void loadImageInfo(boolean cache)
+    {
+        if (url != null)
+        {
+            ImageCache imageCache = getImageCache(cache);
+            if (imageCache != null)
+            {
+                Image img = imageCache.get(url);
+                if (img != null)
+                {
+                    image = img;
+                    toolkit.prepareImage(img, -1, -1, observer);
+                    return;
+                }
+                else if (imageCache.hasFailed(url))
+                {
+                    observeLoadFailed(url);
+                    return;
+                }
+            }
+            
+            final SizedImageCache sizedCache = (imageCache instanceof SizedImageCache) ? (SizedImageCache) imageCache : null;
+            byte[] data = (sizedCache == null) ? null : sizedCache.getData(url);
+            final boolean cached = (data != null);
+            if (!cached)
+                data = loadImageData(url);
+            Dimension size = (data == null) ? null : readImageSize(url, data);
+            if (size != null)
+            {
+                if (sizedCache != null && !cached)
+                    sizedCache.putData(url, data);
+                encodedData = data;
+                width = size.width;
+                height = size.height;
+                complete = true;
+            }
+            else if (data != null)
+                image = loadImage(cache); //the size is not available, try to decode the whole image
+            else
+            {
+                if (imageCache != null)
+                    imageCache.putFailed(url);
+                observeLoadFailed(url);
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the image is decoded for its used size.
+     * @return {@code true} when the encoded image data is available for decoding the image for its used size
+     */
+    public boolean isDownsampled()
+    {
+        return encodedData != null;
+    }
+    
     private ImageCache getImageCache(boolean cache)
     {
         return cache ? getOwner().getViewport().getConfig().getImageCache() : null;
@@ -171,6 +247,10 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
 
     private Image loadImageFromSource(URL url)
     {
+        final ResourceLoader loader = owner.getViewport().getConfig().getResourceLoader();
+        if (loader != null)
+            return loader.getImage(url); //the image may have been prefetched
+        
         Image image = null;
 
         // I need to catch IOExceptions starting from this moment and close imgsrc if set
@@ -216,6 +296,115 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
         return image;
     }    
     
+    private byte[] loadImageData(URL url)
+    {
+        final ResourceLoader loader = owner.getViewport().getConfig().getResourceLoader();
+        try
+        {
+            if (loader != null)
+                return loader.getData(url); //the data may have been prefetched
+            try (DocumentSource imgsrc = owner.getViewport().getConfig().createDocumentSource(url))
+            {
+                if (imgsrc == null)
+                    return null;
+                InputStream in = imgsrc.getInputStream();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) != -1)
+                    out.write(buffer, 0, n);
+                return out.toByteArray();
+            }
+        } catch (IOException e) {
+            log.error("Unable to get image from: " + url);
+            log.error(e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Reads the image size from the encoded image data without decoding the pixels.
+     * @param url the image URL (used for logging)
+     * @param data the encoded image data
+     * @return the image size or {@code null} when the size cannot be determined
+     */
+    protected static Dimension readImageSize(URL url, byte[] data)
+    {
+        try
+        {
+            ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data));
+            try
+            {
+                Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+                if (readers.hasNext())
+                {
+                    ImageReader reader = readers.next();
+                    try
+                    {
+                        reader.setInput(in, true);
+                        return new Dimension(reader.getWidth(0), reader.getHeight(0));
+                    } finally {
+                        reader.dispose();
+                    }
+                }
+                else
+                    log.warn("No image readers for URL: " + url);
+            } finally {
+                in.close();
+            }
+        } catch (Exception e) {
+            log.error("Image decoding error: " + e.getMessage());
+        }
+        return null;
+    }
+    
+    /**
+     * Decodes an image from the encoded data. When the used size is given, the image is subsampled
+     * so that it is not smaller than the used size but not larger than necessary.
+     * @param url the image URL (used for logging)
+     * @param data the encoded image data
+     * @param usedWidth the used width of the image or -1 for decoding the whole image
+     * @param usedHeight the used height of the image or -1 for decoding the whole image
+     * @return the decoded image or {@code null} when the image cannot be decoded
+     * @throws IOException when the data cannot be read
+     */
+    protected static BufferedImage decodeImage(URL url, byte[] data, int usedWidth, int usedHeight) throws IOException
+    {
+        BufferedImage image = null;
+        ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data));
+        try
+        {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                log.warn("No image readers for URL: " + url);
+            while (image == null && readers.hasNext())
+            {
+                ImageReader reader = readers.next();
+                try
+                {
+                    in.seek(0);
+                    reader.setInput(in, true);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    if (usedWidth > 0 && usedHeight > 0)
+                    {
+                        final int sx = Math.max(1, reader.getWidth(0) / usedWidth);
+                        final int sy = Math.max(1, reader.getHeight(0) / usedHeight);
+                        if (sx > 1 || sy > 1)
+                            param.setSourceSubsampling(sx, sy, 0, 0);
+                    }
+                    image = reader.read(0, param);
+                } catch (Exception e) {
+                    log.error("Image decoding error: " + e.getMessage() + " with reader " + reader);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return image;
+    }
+    
     private void observeLoadFailed(URL url)
     {
         final ContentObserver observer = getOwner().getViewport().getConfig().getContentObserver();
@@ -267,9 +456,69 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
      */
     public Image getImage()
     {
+        if (image == null && encodedData != null)
+            decodeFullImage();
         return image;
     }
 
+    /**
+     * Gets the image to be drawn at the given size. When the image is decoded for its used size
+     * (see {@link BrowserConfig#setImageDownsampling(boolean)}), the returned image is subsampled
+     * so that its size is between the given size and the double of the given size. Otherwise,
+     * the full image is returned.
+     * 
+     * @param usedWidth the width of the drawn image
+     * @param usedHeight the height of the drawn image
+     * @return the image.
+     */
+    public synchronized Image getImage(int usedWidth, int usedHeight)
+    {
+        if (encodedData == null || usedWidth <= 0 || usedHeight <= 0)
+            return getImage();
+        if (scaledImage == null || scaledWidth != usedWidth || scaledHeight != usedHeight)
+        {
+            final ImageCache imageCache = getImageCache(caching);
+            final SizedImageCache sizedCache = (imageCache instanceof SizedImageCache) ? (SizedImageCache) imageCache : null;
+            Image img = (sizedCache == null) ? null : sizedCache.get(url, usedWidth, usedHeight);
+            if (img == null)
+            {
+                try
+                {
+                    img = decodeImage(url, encodedData, usedWidth, usedHeight);
+                } catch (IOException e) {
+                    log.error("Image decoding error: " + e.getMessage());
+                }
+                if (img != null && sizedCache != null)
+                    sizedCache.put(url, usedWidth, usedHeight, img);
+            }
+            scaledImage = img;
+            scaledWidth = usedWidth;
+            scaledHeight = usedHeight;
+        }
+        return (scaledImage != null) ? scaledImage : getImage();
+    }
+    
+    private synchronized void decodeFullImage()
+    {
+        if (image == null && encodedData != null)
+        {
+            try
+            {
+                image = decodeImage(url, encodedData, -1, -1);
+            } catch (IOException e) {
+                log.error("Image decoding error: " + e.getMessage());
+            }
+            if (image != null)
+            {
+                ImageCache imageCache = getImageCache(caching);
+                if (imageCache != null)
+                    imageCache.put(url, image);
+            }
+            else
+                encodedData = null; //invalid data
+        }
+    }
+
     /**
      * Gets the loaded image as BufferedImage object. May return null if no data
      * available.
@@ -278,7 +527,8 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
      */
     public BufferedImage getBufferedImage()
     {
-        if (image == null || abort)
+        final Image src = getImage();
+        if (src == null || abort)
             return null;
         
         // no container that would repaint -- wait for the complete image
@@ -287,7 +537,7 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
         
         BufferedImage img = new BufferedImage(getIntrinsicWidth(), getIntrinsicHeight(), BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = img.createGraphics();
-        g.drawImage(image, null, null);
+        g.drawImage(src, null, null);
         g.dispose();
 
         return img;
@@ -433,6 +683,8 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
     {
         if (image != null) image.flush();
         image = null;
+        encodedData = null;
+        scaledImage = null;
     }
 
     /**
@@ -446,6 +698,8 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
         height = -1;
         if (image != null) image.flush();
         image = null;
+        encodedData = null;
+        scaledImage = null;
     }
 
     /**
@@ -487,7 +741,7 @@ public abstract class ContentImage extends ReplacedContent implements ImageObser
                 log.warn("waitForLoad(): Image loading aborted: " + e.getMessage());
             }
         }
-        if (image == null)
+        if (image == null && encodedData == null)
             observeLoadFailed(url);
         return complete;
     }
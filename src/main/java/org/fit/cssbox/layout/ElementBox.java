@@ -25,6 +25,7 @@ import java.net.URL;
 import java.util.*;
 import java.util.List;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
 
@@ -36,6 +37,7 @@ import cz.vutbr.web.css.CSSProperty.ZIndex;
 
 import org.fit.cssbox.css.CSSUnits;
 import org.fit.cssbox.misc.CSSStroke;
+import org.fit.cssbox.render.Transform;
 import org.fit.net.DataURLHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -313,6 +315,7 @@ abstract public class ElementBox extends Box
     {
     	style = s;
     	loadBasicStyle();
+    	widthsChanged();
     }
     
     /**
@@ -536,6 +539,7 @@ abstract public class ElementBox extends Box
         box.setParent(this);
         nested.add(box);
         endChild++;
+        widthsChanged();
         if (isDisplayed() && !box.isEmpty())
             isempty = false;
         if (!(box instanceof TextBox))
@@ -552,7 +556,10 @@ abstract public class ElementBox extends Box
     public void removeSubBox(Box box)
     {
         if (nested.remove(box))
+        {
             endChild--;
+            widthsChanged();
+        }
     }
     
     /**
@@ -562,6 +569,7 @@ abstract public class ElementBox extends Box
     {
         nested.removeAllElements();
         endChild = 0;
+        widthsChanged();
     }
     
     /**
@@ -574,6 +582,7 @@ abstract public class ElementBox extends Box
         int pos = nested.indexOf(where);
         nested.insertElementAt(what, pos);
         endChild++;
+        widthsChanged();
     }
 
     /**
@@ -586,6 +595,7 @@ abstract public class ElementBox extends Box
         int pos = nested.indexOf(where);
         nested.insertElementAt(what, pos+1);
         endChild++;
+        widthsChanged();
     }
 
     /**
@@ -597,6 +607,7 @@ abstract public class ElementBox extends Box
     {
         nested.insertElementAt(what, index);
         endChild++;
+        widthsChanged();
     }
     
     /**
@@ -759,6 +770,7 @@ abstract public class ElementBox extends Box
     public void setStartChild(int index)
     {
         startChild = index;
+        widthsChanged();
     }
     
     /**
@@ -775,6 +787,7 @@ abstract public class ElementBox extends Box
     public void setEndChild(int index)
     {
         endChild = index;
+        widthsChanged();
     }
     
     /**
@@ -1018,6 +1031,53 @@ abstract public class ElementBox extends Box
         return false;
     }
     
+    @Override
+    protected void computePaintBounds()
+    {
+        Rectangle pb = new Rectangle(getAbsoluteBounds());
+        pb.add(getAbsoluteBorderBounds()); //the border box may exceed the bounds for negative margins
+        for (int i = startChild; i < endChild; i++)
+        {
+            Box subbox = getSubBox(i);
+            subbox.computePaintBounds();
+            if (subbox.isDisplayed())
+                pb.add(subbox.getPaintBounds());
+        }
+        //the outline is drawn outside of the border box
+        final int ow = getOutlineWidth();
+        if (ow > 0)
+            pb.grow(ow, ow);
+        //the transformations apply to the whole subtree
+        if (style != null && style.getProperty("transform") == CSSProperty.Transform.list_values)
+        {
+            AffineTransform at = Transform.createTransform(this);
+            if (at != null)
+                pb = at.createTransformedShape(pb).getBounds();
+        }
+        paintBounds = pb;
+    }
+    
+    /**
+     * Obtains the width of the outline drawn around the border box.
+     * @return the outline width in pixels or 0 when there is no outline
+     */
+    protected int getOutlineWidth()
+    {
+        if (style != null)
+        {
+            CSSProperty ostyle = style.getProperty("outline-style");
+            if (ostyle != null && ostyle != CSSProperty.OutlineStyle.NONE)
+            {
+                TermLengthOrPercent w = style.getValue(TermLengthOrPercent.class, "outline-width");
+                if (w != null)
+                    return (int) Math.ceil(ctx.pxLength(w));
+                else
+                    return CSSUnits.THICK_BORDER; //the widest keyword
+            }
+        }
+        return 0;
+    }
+    
     //=======================================================================
     
     /**
@@ -1076,10 +1136,12 @@ abstract public class ElementBox extends Box
      */
     protected void drawChildren(DrawStage turn)
     {
+        final Rectangle area = getViewport().getDrawArea();
         for (int i = startChild; i < endChild; i++)
         {
             Box subbox = getSubBox(i);
-            subbox.draw(turn);
+            if (subbox.isInDrawArea(area)) //skip the subtrees outside of the drawn area
+                subbox.draw(turn);
         }
     }
     
@@ -1092,9 +1154,11 @@ abstract public class ElementBox extends Box
         Vector<ElementBox> list = getStackingContext().getElementsForZIndex(zindex);
         if (list != null)
         {
+            final Rectangle area = getViewport().getDrawArea();
             for (ElementBox elem : list)
             {
-                elem.drawStackingContext(!elem.hasZIndex());
+                if (elem.isInDrawArea(area))
+                    elem.drawStackingContext(!elem.hasZIndex());
             }
         }
     }
@@ -1299,44 +1363,11 @@ abstract public class ElementBox extends Box
     {
         ctx.updateForGraphics(style, g);
         
-        display = style.getProperty("display");
-        if (display == null) display = CSSProperty.Display.INLINE;
-        
-        CSSProperty.Float floating = style.getProperty("float");
-        if (floating == null) floating = BlockBox.FLOAT_NONE;
+        display = computeDisplay(style, isRootElement());
         
         position = style.getProperty("position");
-        if (position == null) position = BlockBox.POS_STATIC;
-        
-        //apply combination rules
-        //http://www.w3.org/TR/CSS21/visuren.html#dis-pos-flo
-        if (display == ElementBox.DISPLAY_NONE)
-        {
+        if (position == null || display == ElementBox.DISPLAY_NONE)
             position = BlockBox.POS_STATIC;
-            floating = BlockBox.FLOAT_NONE;
-        }
-        else if (position == BlockBox.POS_ABSOLUTE || position == BlockBox.POS_FIXED)
-        {
-            floating = BlockBox.FLOAT_NONE;
-        }
-        //compute the display computed value
-        if (floating != BlockBox.FLOAT_NONE || position == BlockBox.POS_ABSOLUTE || position == BlockBox.POS_FIXED || isRootElement())
-        {
-            if (display == DISPLAY_INLINE_TABLE)
-                display = DISPLAY_TABLE;
-            else if (display == DISPLAY_INLINE ||
-                     display == DISPLAY_RUN_IN ||
-                     display == DISPLAY_TABLE_ROW_GROUP ||
-                     display == DISPLAY_TABLE_COLUMN ||
-                     display == DISPLAY_TABLE_COLUMN_GROUP ||
-                     display == DISPLAY_TABLE_HEADER_GROUP ||
-                     display == DISPLAY_TABLE_FOOTER_GROUP ||
-                     display == DISPLAY_TABLE_ROW ||
-                     display == DISPLAY_TABLE_CELL ||
-                     display == DISPLAY_TABLE_CAPTION ||
-                     display == DISPLAY_INLINE_BLOCK)
-                display = DISPLAY_BLOCK;
-        }
 
         isblock = (display == DISPLAY_BLOCK);
         displayed = (display != DISPLAY_NONE && display != DISPLAY_TABLE_COLUMN);
@@ -1394,6 +1425,58 @@ abstract public class ElementBox extends Box
         if (transform == null) transform = CSSProperty.Transform.NONE;
     }
     
+    /**
+     * Computes the computed value of the <code>display</code> property from the element style
+     * using the combination rules of the <code>display</code>, <code>position</code> and <code>float</code>
+     * properties. This corresponds to the display value obtained by {@link #loadBasicStyle()}
+     * so that the appropriate box class may be chosen before the box is created.
+     * @param style the element style
+     * @param root is this the root element?
+     * @return the computed display value
+     */
+    public static CSSProperty.Display computeDisplay(NodeData style, boolean root)
+    {
+        CSSProperty.Display display = style.getProperty("display");
+        if (display == null) display = CSSProperty.Display.INLINE;
+        
+        CSSProperty.Float floating = style.getProperty("float");
+        if (floating == null) floating = BlockBox.FLOAT_NONE;
+        
+        CSSProperty.Position position = style.getProperty("position");
+        if (position == null) position = BlockBox.POS_STATIC;
+        
+        //apply combination rules
+        //http://www.w3.org/TR/CSS21/visuren.html#dis-pos-flo
+        if (display == ElementBox.DISPLAY_NONE)
+        {
+            position = BlockBox.POS_STATIC;
+            floating = BlockBox.FLOAT_NONE;
+        }
+        else if (position == BlockBox.POS_ABSOLUTE || position == BlockBox.POS_FIXED)
+        {
+            floating = BlockBox.FLOAT_NONE;
+        }
+        //compute the display computed value
+        if (floating != BlockBox.FLOAT_NONE || position == BlockBox.POS_ABSOLUTE || position == BlockBox.POS_FIXED || root)
+        {
+            if (display == DISPLAY_INLINE_TABLE)
+                display = DISPLAY_TABLE;
+            else if (display == DISPLAY_INLINE ||
+                     display == DISPLAY_RUN_IN ||
+                     display == DISPLAY_TABLE_ROW_GROUP ||
+                     display == DISPLAY_TABLE_COLUMN ||
+                     display == DISPLAY_TABLE_COLUMN_GROUP ||
+                     display == DISPLAY_TABLE_HEADER_GROUP ||
+                     display == DISPLAY_TABLE_FOOTER_GROUP ||
+                     display == DISPLAY_TABLE_ROW ||
+                     display == DISPLAY_TABLE_CELL ||
+                     display == DISPLAY_TABLE_CAPTION ||
+                     display == DISPLAY_INLINE_BLOCK)
+                display = DISPLAY_BLOCK;
+        }
+        return display;
+    }
+    
     /**
      * Loads the background information from the style
      */
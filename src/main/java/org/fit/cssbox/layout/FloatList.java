@@ -21,10 +21,14 @@
 package org.fit.cssbox.layout;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * A list of floating boxes
+ * A list of floating boxes. Apart from the list itself, an index of the float edges is maintained:
+ * the Y coordinates of the top and bottom edges of all the boxes split the Y axis to intervals
+ * with a constant total width of the floats. The index is updated when a box is added
+ * and it allows to obtain the float width for a Y coordinate in a logarithmic time.
  *
  * @author  radek
  */
@@ -37,6 +41,11 @@ public class FloatList
     private BlockBox bottomBox = null; //Bottom-most box.
     private BlockBox lastBox = null; //last box inserted. New boxes shouldn't be placed above this box.
     
+    private int[] edges; //sorted distinct Y coordinates of the box edges
+    private int edgeCount;
+    private int[] widths; //total float width in the interval [edges[i], edges[i+1])
+    private int[] bottoms; //bottom edge of the rightmost box in the interval [edges[i], edges[i+1])
+    
     /**
      * Creates a list of floating boxes for some owner block.
      * @param ownerBox the owner block box
@@ -45,6 +54,10 @@ public class FloatList
     {
     	owner = ownerBox;
         floats = new ArrayList<>();
+        edges = new int[8];
+        widths = new int[8];
+        bottoms = new int[8];
+        edgeCount = 0;
     }
     
     /**
@@ -67,6 +80,7 @@ public class FloatList
             bottomBox = box;
         if (box.getBounds().y > getLastY())
             lastBox = box;
+        addToIndex(box);
     }
     
     /**
@@ -119,18 +133,8 @@ public class FloatList
      */
     public int getWidth(int y)
     {
-        int maxx = 0;
-        for (int i = 0; i < size(); i++)
-        {
-            Box box = getBox(i);
-            if (box.getBounds().y <= y &&
-                box.getBounds().y + box.getBounds().height > y)
-            {
-                int wx = box.getBounds().x + box.getBounds().width;
-                if (wx > maxx) maxx = wx;
-            }
-        }
-        return maxx;
+        final int i = findInterval(y);
+        return (i == -1) ? 0 : widths[i];
     }
     
     /** 
@@ -141,23 +145,21 @@ public class FloatList
      */
     public int getNextY(int y)
     {
-        int maxx = 0;
-        int nexty = -1;
-        for (int i = 0; i < size(); i++) //find the bottom of the rightmost box at this Y coordinate
-        {
-            Box box = getBox(i);
-            if (box.getBounds().y <= y &&
-                box.getBounds().y + box.getBounds().height > y)
-            {
-                int wx = box.getBounds().x + box.getBounds().width;
-                if (wx > maxx) 
-                {
-                    maxx = wx;
-                    nexty = box.getBounds().y + box.getBounds().height;
-                }
-            }
-        }
-        return nexty;
+        final int i = findInterval(y);
+        return (i == -1 || widths[i] == 0) ? -1 : bottoms[i];
+    }
+    
+    /**
+     * Gets the first Y coordinate greater than the specified one where the total width of the floating
+     * boxes may change, i.e. the nearest top or bottom edge of a box.
+     * @param y the starting y coordinate
+     * @return the next Y coordinate of a box edge or -1 when there are no more edges below
+     */
+    public int getNextEdge(int y)
+    {
+        int pos = Arrays.binarySearch(edges, 0, edgeCount, y);
+        pos = (pos >= 0) ? pos + 1 : -pos - 1; //the first edge greater than y
+        return (pos < edgeCount) ? edges[pos] : -1;
     }
 
     /**
@@ -205,6 +207,100 @@ public class FloatList
         
         return fy;
     }
+    /**
+     * Finds the nearest higher Y coordinate in two float lists where the float widths may change.
+     * @param fleft left float list
+     * @param fright right float list
+     * @param y starting Y coordinate
+     * @return the nearest higher Y coordinate of a float edge or -1 when no further edge exists
+     */
+    public static int getNextEdge(FloatList fleft, FloatList fright, int y)
+    {
+        int nexty1 = fleft.getNextEdge(y);
+        int nexty2 = fright.getNextEdge(y);
+        if (nexty1 != -1 && nexty2 != -1)
+            return Math.min(nexty1, nexty2);
+        else if (nexty2 != -1)
+            return nexty2;
+        else
+            return nexty1;
+    }
+    
+    //=====================================================================================
+    
+    /**
+     * Finds the interval of the edge index that contains the given Y coordinate.
+     * @param y the Y coordinate
+     * @return the interval index or -1 when the coordinate is not covered by any interval
+     */
+    private int findInterval(int y)
+    {
+        int pos = Arrays.binarySearch(edges, 0, edgeCount, y);
+        if (pos < 0)
+            pos = -pos - 2; //the last edge lower than y
+        return (pos >= 0 && pos < edgeCount - 1) ? pos : -1;
+    }
     
+    /**
+     * Updates the edge index with a newly added box.
+     * @param box the added box
+     */
+    private void addToIndex(BlockBox box)
+    {
+        final int top = box.getBounds().y;
+        final int bottom = box.getBounds().y + box.getBounds().height;
+        final int wx = box.getBounds().x + box.getBounds().width;
+        if (bottom > top && wx > 0) //other boxes never influence the width
+        {
+            final int first = insertEdge(top);
+            final int last = insertEdge(bottom);
+            for (int i = first; i < last; i++)
+            {
+                if (wx > widths[i]) //the box inserted first wins when the widths are equal
+                {
+                    widths[i] = wx;
+                    bottoms[i] = bottom;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Inserts a new edge to the index. When the edge splits an existing interval, both parts
+     * of the interval keep the original values.
+     * @param y the edge Y coordinate
+     * @return the index of the edge
+     */
+    private int insertEdge(int y)
+    {
+        int pos = Arrays.binarySearch(edges, 0, edgeCount, y);
+        if (pos >= 0)
+            return pos; //already present
+        pos = -pos - 1;
+        if (edgeCount == edges.length)
+        {
+            final int len = edges.length * 2;
+            edges = Arrays.copyOf(edges, len);
+            widths = Arrays.copyOf(widths, len);
+            bottoms = Arrays.copyOf(bottoms, len);
+        }
+        System.arraycopy(edges, pos, edges, pos + 1, edgeCount - pos);
+        System.arraycopy(widths, pos, widths, pos + 1, edgeCount - pos);
+        System.arraycopy(bottoms, pos, bottoms, pos + 1, edgeCount - pos);
+        edges[pos] = y;
+        edgeCount++;
+        //the new interval [pos, pos+1) is a part of the interval [pos-1, pos+1) that has been split
+        if (pos > 0 && pos < edgeCount - 1)
+        {
+            widths[pos] = widths[pos - 1];
+            bottoms[pos] = bottoms[pos - 1];
+        }
+        else
+        {
+            widths[pos] = 0;
+            bottoms[pos] = 0;
+        }
+        return pos;
+    }
     
 }
@@ -0,0 +1,234 @@
+/*
+ * FontAdvanceCache.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 10:05:17
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.font.FontRenderContext;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide cache of character advance widths for the used fonts. The widths are stored
+ * for each font (including its size and style) and font rendering context so that the text widths
+ * may be computed by summing the cached values instead of calling {@link FontMetrics#stringWidth(String)}
+ * for each substring.
+ * <p>
+ * The cached widths are only used when they give exactly the same results as the font metrics:
+ * for fonts with integral advances (no fractional metrics and no transformation) and for the
+ * characters that do not require a complex text layout. Otherwise, the widths are obtained
+ * from the font metrics directly.
+ */
+public class FontAdvanceCache
+{
+    /** The characters below this limit never require a complex text layout */
+    private static final int SIMPLE_CHAR_LIMIT = 0x0300;
+
+    /** The maximal number of cached fonts; the cache is cleared when exceeded */
+    private static final int MAX_FONTS = 1024;
+
+    /** A sample text used for checking whether the widths are additive */
+    private static final String SAMPLE = "The quick brown fox jumps over the lazy dog 0123456789 (WAVE)";
+
+    private static final ConcurrentHashMap<Key, Advances> cache = new ConcurrentHashMap<Key, Advances>();
+
+    /**
+     * Obtains the cached advances for the font used by the given font metrics.
+     * @param fm the font metrics
+     * @return the corresponding advances
+     */
+    public static Advances getAdvances(FontMetrics fm)
+    {
+        final Key key = new Key(fm.getFont(), fm.getFontRenderContext());
+        Advances ret = cache.get(key);
+        if (ret == null)
+        {
+            if (cache.size() >= MAX_FONTS)
+                cache.clear();
+            ret = new Advances(fm);
+            Advances prev = cache.putIfAbsent(key, ret);
+            if (prev != null)
+                ret = prev;
+        }
+        return ret;
+    }
+
+    /**
+     * Removes all the cached fonts.
+     */
+    public static void clear()
+    {
+        cache.clear();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Character advances of a single font.
+     */
+    public static class Advances
+    {
+        private final FontMetrics fm;
+        private final boolean additive;
+        private final int[] widths;
+
+        private Advances(FontMetrics fm)
+        {
+            this.fm = fm;
+            this.widths = new int[SIMPLE_CHAR_LIMIT];
+            Arrays.fill(widths, -1);
+            this.additive = checkAdditive();
+        }
+
+        /**
+         * Checks whether the cached advances may be used for this font.
+         * @return {@code true} when the string widths may be computed by summing the character widths
+         */
+        public boolean isAdditive()
+        {
+            return additive;
+        }
+
+        /**
+         * Obtains the font metrics used for obtaining the advances.
+         * @return the font metrics
+         */
+        public FontMetrics getFontMetrics()
+        {
+            return fm;
+        }
+
+        /**
+         * Computes the width of a substring.
+         * @param text the source string
+         * @param start the start index (inclusive)
+         * @param end the end index (exclusive)
+         * @return the width in pixels
+         */
+        public int stringWidth(String text, int start, int end)
+        {
+            if (additive)
+            {
+                int ret = 0;
+                for (int i = start; i < end; i++)
+                {
+                    final int w = charWidth(text.charAt(i));
+                    if (w < 0)
+                        return fm.stringWidth(text.substring(start, end));
+                    ret += w;
+                }
+                return ret;
+            }
+            else
+                return fm.stringWidth(text.substring(start, end));
+        }
+
+        /**
+         * Computes the cumulative widths of all the prefixes of the given string. For the
+         * resulting array {@code p}, the width of the substring {@code [s, e)} is {@code p[e] - p[s]}.
+         * @param text the source string
+         * @return the array of {@code text.length() + 1} prefix widths or {@code null} when the
+         * widths cannot be computed this way for the given text and font.
+         */
+        public int[] prefixWidths(String text)
+        {
+            if (additive)
+            {
+                final int[] ret = new int[text.length() + 1];
+                for (int i = 0; i < text.length(); i++)
+                {
+                    final int w = charWidth(text.charAt(i));
+                    if (w < 0)
+                        return null;
+                    ret[i + 1] = ret[i] + w;
+                }
+                return ret;
+            }
+            else
+                return null;
+        }
+
+        /**
+         * Obtains the advance of a single character.
+         * @param ch the character
+         * @return the advance in pixels or -1 when the character requires a complex text layout
+         */
+        private int charWidth(char ch)
+        {
+            if (ch < SIMPLE_CHAR_LIMIT)
+            {
+                int w = widths[ch];
+                if (w < 0)
+                {
+                    w = fm.charWidth(ch);
+                    widths[ch] = w; //possible concurrent writes store the same value
+                }
+                return w;
+            }
+            else
+                return -1;
+        }
+
+        private boolean checkAdditive()
+        {
+            final Font font = fm.getFont();
+            final FontRenderContext frc = fm.getFontRenderContext();
+            if (font.hasLayoutAttributes() || font.isTransformed()
+                    || frc.usesFractionalMetrics() || !frc.getTransform().isIdentity())
+                return false;
+            int sum = 0;
+            for (int i = 0; i < SAMPLE.length(); i++)
+                sum += fm.charWidth(SAMPLE.charAt(i));
+            return sum == fm.stringWidth(SAMPLE);
+        }
+    }
+
+    //=====================================================================================
+
+    static class Key
+    {
+        private final Font font;
+        private final FontRenderContext frc;
+        private final int hash;
+
+        public Key(Font font, FontRenderContext frc)
+        {
+            this.font = font;
+            this.frc = frc;
+            this.hash = 31 * font.hashCode() + (frc == null ? 0 : frc.hashCode());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            final Key other = (Key) obj;
+            return font.equals(other.font) && (frc == null ? other.frc == null : frc.equals(other.frc));
+        }
+    }
+
+}
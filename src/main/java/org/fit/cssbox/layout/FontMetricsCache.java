@@ -0,0 +1,142 @@
+/*
+ * FontMetricsCache.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 21:14:08
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A process-wide cache of the basic metrics of the used fonts. The metrics are stored for each font
+ * (including its size and style) and font rendering context so that the visual contexts of the boxes
+ * that use the same font do not have to obtain the font metrics and measure the ex height repeatedly.
+ */
+public class FontMetricsCache
+{
+    /** The maximal number of cached fonts; the cache is cleared when exceeded */
+    private static final int MAX_FONTS = 1024;
+
+    /** The rendering context used for measuring the ex height (independent on the graphics) */
+    private static final FontRenderContext EX_FRC = new FontRenderContext(null, false, false);
+
+    private static final ConcurrentHashMap<FontAdvanceCache.Key, Metrics> cache = new ConcurrentHashMap<FontAdvanceCache.Key, Metrics>();
+
+    /**
+     * Obtains the metrics of a font used with the given graphics.
+     * @param font the font
+     * @param g the graphics the font is used with
+     * @return the corresponding font metrics
+     */
+    public static Metrics getMetrics(Font font, Graphics2D g)
+    {
+        final FontAdvanceCache.Key key = new FontAdvanceCache.Key(font, g.getFontRenderContext());
+        Metrics ret = cache.get(key);
+        if (ret == null)
+        {
+            if (cache.size() >= MAX_FONTS)
+                cache.clear();
+            ret = new Metrics(g.getFontMetrics(font));
+            Metrics prev = cache.putIfAbsent(key, ret);
+            if (prev != null)
+                ret = prev;
+        }
+        return ret;
+    }
+
+    /**
+     * Removes all the cached fonts.
+     */
+    public static void clear()
+    {
+        cache.clear();
+    }
+
+    //=====================================================================================
+
+    /**
+     * The immutable metrics of a single font.
+     */
+    public static class Metrics
+    {
+        private final int ascent;
+        private final int height;
+        private final double ex;
+        private final double ch;
+        private final int spaceWidth;
+
+        private Metrics(FontMetrics fm)
+        {
+            ascent = fm.getAscent();
+            height = fm.getHeight();
+            ex = new TextLayout("x", fm.getFont(), EX_FRC).getBounds().getHeight();
+            ch = fm.charWidth('0');
+            spaceWidth = fm.charWidth(' ');
+        }
+
+        /**
+         * Obtains the distance from the line top to the baseline.
+         * @return the font ascent in pixels
+         */
+        public int getAscent()
+        {
+            return ascent;
+        }
+
+        /**
+         * Obtains the normal text line height.
+         * @return the line height in pixels
+         */
+        public int getHeight()
+        {
+            return height;
+        }
+
+        /**
+         * Obtains the height of the 'x' character.
+         * @return the 'ex' value in pixels
+         */
+        public double getEx()
+        {
+            return ex;
+        }
+
+        /**
+         * Obtains the width of the '0' character.
+         * @return the 'ch' value in pixels
+         */
+        public double getCh()
+        {
+            return ch;
+        }
+
+        /**
+         * Obtains the width of the space character.
+         * @return the space width in pixels
+         */
+        public int getSpaceWidth()
+        {
+            return spaceWidth;
+        }
+    }
+
+}
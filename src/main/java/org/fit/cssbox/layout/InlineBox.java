@@ -62,6 +62,14 @@ public class InlineBox extends ElementBox implements InlineElement
     /** Collapsed to an empty box by ws collapsing during the layout? */
     protected boolean collapsedCompletely;
     
+    /** Cached minimal width and the viewport width revision it is valid for */
+    private int minWidth;
+    private long minWidthRevision = -1;
+    
+    /** Cached maximal width and the viewport width revision it is valid for */
+    private int maxWidth;
+    private long maxWidthRevision = -1;
+    
     //========================================================================
     
     /** Creates a new instance of InlineBox */
@@ -293,6 +301,13 @@ public class InlineBox extends ElementBox implements InlineElement
             return true;
         }
 
+        //restore the children taken by the splitted boxes if we are doing a new layout
+        if (!splitted && endChild != nested.size())
+        {
+            setEndChild(nested.size());
+            adoptChildren();
+        }
+        
         setAvailableWidth(availw);
         
         curline = new LineBox(this, startChild, 0);
@@ -430,8 +445,33 @@ public class InlineBox extends ElementBox implements InlineElement
         }
     }
 
+    @Override
+    protected void invalidateWidths()
+    {
+        super.invalidateWidths();
+        minWidthRevision = -1;
+        maxWidthRevision = -1;
+    }
+    
     @Override
     public int getMinimalWidth()
+    {
+        if (viewport == null)
+            return computeMinimalWidth();
+        final long rev = viewport.getWidthRevision();
+        if (minWidthRevision != rev)
+        {
+            minWidth = computeMinimalWidth();
+            minWidthRevision = rev;
+        }
+        return minWidth;
+    }
+    
+    /**
+     * Computes the minimal width of the box from the contained sub-boxes.
+     * @return the minimal width
+     */
+    protected int computeMinimalWidth()
     {
         int ret = 0;
         if (allowsWrapping())
@@ -474,6 +514,23 @@ public class InlineBox extends ElementBox implements InlineElement
     
     @Override
     public int getMaximalWidth()
+    {
+        if (viewport == null)
+            return computeMaximalWidth();
+        final long rev = viewport.getWidthRevision();
+        if (maxWidthRevision != rev)
+        {
+            maxWidth = computeMaximalWidth();
+            maxWidthRevision = rev;
+        }
+        return maxWidth;
+    }
+    
+    /**
+     * Computes the maximal width of the box from the contained sub-boxes.
+     * @return the maximal width
+     */
+    protected int computeMaximalWidth()
     {
         int ret = 0;
         if (!preservesLineBreaks())
@@ -631,6 +688,7 @@ public class InlineBox extends ElementBox implements InlineElement
     @Override
     protected void loadSizes()
     {
+        widthsChanged();
         CSSDecoder dec = new CSSDecoder(ctx);
         
         //containing box sizes
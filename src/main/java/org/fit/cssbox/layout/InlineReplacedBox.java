@@ -173,6 +173,7 @@ public class InlineReplacedBox extends InlineBox implements ReplacedBox
     public void updateSizes()
     {
         loadSizeInfo();
+        widthsChanged();
     }
     
     private void loadSizeInfo()
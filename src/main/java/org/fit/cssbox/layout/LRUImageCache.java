@@ -0,0 +1,418 @@
+/*
+ * LRUImageCache.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 9:12:40
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An image cache with a limited memory budget. The size of each image is estimated from
+ * its decoded pixel data and the least recently used images are evicted when the budget
+ * is exceeded. The failed image URLs are remembered for a limited time only so that
+ * they may be loaded again later. The images decoded for a particular used size are cached
+ * separately from the full size images and share the same budget together with the cached encoded
+ * image data (see {@link SizedImageCache#putData(URL, byte[])}). The cache may be shared
+ * by multiple viewports (through a shared {@link BrowserConfig}) in multiple threads.
+ */
+public class LRUImageCache implements SizedImageCache
+{
+    /** Default memory budget [bytes] */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Default time to remember the failed URLs [ms] */
+    public static final long DEFAULT_FAILED_TTL = 60000;
+
+    /** Bytes per pixel used when the real pixel size cannot be determined */
+    private static final int DEFAULT_PIXEL_BYTES = 4;
+
+    private final long maxBytes;
+    private final long failedTTL;
+
+    /** Cached images in the access order (the eldest entry is the least recently used one).
+     * The keys are either URL strings (full size images), {@link SizedKey}s or {@link DataKey}s.
+     * The URLs themselves are not used as keys because their comparison resolves the host names. */
+    private final LinkedHashMap<Object, Entry> cache;
+    /** Failed URLs with their expiration time */
+    private final Map<String, Long> failed;
+
+    private long currentBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache with the default memory budget and failed entry timeout.
+     */
+    public LRUImageCache()
+    {
+        this(DEFAULT_MAX_BYTES, DEFAULT_FAILED_TTL);
+    }
+
+    /**
+     * Creates a cache with the given limits.
+     * @param maxBytes the maximal total size of the cached decoded images in bytes
+     * @param failedTTL the time in miliseconds for which the failed URLs are remembered.
+     * Zero or negative value means that the failed URLs are not remembered at all.
+     */
+    public LRUImageCache(long maxBytes, long failedTTL)
+    {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("The cache size must be positive");
+        this.maxBytes = maxBytes;
+        this.failedTTL = failedTTL;
+        cache = new LinkedHashMap<Object, Entry>(64, 0.75f, true);
+        failed = new HashMap<String, Long>();
+    }
+
+    @Override
+    public synchronized void put(URL uri, Image image)
+    {
+        final String key = uri.toString();
+        failed.remove(key);
+        store(key, image);
+    }
+
+    @Override
+    public synchronized Image get(URL uri)
+    {
+        return lookup(uri.toString());
+    }
+
+    @Override
+    public synchronized void put(URL uri, int width, int height, Image image)
+    {
+        store(new SizedKey(uri, width, height), image);
+    }
+
+    @Override
+    public synchronized Image get(URL uri, int width, int height)
+    {
+        return lookup(new SizedKey(uri, width, height));
+    }
+
+    @Override
+    public synchronized void putData(URL uri, byte[] data)
+    {
+        final DataKey key = new DataKey(uri);
+        final Entry old = cache.remove(key);
+        if (old != null)
+            currentBytes -= old.size;
+        if (data.length <= maxBytes)
+        {
+            cache.put(key, new Entry(data));
+            currentBytes += data.length;
+            evict();
+        }
+    }
+
+    @Override
+    public synchronized byte[] getData(URL uri)
+    {
+        final Entry entry = lookupEntry(new DataKey(uri));
+        return (entry == null) ? null : entry.data;
+    }
+
+    private Image lookup(Object key)
+    {
+        final Entry entry = lookupEntry(key);
+        return (entry == null) ? null : entry.image;
+    }
+
+    private Entry lookupEntry(Object key)
+    {
+        final Entry entry = cache.get(key);
+        if (entry != null)
+            hits++;
+        else
+            misses++;
+        return entry;
+    }
+
+    @Override
+    public synchronized void putFailed(URL uri)
+    {
+        if (failedTTL > 0)
+            failed.put(uri.toString(), System.currentTimeMillis() + failedTTL);
+    }
+
+    @Override
+    public synchronized boolean hasFailed(URL uri)
+    {
+        final String key = uri.toString();
+        final Long expires = failed.get(key);
+        if (expires != null)
+        {
+            if (expires > System.currentTimeMillis())
+                return true;
+            else
+                failed.remove(key);
+        }
+        return false;
+    }
+
+    /**
+     * Removes all the cached images and failed URLs. The statistics are preserved.
+     */
+    public synchronized void clear()
+    {
+        cache.clear();
+        failed.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * Removes the expired entries from the failed URL list.
+     */
+    public synchronized void purgeFailed()
+    {
+        final long now = System.currentTimeMillis();
+        for (Iterator<Long> it = failed.values().iterator(); it.hasNext(); )
+        {
+            if (it.next() <= now)
+                it.remove();
+        }
+    }
+
+    //====================================================================================
+
+    /**
+     * Obtains the maximal total size of the cached images.
+     * @return the size in bytes
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Obtains the time for which the failed URLs are remembered.
+     * @return the time in miliseconds
+     */
+    public long getFailedTTL()
+    {
+        return failedTTL;
+    }
+
+    /**
+     * Obtains the estimated total size of the currently cached images.
+     * @return the size in bytes
+     */
+    public synchronized long getCurrentBytes()
+    {
+        return currentBytes;
+    }
+
+    /**
+     * Obtains the number of currently cached images including the images decoded for particular sizes
+     * and the cached encoded image data.
+     * @return the image count
+     */
+    public synchronized int getImageCount()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Obtains the number of {@link #get(URL)} calls that found the image in the cache.
+     * @return the hit count
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Obtains the number of {@link #get(URL)} calls that did not find the image in the cache.
+     * @return the miss count
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Obtains the number of images that have been removed from the cache in order
+     * to fit into the memory budget.
+     * @return the eviction count
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public synchronized void resetStats()
+    {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "LRUImageCache[images=" + cache.size() + " bytes=" + currentBytes + "/" + maxBytes
+                + " hits=" + hits + " misses=" + misses + " evictions=" + evictions + "]";
+    }
+
+    //====================================================================================
+
+    private void store(Object key, Image image)
+    {
+        final long size = estimateSize(image);
+        final Entry old = cache.remove(key);
+        if (old != null)
+            currentBytes -= old.size;
+        if (size <= maxBytes) //images larger than the whole budget are not cached at all
+        {
+            cache.put(key, new Entry(image, size));
+            currentBytes += size;
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used images until the cache fits into the budget.
+     */
+    private void evict()
+    {
+        for (Iterator<Entry> it = cache.values().iterator(); currentBytes > maxBytes && it.hasNext(); )
+        {
+            final Entry entry = it.next();
+            it.remove();
+            currentBytes -= entry.size;
+            evictions++;
+        }
+    }
+
+    /**
+     * Estimates the memory occupied by the decoded image data.
+     * @param image the image
+     * @return the estimated size in bytes
+     */
+    protected long estimateSize(Image image)
+    {
+        if (image instanceof BufferedImage)
+        {
+            final BufferedImage bimg = (BufferedImage) image;
+            int bits = bimg.getColorModel().getPixelSize();
+            int bytes = (bits + 7) / 8;
+            if (bytes <= 0) bytes = DEFAULT_PIXEL_BYTES;
+            return (long) bimg.getWidth() * bimg.getHeight() * bytes;
+        }
+        else
+        {
+            final int w = image.getWidth(null);
+            final int h = image.getHeight(null);
+            if (w > 0 && h > 0)
+                return (long) w * h * DEFAULT_PIXEL_BYTES;
+            else
+                return DEFAULT_PIXEL_BYTES; //unknown size yet
+        }
+    }
+
+    //====================================================================================
+
+    private static class Entry
+    {
+        public final Image image;
+        public final byte[] data;
+        public final long size;
+
+        public Entry(Image image, long size)
+        {
+            this.image = image;
+            this.data = null;
+            this.size = size;
+        }
+
+        public Entry(byte[] data)
+        {
+            this.image = null;
+            this.data = data;
+            this.size = data.length;
+        }
+    }
+
+    /**
+     * The key of an image decoded for a particular used size.
+     */
+    private static class SizedKey
+    {
+        private final String url;
+        private final int width;
+        private final int height;
+
+        public SizedKey(URL url, int width, int height)
+        {
+            this.url = url.toString();
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (url.hashCode() * 31 + width) * 31 + height;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (!(obj instanceof SizedKey)) return false;
+            SizedKey other = (SizedKey) obj;
+            return width == other.width && height == other.height && url.equals(other.url);
+        }
+    }
+
+    /**
+     * The key of the encoded image data.
+     */
+    private static class DataKey
+    {
+        private final String url;
+
+        public DataKey(URL url)
+        {
+            this.url = url.toString();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return url.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return (obj instanceof DataKey) && url.equals(((DataKey) obj).url);
+        }
+    }
+
+}
@@ -0,0 +1,317 @@
+/*
+ * LayoutEngine.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 15:08:33
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.net.URL;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.fit.cssbox.render.GraphicsRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+
+/**
+ * The layout engine that computes the box tree of a document without any AWT component and without
+ * allocating the page image. The text is measured using a measurement-only graphics context backed
+ * by a single-pixel image. Painting the resulting boxes is a separate optional step that may be
+ * performed by {@link #draw(Graphics2D)} or {@link #renderImage()} or by using any
+ * {@link org.fit.cssbox.render.BoxRenderer} on the resulting {@link Viewport}.
+ */
+public class LayoutEngine
+{
+    private static Logger log = LoggerFactory.getLogger(LayoutEngine.class);
+
+    protected Element root;
+    protected DOMAnalyzer decoder;
+    protected URL baseurl;
+    protected Viewport viewport;
+
+    protected BrowserConfig config;
+    protected boolean autoSizeUpdate;
+    protected boolean autoMediaUpdate;
+
+    /**
+     * Creates a new instance of the layout engine for a document. After creating the engine,
+     * the layout itself may be computed by calling {@link #createLayout(Dimension)}.
+     * @param root the root element of the document to be rendered
+     * @param decoder the CSS decoder used to compute the style
+     * @param baseurl the document base URL
+     */
+    public LayoutEngine(Element root, DOMAnalyzer decoder, URL baseurl)
+    {
+        this.root = root;
+        this.decoder = decoder;
+        this.baseurl = baseurl;
+        this.config = new BrowserConfig();
+        this.autoSizeUpdate = true;
+        this.autoMediaUpdate = true;
+    }
+
+    /**
+     * Obtains the current browser configuration.
+     * @return current configuration.
+     */
+    public BrowserConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * Sets the browser configuration used for rendering.
+     * @param config the new configuration.
+     */
+    public void setConfig(BrowserConfig config)
+    {
+        this.config = config;
+    }
+
+    /**
+     * After creating the layout, the root box of the document can be accessed through this method.
+     * @return the root box of the rendered document. Normally, it corresponds to the &lt;html&gt; element
+     */
+    public ElementBox getRootBox()
+    {
+        if (viewport == null)
+            return null;
+        else
+            return viewport.getRootBox();
+    }
+
+    /**
+     * After creating the layout, the viewport box can be accessed through this method.
+     * @return the viewport box. This box provides a container of all the rendered boxes.
+     */
+    public Viewport getViewport()
+    {
+        return viewport;
+    }
+
+    /**
+     * Enables or disables the automatic viewport size update according to its contents. This is enabled by default.
+     * @param b <code>true</code> for enable, <code>false</code> for disable.
+     */
+    public void setAutoSizeUpdate(boolean b)
+    {
+        autoSizeUpdate = b;
+    }
+
+    /**
+     * Checks whether the automatic viewport size update is enabled.
+     * @return <code>true</code> when enabled
+     */
+    public boolean getAutoSizeUpdate()
+    {
+        return autoSizeUpdate;
+    }
+
+    /**
+     * Enables or disables automatic updating of the display area size specified in the current media specification.
+     * When enabled, the size in the media specification is updated automatically when
+     * {@link #createLayout(Dimension, Rectangle)} is called. By default, the automatic update is enabled.
+     * @param autoMediaUpdate {@code true} when enabled.
+     */
+    public void setAutoMediaUpdate(boolean autoMediaUpdate)
+    {
+        this.autoMediaUpdate = autoMediaUpdate;
+    }
+
+    /**
+     * Checks whether the automatic media update is enabled.
+     * @return {@code true} if enabled.
+     */
+    public boolean getAutoMediaUpdate()
+    {
+        return autoMediaUpdate;
+    }
+
+    //=====================================================================================
+
+    /**
+     * Creates the document layout according to the given viewport size where the visible area size
+     * is equal to the whole canvas. If the size of the resulting page is greater than the specified
+     * one, the viewport size is updated automatically.
+     * @param dim the viewport size
+     * @return the resulting viewport
+     */
+    public Viewport createLayout(Dimension dim)
+    {
+        return createLayout(dim, new Rectangle(dim));
+    }
+
+    /**
+     * Creates the document layout according to the canvas and viewport size and position. If the size
+     * of the resulting page is greater than the specified one, the total canvas size is updated automatically.
+     * @param dim the total canvas size
+     * @param visibleRect the viewport (the visible area) size and position
+     * @return the resulting viewport
+     */
+    public Viewport createLayout(Dimension dim, Rectangle visibleRect)
+    {
+        createBoxTree(dim, visibleRect);
+        computeLayout(dim);
+        return viewport;
+    }
+
+    /**
+     * Recomputes the layout of the existing box tree for a new canvas size where the visible area size
+     * is equal to the whole canvas.
+     * @param dim the new viewport size
+     * @return the resulting viewport
+     * @see #relayout(Dimension, Rectangle)
+     */
+    public Viewport relayout(Dimension dim)
+    {
+        return relayout(dim, new Rectangle(dim));
+    }
+
+    /**
+     * Recomputes the layout of the existing box tree for a new canvas and viewport size. The box tree
+     * and the computed styles created by a previous call of {@link #createLayout(Dimension, Rectangle)}
+     * are reused and only the layout is computed again. When the automatic media update is enabled and
+     * the new visible area size changes the result of some media query, the styles and the box tree
+     * have to be created again and this method is equivalent to {@link #createLayout(Dimension, Rectangle)}.
+     * The same applies when no layout has been created yet.
+     * @param dim the total canvas size
+     * @param visibleRect the viewport (the visible area) size and position
+     * @return the resulting viewport
+     */
+    public Viewport relayout(Dimension dim, Rectangle visibleRect)
+    {
+        if (viewport == null
+                || (autoMediaUpdate && decoder.isMediaChanged(visibleRect.width, visibleRect.height)))
+        {
+            return createLayout(dim, visibleRect);
+        }
+        else
+        {
+            if (autoMediaUpdate) //keep the media specification consistent, the styles remain the same
+                decoder.getMediaSpec().setDimensions(visibleRect.width, visibleRect.height);
+            log.trace("Reusing the box tree");
+            viewport.setSize(dim.width, dim.height);
+            viewport.setVisibleRect(visibleRect);
+            computeLayout(dim);
+            return viewport;
+        }
+    }
+
+    /**
+     * Creates the box tree without computing the layout. This is the first part of
+     * {@link #createLayout(Dimension, Rectangle)}; the layout should be computed by
+     * {@link #computeLayout(Dimension)} afterwards.
+     * @param dim the total canvas size
+     * @param visibleRect the viewport (the visible area) size and position
+     * @return the resulting viewport
+     */
+    public Viewport createBoxTree(Dimension dim, Rectangle visibleRect)
+    {
+        if (autoMediaUpdate)
+        {
+            decoder.getMediaSpec().setDimensions(visibleRect.width, visibleRect.height);
+            decoder.recomputeStyles();
+        }
+
+        log.trace("Creating boxes");
+        BoxFactory factory = new BoxFactory(decoder, baseurl);
+        factory.setConfig(config);
+        factory.reset();
+        VisualContext ctx = new VisualContext(null, factory);
+        viewport = factory.createViewportTree(root, createMeasurementGraphics(), ctx, dim.width, dim.height);
+        log.trace("We have " + factory.next_order + " boxes");
+        viewport.setVisibleRect(visibleRect);
+        viewport.initSubtree();
+        return viewport;
+    }
+
+    /**
+     * Computes the layout and the absolute positions of the boxes created by
+     * {@link #createBoxTree(Dimension, Rectangle)}.
+     * @param dim the total canvas size
+     */
+    public void computeLayout(Dimension dim)
+    {
+        log.trace("Layout for "+dim.width+"px");
+        viewport.doLayout(dim.width, true, true);
+        log.trace("Resulting size: " + viewport.getWidth() + "x" + viewport.getHeight() + " (" + viewport + ")");
+
+        if (autoSizeUpdate)
+        {
+            log.trace("Updating viewport size");
+            viewport.updateBounds(dim);
+            log.trace("Resulting size: " + viewport.getWidth() + "x" + viewport.getHeight() + " (" + viewport + ")");
+        }
+
+        log.trace("Positioning for "+viewport.getWidth()+"x"+viewport.getHeight()+"px");
+        viewport.absolutePositions();
+    }
+
+    /**
+     * Updates the visible area position and recomputes the absolute positions of the boxes.
+     * @param visibleRect the new visible area
+     */
+    public void updateVisibleArea(Rectangle visibleRect)
+    {
+        viewport.setVisibleRect(visibleRect);
+        viewport.absolutePositions();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Draws the viewport background and all the boxes using the given graphics context.
+     * @param g the target graphics context
+     */
+    public void draw(Graphics2D g)
+    {
+        viewport.drawBackground(g);
+        GraphicsRenderer r = new GraphicsRenderer(g);
+        viewport.draw(r);
+        r.close();
+    }
+
+    /**
+     * Creates a new image of the whole page and draws the boxes to it.
+     * @return the page image
+     */
+    public BufferedImage renderImage()
+    {
+        BufferedImage img = new BufferedImage(Math.max(viewport.getWidth(), 1),
+                                              Math.max(viewport.getHeight(), 1),
+                                              BufferedImage.TYPE_INT_RGB);
+        Graphics2D ig = img.createGraphics();
+        draw(ig);
+        ig.dispose();
+        return img;
+    }
+
+    /**
+     * Creates a graphics context used for measuring the text during the layout. The context
+     * is backed by a single-pixel image so that no page raster is allocated.
+     * @return the new graphics context
+     */
+    public static Graphics2D createMeasurementGraphics()
+    {
+        return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+    }
+
+}
@@ -22,6 +22,7 @@ package org.fit.cssbox.layout;
 import java.awt.FontMetrics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.Rectangle2D;
 
@@ -40,6 +41,8 @@ public class ListItemBox extends BlockBox
 {
     private static final String[] RCODE = {"M", "CM", "D", "CD", "C", "XC", "L", "XL", "X", "IX", "V", "IV", "I"};
     private static final int[] BVAL = {1000, 900, 500, 400, 100, 90, 50, 40, 10, 9, 5, 4, 1};
+    /** The maximal expected width of a bullet or text marker in ems (used for the paint bounds) */
+    private static final int MARKER_EXTENT = 8;
     
     /** List style type */
     private CSSProperty.ListStyleType styleType;
@@ -112,6 +115,25 @@ public class ListItemBox extends BlockBox
     	}
     }
     
+    @Override
+    protected void computePaintBounds()
+    {
+        super.computePaintBounds();
+        if (hasVisibleBullet() || image != null)
+        {
+            //the marker is drawn to the left of the content box
+            final int em = (int) Math.ceil(ctx.getEm());
+            int w = MARKER_EXTENT * em;
+            int h = 0;
+            if (image != null)
+            {
+                w = Math.max(w, image.getIntrinsicWidth() + em);
+                h = image.getIntrinsicHeight();
+            }
+            paintBounds.add(new Rectangle(getAbsoluteContentX() - w, getAbsoluteContentY() - h, w, h + Math.max(content.height, em)));
+        }
+    }
+    
     /**
      * Checks whether the list item has a visible bullet.
      * @return <code>true</code> when the bullet type is set to other value than <code>none</code>.
@@ -76,7 +76,10 @@ public class ReplacedImage extends ContentImage
             if (loadImages && !src.trim().isEmpty())
             {
                 // get image object (may not have picture data)
-                image = loadImage(caching);
+                if (downsampling)
+                    loadImageInfo(caching); //decode later for the used size
+                else
+                    image = loadImage(caching);
             }
         } catch (MalformedURLException e) {
             log.error("URL: " + e.getMessage());
@@ -94,7 +97,12 @@ public class ReplacedImage extends ContentImage
     {
         Rectangle bounds = getOwner().getAbsoluteContentBounds();
 
-        if (image != null)
+        if (isDownsampled())
+        {
+            ctx.updateGraphics(g);
+            g.drawImage(getImage(width, height), bounds.x, bounds.y, width, height, observer);
+        }
+        else if (image != null)
         {
             // *_SOME_ transparent animated gifs*,
             // may not erase previous frame of animation
@@ -118,8 +118,8 @@ public class ReplacedText extends ReplacedContent
             encoding = decoder.getCharacterEncoding();
         decoder.setDefaultEncoding(encoding);
         decoder.attributesToStyles();
-        decoder.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT);
-        decoder.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT);
+        decoder.addStyleSheet(CSSNorm.parsedStdStyleSheet());
+        decoder.addStyleSheet(CSSNorm.parsedUserStyleSheet());
         decoder.getStyleSheets();
     }
     
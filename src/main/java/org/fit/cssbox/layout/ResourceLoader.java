@@ -0,0 +1,728 @@
+/*
+ * ResourceLoader.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 18:41:09
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.fit.cssbox.css.FontDecoder;
+import org.fit.cssbox.css.FontTable;
+import org.fit.cssbox.io.DocumentSource;
+import org.fit.net.DataURLHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import cz.vutbr.web.css.CSSProperty;
+import cz.vutbr.web.css.MediaQuery;
+import cz.vutbr.web.css.MediaSpec;
+import cz.vutbr.web.css.NetworkProcessor;
+import cz.vutbr.web.css.NodeData;
+import cz.vutbr.web.css.RuleFontFace;
+import cz.vutbr.web.css.TermURI;
+import cz.vutbr.web.csskit.antlr4.CSSParserFactory;
+
+/**
+ * A loader of the external resources of a document (images, style sheets and fonts) that fetches
+ * the resources concurrently using a bounded pool of threads. The resources may be requested early
+ * (e.g. by scanning the DOM and the computed styles using the {@code prefetch} methods) and obtained
+ * later when they are needed by the box tree; the network latencies of the individual resources
+ * therefore overlap. Each resource is fetched only once, the number of concurrent connections
+ * to a single host is limited. The requests that exceed the limit are queued and started when
+ * another request to the same host finishes so that they do not occupy the pool threads. Similarly,
+ * the images and fonts are decoded by the pool only after their data has been fetched.
+ * <p>
+ * The loader is used for loading the resources of a document when it is set in the browser
+ * configuration using {@link BrowserConfig#setResourceLoader(ResourceLoader)}. It may be also used
+ * as a {@link NetworkProcessor} for loading the style sheets. The resources are obtained using
+ * the document sources created by the browser configuration. The loader should be closed
+ * using {@link #close()} when the document has been rendered.
+ */
+public class ResourceLoader implements NetworkProcessor, Closeable
+{
+    private static Logger log = LoggerFactory.getLogger(ResourceLoader.class);
+
+    /** The default number of threads of the pool created by the loader */
+    public static final int DEFAULT_THREADS = 8;
+    /** The default limit of concurrent connections to a single host */
+    public static final int DEFAULT_HOST_CONNECTIONS = 6;
+
+    private final BrowserConfig config;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final int maxHostConnections;
+
+    //the maps are keyed by the URL strings; URL.equals() and URL.hashCode() resolve the host names
+    private final ConcurrentMap<String, HostQueue> hostQueues;
+    private final ConcurrentMap<String, DataTask> data;
+    private final ConcurrentMap<String, Future<BufferedImage>> images;
+    private final ConcurrentMap<String, Future<Font>> fonts;
+
+    /**
+     * Creates a loader that uses its own pool with the default number of threads and the default
+     * limit of connections per host.
+     * @param config the browser configuration used for creating the document sources
+     */
+    public ResourceLoader(BrowserConfig config)
+    {
+        this(config, Executors.newFixedThreadPool(DEFAULT_THREADS, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "cssbox-fetch");
+                t.setDaemon(true);
+                return t;
+            }
+        }), DEFAULT_HOST_CONNECTIONS, true);
+    }
+
+    /**
+     * Creates a loader that uses an existing executor. The executor is not shut down by {@link #close()}
+     * so that it may be shared by the loaders of multiple documents.
+     * @param config the browser configuration used for creating the document sources
+     * @param executor the executor used for fetching the resources
+     * @param maxHostConnections the maximal number of resources fetched concurrently from a single host
+     */
+    public ResourceLoader(BrowserConfig config, ExecutorService executor, int maxHostConnections)
+    {
+        this(config, executor, maxHostConnections, false);
+    }
+
+    private ResourceLoader(BrowserConfig config, ExecutorService executor, int maxHostConnections, boolean ownExecutor)
+    {
+        if (maxHostConnections <= 0)
+            throw new IllegalArgumentException("The number of connections must be positive");
+        this.config = config;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.maxHostConnections = maxHostConnections;
+        hostQueues = new ConcurrentHashMap<String, HostQueue>();
+        data = new ConcurrentHashMap<String, DataTask>();
+        images = new ConcurrentHashMap<String, Future<BufferedImage>>();
+        fonts = new ConcurrentHashMap<String, Future<Font>>();
+    }
+
+    public int getMaxHostConnections()
+    {
+        return maxHostConnections;
+    }
+
+    //=====================================================================================
+
+    /**
+     * Starts fetching the contents of a resource unless it has been already requested.
+     * @param url the resource URL
+     * @return the future contents of the resource
+     */
+    public Future<byte[]> requestData(final URL url)
+    {
+        return getDataTask(url);
+    }
+
+    /**
+     * Starts fetching and decoding an image unless it has been already requested. The image data
+     * is shared with {@link #requestData(URL)} so that the image is downloaded only once.
+     * @param url the image URL
+     * @return the future image. The result is {@code null} when the image cannot be decoded.
+     */
+    public Future<BufferedImage> requestImage(final URL url)
+    {
+        final String key = url.toString();
+        Future<BufferedImage> ret = images.get(key);
+        if (ret == null)
+        {
+            final DataTask source = getDataTask(url);
+            FutureTask<BufferedImage> task = new FutureTask<BufferedImage>(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() throws IOException, FontFormatException
+                {
+                    return decodeImage(url, waitFor(source));
+                }
+            });
+            ret = images.putIfAbsent(key, task);
+            if (ret == null)
+            {
+                ret = task;
+                source.whenDone(task);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Starts fetching and decoding a font unless it has been already requested. The font data
+     * is shared with {@link #requestData(URL)}.
+     * @param url the font URL
+     * @param format the font format as specified in the style sheet or {@code null}
+     * @return the future font
+     */
+    public Future<Font> requestFont(final URL url, final String format)
+    {
+        final String key = url.toString();
+        Future<Font> ret = fonts.get(key);
+        if (ret == null)
+        {
+            final DataTask source = getDataTask(url);
+            FutureTask<Font> task = new FutureTask<Font>(new Callable<Font>() {
+                @Override
+                public Font call() throws IOException, FontFormatException
+                {
+                    return FontDecoder.decodeFont(new ByteArrayInputStream(waitFor(source)), format);
+                }
+            });
+            ret = fonts.putIfAbsent(key, task);
+            if (ret == null)
+            {
+                ret = task;
+                source.whenDone(task);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Obtains the contents of a resource. Waits until the resource is fetched.
+     * @param url the resource URL
+     * @return the resource contents
+     * @throws IOException when the resource cannot be fetched
+     */
+    public byte[] getData(URL url) throws IOException
+    {
+        try
+        {
+            return waitFor(requestData(url));
+        } catch (FontFormatException e) {
+            throw new IOException(e); //should not happen
+        }
+    }
+
+    /**
+     * Obtains an image. Waits until the image is fetched and decoded.
+     * @param url the image URL
+     * @return the image or {@code null} when the image cannot be fetched or decoded or when the loader
+     * has been closed
+     */
+    public BufferedImage getImage(URL url)
+    {
+        try
+        {
+            return waitFor(requestImage(url));
+        } catch (IOException | FontFormatException e) {
+            log.error("Unable to get image from: " + url);
+            log.error(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtains a font. Waits until the font is fetched and decoded.
+     * @param url the font URL
+     * @param format the font format as specified in the style sheet or {@code null}
+     * @return the font
+     * @throws IOException when the font cannot be fetched
+     * @throws FontFormatException when the font cannot be decoded
+     */
+    public Font getFont(URL url, String format) throws IOException, FontFormatException
+    {
+        return waitFor(requestFont(url, format));
+    }
+
+    /**
+     * Fetches a style sheet for the CSS parser.
+     */
+    @Override
+    public InputStream fetch(URL url) throws IOException
+    {
+        return new ByteArrayInputStream(getData(url));
+    }
+
+    /**
+     * Cancels the pending requests and stops the pool threads if the pool has been created by this loader.
+     */
+    @Override
+    public void close()
+    {
+        cancelAll(data);
+        cancelAll(images);
+        cancelAll(fonts);
+        if (ownExecutor)
+            executor.shutdown();
+    }
+
+    //=====================================================================================
+
+    /**
+     * Scans the document for the referenced content images and external style sheets and starts
+     * fetching them. The images are only fetched when the image loading is enabled in the configuration.
+     * When the images are decoded at their used size (see {@link BrowserConfig#setImageDownsampling(boolean)}),
+     * only the encoded image data is fetched; the images are decoded later when their size is known.
+     * The style sheets are only fetched when their {@code media} attribute matches the given media
+     * specification so that the style sheets skipped by the analyzer are not downloaded.
+     * @param root the document root element
+     * @param base the document base URL
+     * @param media the media specification used by the analyzer for loading the style sheets
+     */
+    public void prefetchDocument(Element root, URL base, MediaSpec media)
+    {
+        final String name = root.getNodeName().toLowerCase();
+        if (name.equals("img") || (name.equals("input") && root.getAttribute("type").equalsIgnoreCase("image")))
+        {
+            String src = root.getAttribute("src").trim();
+            if (config.getLoadImages() && !src.isEmpty())
+            {
+                if (config.getImageDownsampling())
+                    prefetchImageData(createURL(base, src));
+                else
+                    prefetchImage(createURL(base, src));
+            }
+        }
+        else if (name.equals("link"))
+        {
+            String rel = " " + root.getAttribute("rel").toLowerCase() + " ";
+            String href = root.getAttribute("href").trim();
+            String type = root.getAttribute("type").trim();
+            if (rel.contains(" stylesheet ") && !href.isEmpty()
+                    && (type.isEmpty() || type.equalsIgnoreCase("text/css"))
+                    && isAllowedMedia(root.getAttribute("media"), media))
+            {
+                URL url = createURL(base, href);
+                if (url != null)
+                    requestData(url);
+            }
+        }
+        NodeList children = root.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++)
+        {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE)
+                prefetchDocument((Element) child, base, media);
+        }
+    }
+
+    /**
+     * Starts fetching the fonts defined by the {@code @font-face} rules of the loaded style sheets.
+     * Only the fonts in supported formats that have not been registered yet are fetched.
+     * @param table the table of the fonts defined in the style sheets
+     */
+    public void prefetchFonts(FontTable table)
+    {
+        for (List<RuleFontFace.Source> srcs : table.values())
+        {
+            for (RuleFontFace.Source src : srcs)
+            {
+                if (src instanceof RuleFontFace.SourceURL)
+                {
+                    TermURI urlstring = ((RuleFontFace.SourceURL) src).getURI();
+                    String format = ((RuleFontFace.SourceURL) src).getFormat();
+                    if (format == null || FontDecoder.supportedFormats.contains(format))
+                    {
+                        URL url = createURL(urlstring.getBase(), urlstring.getValue());
+                        if (url != null && FontDecoder.findRegisteredFont(url) == null)
+                            requestFont(url, format);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the computed styles of the document elements for the background and list marker images
+     * and starts fetching them. The styles must have been computed by the analyzer before.
+     * @param root the root element of the scanned subtree
+     * @param decoder the analyzer used for computing the styles
+     */
+    public void prefetchStyles(Element root, DOMAnalyzer decoder)
+    {
+        NodeData style = decoder.getElementStyleInherited(root);
+        if (style != null)
+            prefetchStyle(style);
+        NodeList children = root.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++)
+        {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE)
+                prefetchStyles((Element) child, decoder);
+        }
+    }
+
+    /**
+     * Starts fetching the background and list marker images used in a single computed style.
+     * This is used by the box tree creation when the styles are computed on demand
+     * (see {@link DOMAnalyzer#setLazyStyles(boolean)}) and they cannot be scanned in advance.
+     * @param style the computed element style
+     */
+    public void prefetchStyle(NodeData style)
+    {
+        if (config.getLoadBackgroundImages()
+                && style.getProperty("background-image") == CSSProperty.BackgroundImage.uri)
+            prefetchImage(style.getValue(TermURI.class, "background-image"));
+        if (config.getLoadImages()
+                && style.getProperty("list-style-image") == CSSProperty.ListStyleImage.uri)
+            prefetchImage(style.getValue(TermURI.class, "list-style-image"));
+    }
+
+    //=====================================================================================
+
+    /**
+     * Checks whether the value of the {@code media} attribute matches the media specification
+     * the same way as the analyzer does when loading the style sheets.
+     */
+    private boolean isAllowedMedia(String attr, MediaSpec media)
+    {
+        attr = attr.trim();
+        if (attr.isEmpty())
+            return media.matchesEmpty();
+        List<MediaQuery> queries = CSSParserFactory.getInstance().parseMediaQuery(attr);
+        return queries != null && media.matchesOneOf(queries);
+    }
+
+    private void prefetchImage(TermURI urlstring)
+    {
+        if (urlstring != null)
+            prefetchImage(createURL(urlstring.getBase(), urlstring.getValue()));
+    }
+
+    private void prefetchImage(URL url)
+    {
+        if (url != null)
+        {
+            //skip the images that are already available
+            ImageCache cache = config.getImageCache();
+            if (cache == null || (cache.get(url) == null && !cache.hasFailed(url)))
+                requestImage(url);
+        }
+    }
+
+    private void prefetchImageData(URL url)
+    {
+        if (url != null)
+        {
+            //skip the images that are already available
+            ImageCache cache = config.getImageCache();
+            if (cache == null || (cache.get(url) == null && !cache.hasFailed(url)
+                    && !(cache instanceof SizedImageCache && ((SizedImageCache) cache).getData(url) != null)))
+                requestData(url);
+        }
+    }
+
+    /**
+     * Obtains the task that fetches the contents of a resource. A new task is created and queued
+     * when the resource has not been requested yet.
+     */
+    private DataTask getDataTask(final URL url)
+    {
+        final String key = url.toString();
+        DataTask ret = data.get(key);
+        if (ret == null)
+        {
+            DataTask task = new DataTask(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException
+                {
+                    return download(url);
+                }
+            });
+            ret = data.putIfAbsent(key, task);
+            if (ret == null)
+            {
+                ret = task;
+                final HostQueue queue = getHostQueue(url);
+                if (queue != null)
+                    queue.submit(task);
+                else if (!execute(task))
+                    task.cancel(false);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Submits a task to the executor.
+     * @return {@code false} when the executor does not accept any tasks anymore
+     */
+    private boolean execute(Runnable task)
+    {
+        try
+        {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false; //the executor has been shut down
+        }
+    }
+
+    private <T> T waitFor(Future<T> future) throws IOException, FontFormatException
+    {
+        try
+        {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a resource");
+        } catch (CancellationException e) {
+            throw new IOException("The request has been cancelled by closing the loader");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            else if (cause instanceof FontFormatException)
+                throw (FontFormatException) cause;
+            else if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new IOException(cause);
+        }
+    }
+
+    private void cancelAll(ConcurrentMap<String, ? extends Future<?>> map)
+    {
+        for (Future<?> future : map.values())
+            future.cancel(false);
+    }
+
+    /**
+     * Fetches the contents of a resource.
+     */
+    private byte[] download(URL url) throws IOException
+    {
+        try (DocumentSource src = config.createDocumentSource(url))
+        {
+            if (src == null)
+                throw new IOException("Couldn't obtain the document source for " + url);
+            InputStream in = src.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                out.write(buffer, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private HostQueue getHostQueue(URL url)
+    {
+        final String host = url.getHost();
+        if (host == null || host.isEmpty())
+            return null; //local resources are not limited
+        HostQueue ret = hostQueues.get(host);
+        if (ret == null)
+        {
+            HostQueue newQueue = new HostQueue();
+            ret = hostQueues.putIfAbsent(host, newQueue);
+            if (ret == null)
+                ret = newQueue;
+        }
+        return ret;
+    }
+
+    private BufferedImage decodeImage(URL url, byte[] bytes) throws IOException
+    {
+        BufferedImage image = null;
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes));
+        try
+        {
+            Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(imageInputStream);
+            if (!imageReaders.hasNext())
+                log.warn("No image readers for URL: " + url);
+            while (image == null && imageReaders.hasNext())
+            {
+                ImageReader reader = imageReaders.next();
+                try
+                {
+                    imageInputStream.seek(0);
+                    reader.setInput(imageInputStream);
+                    image = reader.read(0);
+                } catch (Exception e) {
+                    log.error("Image decoding error: " + e.getMessage() + " with reader " + reader);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } finally {
+            imageInputStream.close();
+        }
+        return image;
+    }
+
+    private URL createURL(URL base, String urlstring)
+    {
+        try
+        {
+            return DataURLHandler.createURL(base, urlstring);
+        } catch (MalformedURLException e) {
+            log.warn("Malformed resource URL {} ({})", urlstring, e.getMessage());
+            return null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid resource URL {} ({})", urlstring, e.getMessage());
+            return null;
+        }
+    }
+
+    //=====================================================================================
+
+    /**
+     * A task fetching the contents of a resource. The tasks that process the contents are submitted
+     * to the executor when the contents is available.
+     */
+    private class DataTask extends FutureTask<byte[]>
+    {
+        private List<FutureTask<?>> dependents = new ArrayList<FutureTask<?>>();
+
+        public DataTask(Callable<byte[]> callable)
+        {
+            super(callable);
+        }
+
+        /**
+         * Submits a task to the executor when this task is finished.
+         * @param task the task that uses the fetched contents
+         */
+        public void whenDone(FutureTask<?> task)
+        {
+            synchronized (this)
+            {
+                if (dependents != null)
+                {
+                    dependents.add(task);
+                    return;
+                }
+            }
+            if (!execute(task))
+                task.cancel(false);
+        }
+
+        @Override
+        protected void done()
+        {
+            final List<FutureTask<?>> tasks;
+            synchronized (this)
+            {
+                tasks = dependents;
+                dependents = null;
+            }
+            for (FutureTask<?> task : tasks)
+            {
+                if (!execute(task))
+                    task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * The fetching tasks of a single host. At most {@code maxHostConnections} tasks are submitted
+     * to the executor at the same time; the remaining ones wait in the queue.
+     */
+    private class HostQueue
+    {
+        private final Queue<FutureTask<?>> waiting = new ArrayDeque<FutureTask<?>>();
+        private int running; //the number of submitted tasks that have not finished yet
+
+        public void submit(FutureTask<?> task)
+        {
+            synchronized (this)
+            {
+                if (running >= maxHostConnections)
+                {
+                    waiting.add(task);
+                    return;
+                }
+                running++;
+            }
+            if (!start(task))
+                finished();
+        }
+
+        private boolean start(final FutureTask<?> task)
+        {
+            final boolean ret = execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        task.run();
+                    } finally {
+                        finished();
+                    }
+                }
+            });
+            if (!ret)
+                task.cancel(false);
+            return ret;
+        }
+
+        /**
+         * Starts the next waiting task when a submitted task has finished.
+         */
+        private void finished()
+        {
+            while (true)
+            {
+                final FutureTask<?> next;
+                synchronized (this)
+                {
+                    next = waiting.poll();
+                    if (next == null)
+                    {
+                        running--;
+                        return;
+                    }
+                }
+                if (start(next))
+                    return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * SizedImageCache.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 20:27:51
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Image;
+import java.net.URL;
+
+/**
+ * An image cache that is able to store the images decoded for a particular used size
+ * in addition to the full size images. The images of different sizes obtained from the same URL
+ * are cached independently. The encoded image data may be cached as well so that the image
+ * may be decoded for another used size without downloading it again.
+ */
+public interface SizedImageCache extends ImageCache
+{
+    /**
+     * Stores an image decoded for the given used size.
+     * @param uri the image URL
+     * @param width the used width the image has been decoded for
+     * @param height the used height the image has been decoded for
+     * @param image the decoded image
+     */
+    void put(URL uri, int width, int height, Image image);
+
+    /**
+     * Obtains an image decoded for the given used size.
+     * @param uri the image URL
+     * @param width the used width
+     * @param height the used height
+     * @return the cached image or {@code null} when there is no image of this size in the cache
+     */
+    Image get(URL uri, int width, int height);
+
+    /**
+     * Stores the encoded data of an image.
+     * @param uri the image URL
+     * @param data the encoded image data
+     */
+    void putData(URL uri, byte[] data);
+
+    /**
+     * Obtains the encoded data of an image.
+     * @param uri the image URL
+     * @return the encoded data or {@code null} when the data is not in the cache
+     */
+    byte[] getData(URL uri);
+}
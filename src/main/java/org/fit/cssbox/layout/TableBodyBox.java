@@ -41,6 +41,14 @@ public class TableBodyBox extends BlockBox
     /** cell spacing */
     protected int spacing = 2;
     
+    /** Cached minimal width and the viewport width revision it is valid for */
+    private int minWidth;
+    private long minWidthRevision = -1;
+    
+    /** Cached maximal width and the viewport width revision it is valid for */
+    private int maxWidth;
+    private long maxWidthRevision = -1;
+    
     //====================================================================================
     
     /**
@@ -105,6 +113,7 @@ public class TableBodyBox extends BlockBox
     public void setSpacing(int spacing)
     {
     	this.spacing = spacing;
+    	widthsChanged();
     }
     
     /**
@@ -126,8 +135,33 @@ public class TableBodyBox extends BlockBox
     
     //====================================================================================
     
+    @Override
+    protected void invalidateWidths()
+    {
+        super.invalidateWidths();
+        minWidthRevision = -1;
+        maxWidthRevision = -1;
+    }
+    
     @Override
     public int getMaximalWidth()
+    {
+        if (viewport == null)
+            return computeMaximalWidth();
+        final long rev = viewport.getWidthRevision();
+        if (maxWidthRevision != rev)
+        {
+            maxWidth = computeMaximalWidth();
+            maxWidthRevision = rev;
+        }
+        return maxWidth;
+    }
+
+    /**
+     * Computes the maximal width of the body from the maximal widths of the columns.
+     * @return the maximal width
+     */
+    protected int computeMaximalWidth()
     {
         int sum = spacing;
         for (int i = 0; i < numCols; i++)
@@ -137,6 +171,23 @@ public class TableBodyBox extends BlockBox
 
     @Override
     public int getMinimalWidth()
+    {
+        if (viewport == null)
+            return computeMinimalWidth();
+        final long rev = viewport.getWidthRevision();
+        if (minWidthRevision != rev)
+        {
+            minWidth = computeMinimalWidth();
+            minWidthRevision = rev;
+        }
+        return minWidth;
+    }
+    
+    /**
+     * Computes the minimal width of the body from the minimal widths of the columns.
+     * @return the minimal width
+     */
+    protected int computeMinimalWidth()
     {
         int sum = spacing;
         for (int i = 0; i < numCols; i++)
@@ -192,6 +243,27 @@ public class TableBodyBox extends BlockBox
         return ret;
     }
     
+    /**
+     * Reloads the sizes of all the cells in the body. This discards the widths assigned to the cells
+     * by a previous layout so that they are not considered to be the specified cell widths. The boxes
+     * splitted by the previous layout are removed so that the cell contents are measured correctly.
+     */
+    public void reloadCellSizes()
+    {
+        for (int r = 0; r < getRowCount(); r++)
+        {
+            for (int c = 0; c < getColumnCount(); c++)
+            {
+                TableCellBox cell = cells[c][r];
+                if (cell != null && cell.getColumn() == c && cell.getRow() == r) //the spanned cells only once
+                {
+                    cell.clearSplittedSubtree();
+                    cell.loadSizes();
+                }
+            }
+        }
+    }
+    
     /**
      * Checks the maximal and minimal width of the column, if the column has fixed width 
      * and if it is relative. Updates the appropriate information in the TableColumn 
@@ -513,6 +585,7 @@ public class TableBodyBox extends BlockBox
         for (int i = 0; i < rows.size(); i++)
             rows.elementAt(i).rewind();
         cells = new TableCellBox[numCols][rows.size()];
+        widthsChanged(); //new columns
         for (int c = 0; c < maxCells; c++)
         {
             for (int r = 0; r < rows.size(); r++)
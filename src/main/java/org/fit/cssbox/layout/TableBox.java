@@ -20,10 +20,13 @@
 package org.fit.cssbox.layout;
 
 import java.awt.Graphics2D;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 import org.fit.cssbox.css.HTMLNorm;
+import org.fit.cssbox.css.StyleSharing;
 import org.w3c.dom.Element;
 
 import cz.vutbr.web.css.CSSFactory;
@@ -60,6 +63,9 @@ public class TableBox extends BlockBox
     
     /** true if the column width have been already calculated */
     private boolean columnsCalculated = false;
+    
+    /** the copies of the declared columns before their widths have been calculated */
+    private Vector<TableColumn> declaredColumns;
 
     //====================================================================================
     
@@ -156,6 +162,7 @@ public class TableBox extends BlockBox
         content.width = maxw;
         content.height = y;
         setSize(totalWidth(), totalHeight());
+        widthsChanged();
         return true;
     }
     
@@ -166,6 +173,7 @@ public class TableBox extends BlockBox
         if (!update)
         {
             //create an important 'width' and 'height' styles for this element
+            List<Declaration> decls = new ArrayList<Declaration>(2);
             String width = HTMLNorm.getAttribute(getElement(), "width");
             if (!width.equals(""))
             {
@@ -177,7 +185,7 @@ public class TableBox extends BlockBox
                     dec.unlock();
                     dec.add(wspec);
                     dec.setImportant(true);
-                    style.push(dec);
+                    decls.add(dec);
                 }
             }
             String height = HTMLNorm.getAttribute(getElement(), "height");
@@ -191,9 +199,16 @@ public class TableBox extends BlockBox
                     dec.unlock();
                     dec.add(hspec);
                     dec.setImportant(true);
-                    style.push(dec);
+                    decls.add(dec);
                 }
             }
+            if (!decls.isEmpty())
+            {
+                //the style may be shared with the table wrapper box or the sibling tables (see StyleSharing)
+                style = StyleSharing.copyStyle(style);
+                for (Declaration dec : decls)
+                    style.push(dec);
+            }
             //TODO the table height is not applied yet
         }
         super.loadSizes(update);
@@ -265,7 +280,7 @@ public class TableBox extends BlockBox
     }
     
     @Override
-    protected int getMaximalContentWidth()
+    protected int computeMaximalContentWidth()
     {
         int ret = 0;
         if (header != null)
@@ -287,7 +302,7 @@ public class TableBox extends BlockBox
     }
 
     @Override
-    protected int getMinimalContentWidth()
+    protected int computeMinimalContentWidth()
     {
         int ret = 0;
         if (header != null)
@@ -331,6 +346,36 @@ public class TableBox extends BlockBox
     
     //====================================================================================
     
+    /**
+     * Prepares the table for a new layout pass. The column widths and the cell widths computed by
+     * a previous pass (e.g. for a different viewport size) are discarded so that the layout
+     * starts from the specified widths the same way as the first one.
+     */
+    public void resetLayout()
+    {
+        if (declaredColumns == null)
+        {
+            //the first layout: keep the declared column values
+            declaredColumns = new Vector<TableColumn>(columns.size());
+            for (TableColumn col : columns)
+                declaredColumns.add(col.copyBox());
+        }
+        else if (columnsCalculated)
+        {
+            //restore the declared columns and remove the anonymous ones
+            columns.setSize(declaredColumns.size());
+            for (int i = 0; i < declaredColumns.size(); i++)
+                columns.elementAt(i).copyValues(declaredColumns.elementAt(i));
+            if (header != null)
+                header.reloadCellSizes();
+            if (footer != null)
+                footer.reloadCellSizes();
+            for (Iterator<TableBodyBox> it = bodies.iterator(); it.hasNext(); )
+                it.next().reloadCellSizes();
+            columnsCalculated = false;
+        }
+    }
+    
     /**
      * Determine the number of columns for the whole table
      */
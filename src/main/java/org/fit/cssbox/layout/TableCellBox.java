@@ -179,6 +179,7 @@ public class TableCellBox extends BlockBox
         content.width = width - border.left - padding.left - padding.right - border.right;
         bounds.width = width;
         wset = true;
+        widthsChanged();
         updateChildSizes();
     }
     
@@ -278,6 +279,7 @@ public class TableCellBox extends BlockBox
     @Override
     protected void loadSizes(boolean update)
     {
+        widthsChanged();
         CSSDecoder dec = new CSSDecoder(ctx);
         
         //containing box sizes
@@ -216,6 +216,7 @@ public class TableRowBox extends BlockBox
     	}
     	//row occupies the whole body width
     	content.width = getContainingBlock().width;
+    	widthsChanged();
     }
 
     @Override
@@ -51,6 +51,12 @@ public class TextBox extends Box implements Inline
 
     /** The end index of the text substring to be displayed (excl) */
     protected int textEnd;
+    
+    /** The start index of the text before the layout (restored when a new layout starts) */
+    protected int initialTextStart;
+    
+    /** Collapsed to an empty box before the layout? (restored when a new layout starts) */
+    protected boolean initialCollapsed;
 
     /** Maximal total width */
     protected int maxwidth;
@@ -91,6 +97,18 @@ public class TextBox extends Box implements Inline
     /** Used text transformation */
     protected CSSProperty.TextTransform transform;
     
+    /** Cumulative widths of the text prefixes or {@code null} when not available (see {@link #textWidth(int, int)}) */
+    protected int[] prefixWidths;
+    
+    /** The font metrics used for computing the prefix widths */
+    protected FontMetrics prefixMetrics;
+    
+    /** Positions of the line break opportunities in the text (the starts of the space sequences) */
+    protected int[] breaks;
+    
+    /** Use the binary search for finding the line breaks when possible? */
+    protected boolean fastLineBreaking;
+    
     
     //===================================================================
     
@@ -114,6 +132,8 @@ public class TextBox extends Box implements Inline
         containsLineBreak = false;
         lineBreakStop = false;
         collapsedCompletely = false;
+        initialCollapsed = false;
+        fastLineBreaking = true;
     }
 
     /**
@@ -133,6 +153,10 @@ public class TextBox extends Box implements Inline
         longestLineLength = src.longestLineLength;
         containsLineBreak = src.containsLineBreak;
         transform = src.transform;
+        prefixWidths = src.prefixWidths; //the same text, the arrays are never modified
+        prefixMetrics = src.prefixMetrics;
+        breaks = src.breaks;
+        fastLineBreaking = src.fastLineBreaking;
     }
     
     /** 
@@ -228,6 +252,7 @@ public class TextBox extends Box implements Inline
         computeLineLengths();
         minwidth = computeMinimalWidth();
         maxwidth = computeMaximalWidth();
+        widthsChanged();
     }
     
     /**
@@ -237,8 +262,12 @@ public class TextBox extends Box implements Inline
     private void applyWhiteSpace()
     {
         text = applyTransformations(collapseWhitespaces(node.getNodeValue()));
+        prefixMetrics = null;
+        prefixWidths = null;
+        breaks = null;
         textStart = 0;
         textEnd = text.length();
+        initialTextStart = 0;
         isempty = (textEnd == 0);
     }
     
@@ -329,8 +358,12 @@ public class TextBox extends Box implements Inline
         if (last != -1)
         {
             text = text.substring(0, last);
+            prefixMetrics = null;
+            prefixWidths = null;
+            breaks = null;
             textStart = 0;
             textEnd = last;
+            initialTextStart = 0;
         }
     }
     
@@ -348,6 +381,7 @@ public class TextBox extends Box implements Inline
     protected void setTextStart(int index)
     {
         textStart = index;
+        initialTextStart = index;
     }
     
     /**
@@ -366,6 +400,28 @@ public class TextBox extends Box implements Inline
         textEnd = index;
     }
     
+    /**
+     * @return {@code true} when the line breaks are found using the binary search
+     */
+    public boolean getFastLineBreaking()
+    {
+        return fastLineBreaking;
+    }
+
+    /**
+     * Configures the way of finding the line breaks during the layout. When switched on (default),
+     * the break opportunities and the text widths are computed once for the whole text and the
+     * line break is found using the binary search. Otherwise, the text is shortened word by word
+     * until it fits to the line and the text widths are always measured using the font metrics.
+     * Both ways give the same results; the binary search is only used when the text widths may
+     * be obtained from the cached character advances (see {@link FontAdvanceCache}).
+     * @param fastLineBreaking {@code true} for using the binary search
+     */
+    public void setFastLineBreaking(boolean fastLineBreaking)
+    {
+        this.fastLineBreaking = fastLineBreaking;
+    }
+    
 	@Override
     public boolean affectsDisplay()
     {
@@ -558,10 +614,13 @@ public class TextBox extends Box implements Inline
                 textStart++;
             if (textStart == textEnd)
                 collapsedCompletely = true;
+            initialTextStart = textStart;
+            initialCollapsed = collapsedCompletely;
             //recompute widths (possibly different wrapping)
             computeLineLengths();
             minwidth = computeMinimalWidth();
             maxwidth = computeMaximalWidth();
+            widthsChanged();
         }
     }
     
@@ -596,9 +655,14 @@ public class TextBox extends Box implements Inline
             return true;
         }
         
-        //reset textEnd if we are doing a new layout
+        //reset the text range and the layout state if we are doing a new layout
         if (!splitted)
+        {
+            textStart = initialTextStart;
             textEnd = text.length();
+            collapsedCompletely = initialCollapsed;
+            lineBreakStop = false;
+        }
         
         setAvailableWidth(widthlimit);
         
@@ -607,7 +671,6 @@ public class TextBox extends Box implements Inline
         boolean fail = false; //failed totally (nothing fit)
         int wlimit = getAvailableContentWidth();
         boolean empty = isempty;
-        FontMetrics fm = g.getFontMetrics();
         int w = 0, h = 0;
         
         int end = textEnd;
@@ -633,41 +696,88 @@ public class TextBox extends Box implements Inline
                 }
             }
             //try to place the text
-            do
+            if (fastLineBreaking && getBreaks() != null)
             {
-                w = fm.stringWidth(text.substring(textStart, end));
-                h = fm.getHeight();
+                w = textWidth(textStart, end);
+                h = ctx.getFontHeight();
                 if (w > wlimit) //exceeded - try to split if allowed
                 {
                     if (empty) //empty or just spaces - don't place at all
                     {
                         w = 0; h = 0;
                         split = false;
-                        break;
                     }
-                    int wordend = text.substring(0, end).lastIndexOf(' '); //find previous word
-                    while (wordend > 0 && text.charAt(wordend-1) == ' ') wordend--; //skip trailing spaces
-                    if (wordend <= textStart || !splitws) //no previous word, cannot split or splitting not allowed
+                    else
                     {
-                        if (!force) //everything failed
+                        int wordend = splitws ? findFittingBreak(textStart, end, wlimit) : -1; //last word end that fits
+                        if (wordend != -1)
                         {
-                        	//System.out.println("Here for " + this);
-                            end = textEnd; //we will try with the whole rest next time
-                            split = false; 
-                            allow = false; //split before the linebreak
-                            fail = true;
+                            end = wordend;
+                            split = true;
+                            w = textWidth(textStart, end);
                         }
                         else
-                            split = true;
-                        break;
+                        {
+                            if (splitws) //nothing fits, use the shortest possible part (if any)
+                            {
+                                int first = findFirstBreak(textStart, end);
+                                if (first != -1)
+                                {
+                                    end = first;
+                                    w = textWidth(textStart, end);
+                                }
+                            }
+                            if (!force) //everything failed
+                            {
+                                end = textEnd; //we will try with the whole rest next time
+                                split = false; 
+                                allow = false; //split before the linebreak
+                                fail = true;
+                            }
+                            else
+                                split = true;
+                        }
                     }
-                    else
+                }
+            }
+            else
+            {
+                do
+                {
+                    w = textWidth(textStart, end);
+                    h = ctx.getFontHeight();
+                    if (w > wlimit) //exceeded - try to split if allowed
                     {
-                        end = wordend;
-                        split = true;
+                        if (empty) //empty or just spaces - don't place at all
+                        {
+                            w = 0; h = 0;
+                            split = false;
+                            break;
+                        }
+                        int wordend = text.substring(0, end).lastIndexOf(' '); //find previous word
+                        while (wordend > 0 && text.charAt(wordend-1) == ' ') wordend--; //skip trailing spaces
+                        if (wordend <= textStart || !splitws) //no previous word, cannot split or splitting not allowed
+                        {
+                            if (!force) //everything failed
+                            {
+                            	//System.out.println("Here for " + this);
+                                end = textEnd; //we will try with the whole rest next time
+                                split = false; 
+                                allow = false; //split before the linebreak
+                                fail = true;
+                            }
+                            else
+                                split = true;
+                            break;
+                        }
+                        else
+                        {
+                            end = wordend;
+                            split = true;
+                        }
                     }
-                }
-            } while (end > textStart && w > wlimit);
+                } while (end > textStart && w > wlimit);
+            }
         }
         textEnd = end;
         bounds.setSize(w, h);
@@ -707,6 +817,14 @@ public class TextBox extends Box implements Inline
         return !fail && ((textEnd > textStart) || empty || allow);
     }
     
+    @Override
+    protected void computePaintBounds()
+    {
+        //the glyphs may exceed the box (italic overhang, side bearings, accents); use a margin
+        final int m = ctx.getFontHeight() / 2;
+        paintBounds = new Rectangle(absbounds.x - m, absbounds.y - m, absbounds.width + 2 * m, absbounds.height + 2 * m);
+    }
+    
 	@Override
     public void absolutePositions()
     {
@@ -758,7 +876,7 @@ public class TextBox extends Box implements Inline
         if (linews)
         {
             //no preserved line breaks -- returns the lenth of the whole string
-            int len = g.getFontMetrics().stringWidth(getText());
+            int len = textWidth(textStart, textEnd);
             firstLineLength = len;
             lastLineLength = len;
             longestLineLength = len;
@@ -773,19 +891,17 @@ public class TextBox extends Box implements Inline
     private int getLongestWord()
     {
         int ret = 0;
-        String t = getText();
-        FontMetrics fm = g.getFontMetrics();
         
-        int s1 = 0;
-        int s2 = t.indexOf(' ');
+        int s1 = textStart;
+        int s2 = indexOf(' ', s1);
         do
         {
-            if (s2 == -1) s2 = t.length();
-            int w = fm.stringWidth(t.substring(s1, s2));
+            if (s2 == -1) s2 = textEnd;
+            int w = textWidth(s1, s2);
             if (w > ret) ret = w;
             s1 = s2 + 1;
-            s2 = t.indexOf(' ', s1);
-        } while (s1 < t.length() && s2 < t.length());
+            s2 = indexOf(' ', s1);
+        } while (s1 < textEnd && s2 < textEnd);
         
         return ret;
     }
@@ -836,13 +952,12 @@ public class TextBox extends Box implements Inline
     {
         if (text != null)
         {
-            FontMetrics fm = g.getFontMetrics();
             if (pos <= textStart)
                 return 0;
             else if (pos > textStart && pos < textEnd)
-                return fm.stringWidth(text.substring(textStart, pos));
+                return textWidth(textStart, pos);
             else
-                return fm.stringWidth(text.substring(textStart, textEnd));
+                return textWidth(textStart, textEnd);
         }
         else
             return 0;
@@ -857,26 +972,178 @@ public class TextBox extends Box implements Inline
         lastLineLength = 0;
         longestLineLength = 0;
         
-        String t = getText();
-        FontMetrics fm = g.getFontMetrics();
-        
-        int s1 = 0;
-        int s2 = t.indexOf('\r');
+        int s1 = textStart;
+        int s2 = indexOf('\r', s1);
         int w = 0;
         do
         {
             if (s2 == -1)
-                s2 = t.length();
+                s2 = textEnd;
             else
                 containsLineBreak = true;
-            w = fm.stringWidth(t.substring(s1, s2));
+            w = textWidth(s1, s2);
             if (firstLineLength == -1) firstLineLength = w;
             if (w > longestLineLength) longestLineLength = w;
             s1 = s2 + 1;
-            s2 = t.indexOf('\r', s1);
-        } while (s1 < t.length() && s2 < t.length());
+            s2 = indexOf('\r', s1);
+        } while (s1 < textEnd && s2 < textEnd);
         lastLineLength = w;
     }
+    
+    /**
+     * Computes the width of a substring of the text using the current font. When the fast line breaking
+     * is enabled, the widths are computed from the cached character advances when possible
+     * (see {@link FontAdvanceCache}).
+     * @param start the start index in the text string
+     * @param end the end index in the text string (not included)
+     * @return the width in pixels
+     */
+    protected int textWidth(int start, int end)
+    {
+        if (fastLineBreaking)
+        {
+            final FontMetrics fm = updatePrefixWidths();
+            if (prefixWidths != null)
+                return prefixWidths[end] - prefixWidths[start];
+            else
+                return fm.stringWidth(text.substring(start, end));
+        }
+        else
+            return g.getFontMetrics(ctx.getFont()).stringWidth(text.substring(start, end));
+    }
+    
+    /**
+     * Recomputes the prefix widths when the text or the font has changed.
+     * @return the current font metrics
+     */
+    private FontMetrics updatePrefixWidths()
+    {
+        final FontMetrics fm = g.getFontMetrics(ctx.getFont()); //the graphics may be shared with other boxes
+        if (fm != prefixMetrics)
+        {
+            if (prefixMetrics == null || !fm.getFont().equals(prefixMetrics.getFont())
+                    || !fm.getFontRenderContext().equals(prefixMetrics.getFontRenderContext()))
+                prefixWidths = FontAdvanceCache.getAdvances(fm).prefixWidths(text);
+            prefixMetrics = fm;
+        }
+        return fm;
+    }
+    
+    /**
+     * Obtains the positions of the line break opportunities in the text. A break opportunity
+     * is the start of each sequence of spaces.
+     * @return the sorted array of break positions or {@code null} when the text widths cannot be
+     * obtained from the prefix widths.
+     */
+    protected int[] getBreaks()
+    {
+        updatePrefixWidths();
+        if (prefixWidths == null)
+            return null;
+        if (breaks == null)
+        {
+            int cnt = 0;
+            for (int i = 0; i < text.length(); i++)
+                if (isBreak(i)) cnt++;
+            final int[] ret = new int[cnt];
+            cnt = 0;
+            for (int i = 0; i < text.length(); i++)
+                if (isBreak(i)) ret[cnt++] = i;
+            breaks = ret;
+        }
+        return breaks;
+    }
+    
+    /**
+     * Finds the last break opportunity in the given text range such that the text from the start
+     * to the break fits to the given width.
+     * @param start the start index in the text (the breaks at this index or before are not considered)
+     * @param end the end index in the text (not included)
+     * @param wlimit the maximal width
+     * @return the break position or -1 when there is no suitable break
+     */
+    private int findFittingBreak(int start, int end, int wlimit)
+    {
+        final int first = upperBound(breaks, start); //first break after start
+        final int last = lowerBound(breaks, end) - 1; //last break before end
+        final int limit = prefixWidths[start] + wlimit;
+        //the prefix widths are non-decreasing, find the last break with the width within the limit 
+        int lo = first;
+        int hi = last;
+        int ret = -1;
+        while (lo <= hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (prefixWidths[breaks[mid]] <= limit)
+            {
+                ret = breaks[mid];
+                lo = mid + 1;
+            }
+            else
+                hi = mid - 1;
+        }
+        return ret;
+    }
+    
+    /**
+     * Finds the first break opportunity in the given text range.
+     * @param start the start index in the text (the breaks at this index or before are not considered)
+     * @param end the end index in the text (not included)
+     * @return the break position or -1 when there is no break in the range
+     */
+    private int findFirstBreak(int start, int end)
+    {
+        final int first = upperBound(breaks, start);
+        if (first < breaks.length && breaks[first] < end)
+            return breaks[first];
+        else
+            return -1;
+    }
+    
+    /**
+     * Checks whether there is a line break opportunity at the given position.
+     */
+    private boolean isBreak(int pos)
+    {
+        return text.charAt(pos) == ' ' && (pos == 0 || text.charAt(pos - 1) != ' ');
+    }
+    
+    /**
+     * Finds the index of the first element of a sorted array that is greater or equal to the given value.
+     */
+    private static int lowerBound(int[] a, int value)
+    {
+        int lo = 0, hi = a.length;
+        while (lo < hi)
+        {
+            final int mid = (lo + hi) >>> 1;
+            if (a[mid] < value)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
+    /**
+     * Finds the index of the first element of a sorted array that is greater than the given value.
+     */
+    private static int upperBound(int[] a, int value)
+    {
+        return lowerBound(a, value + 1);
+    }
+    
+    /**
+     * Finds the first occurence of a character in the text string within the box bounds.
+     * @param ch the character to find
+     * @param from the index to start from
+     * @return the index of the character or -1 when not found before the text end index
+     */
+    private int indexOf(char ch, int from)
+    {
+        int ret = text.indexOf(ch, from);
+        return (ret < textEnd) ? ret : -1;
+    }
 
     /** 
      * Draw the text content of this box (no subboxes)
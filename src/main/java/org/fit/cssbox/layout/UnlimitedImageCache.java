@@ -9,7 +9,7 @@ import java.util.concurrent.ConcurrentHashMap;
  *
  * @author dedrakot. Based on Alessandro Tucci simple cache for storing already loaded images.
  */
-public class UnlimitedImageCache implements ImageCache
+public class UnlimitedImageCache implements SizedImageCache
 {
     private static ConcurrentHashMap<URL, Image> cache;
 
@@ -17,6 +17,18 @@ public class UnlimitedImageCache implements ImageCache
         cache = new ConcurrentHashMap<>();
     }
 
+    private static ConcurrentHashMap<String, Image> sizedCache;
+
+    static {
+        sizedCache = new ConcurrentHashMap<>();
+    }
+
+    private static ConcurrentHashMap<String, byte[]> dataCache;
+
+    static {
+        dataCache = new ConcurrentHashMap<>();
+    }
+
     private static ConcurrentHashMap<URL, Boolean> failed;
 
     static {
@@ -35,6 +47,30 @@ public class UnlimitedImageCache implements ImageCache
         return cache.get(uri);
     }
 
+    @Override
+    public void put(URL uri, int width, int height, Image image)
+    {
+        sizedCache.put(width + "x" + height + " " + uri, image);
+    }
+
+    @Override
+    public Image get(URL uri, int width, int height)
+    {
+        return sizedCache.get(width + "x" + height + " " + uri);
+    }
+
+    @Override
+    public void putData(URL uri, byte[] data)
+    {
+        dataCache.put(uri.toString(), data);
+    }
+
+    @Override
+    public byte[] getData(URL uri)
+    {
+        return dataCache.get(uri.toString());
+    }
+
     @Override
     public void putFailed(URL uri)
     {
@@ -54,7 +54,8 @@ public class Viewport extends BlockBox
 	
     protected BrowserConfig config;
 	private BoxFactory factory;
-	private BoxRenderer renderer;
+	private final ThreadLocal<BoxRenderer> renderer = new ThreadLocal<BoxRenderer>(); //the renderer used by the current drawing thread
+	private final ThreadLocal<Rectangle> drawArea = new ThreadLocal<Rectangle>(); //the area being drawn by the current thread
 	private Element root; //the DOM root
 	private ElementBox rootBox; //the box that corresponds to the root node. It should be one of the child boxes.
 	private ElementBox bgSrc; //source element for the background
@@ -62,6 +63,7 @@ public class Viewport extends BlockBox
     private int maxx; //maximal X position of all the content
     private int maxy; //maximal Y position of all the content
     private boolean recomputeAbs; //indicates that the absolute positions need to be recomputed
+    private long widthRevision; //incremented when the cached intrinsic widths of the boxes become invalid
     
     /**
      * Creates a new Viewport with the given initial size. The actual size may be increased during the layout. 
@@ -144,6 +146,28 @@ public class Viewport extends BlockBox
     {
         super.initSubtree();
         loadBackgroundFromContents();
+        nextWidthRevision(); //the subtree may have been reorganized
+    }
+    
+    /**
+     * Obtains the current revision of the box sizes and structure. The intrinsic (minimal and maximal)
+     * widths cached by the boxes are only valid for the revision they have been computed in.
+     * A new revision starts with each layout pass; the changes of the individual boxes during the layout
+     * only invalidate the widths cached by the affected subtrees (see {@link Box#widthsChanged()}).
+     * @return the current revision
+     */
+    public long getWidthRevision()
+    {
+        return widthRevision;
+    }
+    
+    /**
+     * Starts a new revision of the box sizes and structure. This invalidates all the intrinsic widths
+     * cached by the boxes in this viewport.
+     */
+    public void nextWidthRevision()
+    {
+        widthRevision++;
     }
     
     @Override
@@ -383,8 +407,12 @@ public class Viewport extends BlockBox
     @Override
     public boolean doLayout(int availw, boolean force, boolean linestart)
     {
-        //remove previously splitted children from possible previous layout
+        //start a new layout pass with no cached widths
+        nextWidthRevision();
+        
+        //remove previously splitted children and floats from possible previous layout
         clearSplitted();
+        setFloats(new FloatList(this), new FloatList(this), 0, 0, 0);
 
         //viewport has a siplified width computation algorithm
         int min = getMinimalContentWidth();
@@ -427,6 +455,7 @@ public class Viewport extends BlockBox
             scontext.clear();
 	    
 	    absolutePositionsChildren();
+	    computePaintBounds(); //update the paint bounds for the new positions
     }
 	
 	/**
@@ -455,17 +484,50 @@ public class Viewport extends BlockBox
      */
     public void draw(BoxRenderer renderer)
     {
-        this.renderer = renderer;
-        drawStackingContext(false);
+        draw(renderer, null);
+    }
+	
+    /**
+     * Sets the current renderer and draws the boxes that may paint anything in the given area. The subtrees
+     * whose paint bounds (see {@link Box#getPaintBounds()}) lie completely outside of the area are skipped.
+     * Multiple threads may draw the same viewport simultaneously using different renderers
+     * (e.g. different areas of the page).
+     * @param renderer The renderer to be used for drawing.
+     * @param area The area to be drawn in absolute coordinates or {@code null} for the whole visible part
+     * of the page (the clipped content bounds of the viewport).
+     */
+    public void draw(BoxRenderer renderer, Rectangle area)
+    {
+        final BoxRenderer oldRenderer = this.renderer.get();
+        final Rectangle oldArea = drawArea.get();
+        final Rectangle clip = getClippedContentBounds();
+        this.renderer.set(renderer);
+        drawArea.set((area == null) ? clip : area.intersection(clip));
+        try
+        {
+            drawStackingContext(false);
+        } finally {
+            this.renderer.set(oldRenderer);
+            drawArea.set(oldArea);
+        }
+    }
+	
+    /**
+     * Obtains the area being drawn by {@link #draw(BoxRenderer, Rectangle)} in the current thread.
+     * @return the drawn area in absolute coordinates or {@code null} when not drawing
+     */
+    public Rectangle getDrawArea()
+    {
+        return drawArea.get();
     }
 	
     /**
-     * Obtains the current renderer used for painting the boxes.
-     * @return current renderer.
+     * Obtains the renderer used for painting the boxes in the current thread.
+     * @return current renderer or {@code null} when not drawing.
      */
     public BoxRenderer getRenderer()
     {
-        return renderer;
+        return renderer.get();
     }
     
 	/**
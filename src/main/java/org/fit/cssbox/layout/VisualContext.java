@@ -21,8 +21,6 @@
 package org.fit.cssbox.layout;
 
 import java.awt.*;
-import java.awt.font.FontRenderContext;
-import java.awt.font.TextLayout;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -31,6 +29,7 @@ import java.util.List;
 
 import org.fit.cssbox.css.CSSUnits;
 import org.fit.cssbox.css.FontDecoder;
+import org.fit.cssbox.css.FontRegistry;
 import org.fit.cssbox.css.FontSpec;
 import org.fit.cssbox.io.DocumentSource;
 import org.fit.net.DataURLHandler;
@@ -58,7 +57,7 @@ public class VisualContext
     private BoxFactory factory; //the factory used for obtaining current configuration
     private Viewport viewport; //the viewport used for obtaining the vw sizes
     private Font font; //current font
-    private FontMetrics fm; //current font metrics
+    private FontMetricsCache.Metrics metrics; //current font metrics
     private double fontSize;
     private CSSProperty.FontWeight fontWeight;
     private CSSProperty.FontStyle fontStyle;
@@ -107,6 +106,7 @@ public class VisualContext
         ret.ch = ch;
         ret.dpi = dpi;
         ret.font = font;
+        ret.metrics = metrics;
         ret.fontSize = fontSize;
         ret.fontWeight = fontWeight;
         ret.fontStyle = fontStyle;
@@ -362,16 +362,12 @@ public class VisualContext
     {
         if (style != null) update(style);
         updateGraphics(g);
-        fm = g.getFontMetrics();
+        metrics = FontMetricsCache.getMetrics(font, g);
         
         //update the width units
         //em has been updated in update()
-        
-        FontRenderContext frc = new FontRenderContext(null, false, false);
-        TextLayout layout = new TextLayout("x", font, frc);
-        ex = layout.getBounds().getHeight();
-        
-        ch = fm.charWidth('0');
+        ex = metrics.getEx();
+        ch = metrics.getCh();
     }
     
     
@@ -383,7 +379,7 @@ public class VisualContext
      */
     public int getFontHeight()
     {
-        return fm.getHeight();
+        return metrics.getHeight();
     }
     
     /**
@@ -393,7 +389,16 @@ public class VisualContext
      */
     public int getBaselineOffset()
     {
-        return fm.getAscent();
+        return metrics.getAscent();
+    }
+    
+    /**
+     * Obtains the width of the space character in the current font.
+     * @return the space width in pixels
+     */
+    public int getSpaceWidth()
+    {
+        return metrics.getSpaceWidth();
     }
     
     /** 
@@ -573,11 +578,34 @@ public class VisualContext
     }
     
     /** 
-     * Scans a list of font definitions and chooses the first one that is available
+     * Scans a list of font definitions and chooses the first one that is available. When there are
+     * no fonts defined in the style sheets, the result depends on the system fonts only and it is
+     * shared among all the documents using the {@link FontRegistry}.
      * @param list of terms obtained from the font-family property
      * @return a font name string according to java.awt.Font
      */
     private String getFontName(TermList list, CSSProperty.FontWeight weight, CSSProperty.FontStyle style)
+    {
+        final long start = System.nanoTime();
+        String key = null;
+        if (!hasFontTable())
+        {
+            key = FontRegistry.createResolutionKey(list.toString(), weight, style);
+            String name = FontRegistry.getResolvedFamily(key);
+            if (name != null)
+            {
+                FontRegistry.recordResolution(System.nanoTime() - start, true);
+                return name;
+            }
+        }
+        String ret = resolveFontName(list, weight, style);
+        if (key != null)
+            FontRegistry.putResolvedFamily(key, ret);
+        FontRegistry.recordResolution(System.nanoTime() - start, false);
+        return ret;
+    }
+    
+    private String resolveFontName(TermList list, CSSProperty.FontWeight weight, CSSProperty.FontStyle style)
     {
         for (Term<?> term : list)
         {
@@ -604,7 +632,6 @@ public class VisualContext
      */
     private String lookupFont(String family, CSSProperty.FontWeight weight, CSSProperty.FontStyle style)
     {
-        final String systemFontNames[] = GraphicsEnvironment.getLocalGraphicsEnvironment().getAvailableFontFamilyNames();
         //try to look in the style font table
         String nameFound = null;
         FontSpec spec = new FontSpec(family, weight, style);
@@ -615,7 +642,7 @@ public class VisualContext
             {
                 if (src instanceof RuleFontFace.SourceLocal)
                 {
-                    String name = fontAvailable(((RuleFontFace.SourceLocal) src).getName(), systemFontNames);
+                    String name = FontRegistry.findSystemFamily(((RuleFontFace.SourceLocal) src).getName());
                     if (name != null)
                     {
                         nameFound = name;
@@ -634,10 +661,20 @@ public class VisualContext
                             String regName = FontDecoder.findRegisteredFont(url);
                             if (regName == null)
                             {
-                                DocumentSource imgsrc = viewport.getConfig().createDocumentSource(url);
-                                Font newFont = FontDecoder.decodeFont(imgsrc, format);
+                                final ResourceLoader loader = viewport.getConfig().getResourceLoader();
+                                Font newFont;
+                                if (loader != null)
+                                    newFont = loader.getFont(url, format); //the font may have been prefetched
+                                else
+                                {
+                                    DocumentSource imgsrc = viewport.getConfig().createDocumentSource(url);
+                                    newFont = FontDecoder.decodeFont(imgsrc, format);
+                                }
                                 if (GraphicsEnvironment.getLocalGraphicsEnvironment().registerFont(newFont))
+                                {
                                     log.debug("Registered font: {}", newFont.getFontName());
+                                    FontRegistry.invalidate(); //the available fonts have changed
+                                }
                                 else
                                     log.debug("Failed to register font: {} (not fatal, probably already existing)", newFont.getFontName());
                                 regName = newFont.getFontName();
@@ -658,12 +695,21 @@ public class VisualContext
         //if nothing found, try the system font names
         if (nameFound == null)
         {
-            nameFound = fontAvailable(family, systemFontNames);
+            nameFound = FontRegistry.findSystemFamily(family);
         }
         //create the font when found
         return nameFound;
     }
     
+    /**
+     * Checks whether there are some fonts defined in the style sheets that may influence the font lookup.
+     * @return {@code true} when the style sheets define some fonts
+     */
+    private boolean hasFontTable()
+    {
+        return factory != null && !factory.getDecoder().getFontTable().isEmpty();
+    }
+    
     private List<RuleFontFace.Source> findMatchingFontSources(FontSpec spec)
     {
         if (factory != null)
@@ -680,17 +726,7 @@ public class VisualContext
         if (style == CSSProperty.FontStyle.ITALIC || style == CSSProperty.FontStyle.OBLIQUE)
             fs = fs | Font.ITALIC;
         
-        return new Font(family, fs, size);
-    }
-    
-    /** Returns true if the font family is available.
-     * @return The exact name of the font family or null if it's not available
-     */
-    private String fontAvailable(String family, String[] avail)
-    {
-        for (int i = 0; i < avail.length; i++)
-            if (avail[i].equalsIgnoreCase(family)) return avail[i];
-        return null;
+        return FontRegistry.getFont(family, fs, size);
     }
 
     private PxEvaluator getPxEval()
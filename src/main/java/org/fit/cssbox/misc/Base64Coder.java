@@ -85,6 +85,38 @@ public static char[] encode (byte[] in, int iLen) {
       out[op] = op < oDataLen ? map1[o3] : '='; op++; }
    return out; }
 
+/**
+* Encodes a part of a byte array into Base64 format and stores the result to an existing array.
+* No blanks or line breaks are inserted. Padding is only produced when <code>iLen</code> is not
+* a multiple of 3, so that consecutive blocks may be encoded separately.
+* @param in   an array containing the data bytes to be encoded.
+* @param iOff the offset of the first byte to process in <code>in</code>.
+* @param iLen number of bytes to process in <code>in</code>.
+* @param out  the destination array. It must have at least <code>((iLen+2)/3)*4</code> characters
+*             available after <code>oOff</code>.
+* @param oOff the offset of the first character to write in <code>out</code>.
+* @return     The number of characters written to <code>out</code>.
+*/
+public static int encode (byte[] in, int iOff, int iLen, char[] out, int oOff) {
+   int oDataLen = (iLen*4+2)/3;       // output length without padding
+   int oLen = ((iLen+2)/3)*4;         // output length including padding
+   int ip = iOff;
+   int iEnd = iOff + iLen;
+   int op = 0;
+   while (ip < iEnd) {
+      int i0 = in[ip++] & 0xff;
+      int i1 = ip < iEnd ? in[ip++] & 0xff : 0;
+      int i2 = ip < iEnd ? in[ip++] & 0xff : 0;
+      int o0 = i0 >>> 2;
+      int o1 = ((i0 &   3) << 4) | (i1 >>> 4);
+      int o2 = ((i1 & 0xf) << 2) | (i2 >>> 6);
+      int o3 = i2 & 0x3F;
+      out[oOff + op++] = map1[o0];
+      out[oOff + op++] = map1[o1];
+      out[oOff + op] = op < oDataLen ? map1[o2] : '='; op++;
+      out[oOff + op] = op < oDataLen ? map1[o3] : '='; op++; }
+   return oLen; }
+
 /**
 * Decodes a string from Base64 format.
 * @param s  a Base64 String to be decoded.
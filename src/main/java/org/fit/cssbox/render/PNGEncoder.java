@@ -0,0 +1,561 @@
+/*
+ * PNGEncoder.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 17:58:20
+ */
+package org.fit.cssbox.render;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A streaming PNG encoder. The image is encoded in horizontal bands (strips of scanlines) as soon
+ * as the bands are available so that the complete page raster is never required. The bands
+ * may be obtained from a {@link TiledRenderer} (the encoder may be used directly as its
+ * {@link TiledRenderer.TileConsumer}) or passed as images using {@link #writeRows(BufferedImage)}.
+ * <p>
+ * The bands are filtered and compressed in parallel: each band is compressed by its own deflater
+ * and the compressed bands are concatenated to a single zlib stream (the bands are separated by
+ * a sync flush). The output is written to the output stream in the order of the bands. The encoding
+ * must be completed by calling {@link #finish()} or {@link #close()} after all the rows have been
+ * written. The output stream is not closed by the encoder.
+ * <p>
+ * The resulting image is a 8-bit RGB non-interlaced PNG.
+ */
+public class PNGEncoder implements TiledRenderer.TileConsumer, Closeable
+{
+    /** The number of rows of the bands used by {@link #writeImage(BufferedImage)} */
+    public static final int DEFAULT_BAND_HEIGHT = 128;
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+    private static final int BPP = 3; //bytes per pixel
+    private static final int ADLER_BASE = 65521;
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final int rowBytes;
+    private final ExecutorService pool;
+    private final boolean ownPool;
+    private final Queue<Future<Band>> pending;
+    private int level;
+
+    private byte[] band; //raw data of the band being filled
+    private int bandY; //the first row of the band being filled
+    private int bandRows; //the number of rows of the band being filled
+    private int nextRow; //the first row that has not been written yet
+    private byte[] lastRow; //the last raw row of the previous band (for filtering)
+    private long adler; //checksum of the uncompressed data written so far
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Creates an encoder that compresses the bands in its own pool with one thread
+     * for each available processor.
+     * @param out the output stream
+     * @param width the image width
+     * @param height the image height
+     */
+    public PNGEncoder(OutputStream out, int width, int height)
+    {
+        this(out, width, height, new ForkJoinPool(), true);
+    }
+
+    /**
+     * Creates an encoder that compresses the bands using the given executor.
+     * @param out the output stream
+     * @param width the image width
+     * @param height the image height
+     * @param pool the executor used for compressing the bands or {@code null} when the bands
+     * should be compressed in the calling thread.
+     */
+    public PNGEncoder(OutputStream out, int width, int height, ExecutorService pool)
+    {
+        this(out, width, height, pool, false);
+    }
+
+    /**
+     * Creates an encoder that writes to a channel (e.g. a {@code FileChannel}) and compresses the bands
+     * in its own pool with one thread for each available processor.
+     * @param channel the output channel
+     * @param width the image width
+     * @param height the image height
+     */
+    public PNGEncoder(WritableByteChannel channel, int width, int height)
+    {
+        this(Channels.newOutputStream(channel), width, height);
+    }
+
+    private PNGEncoder(OutputStream out, int width, int height, ExecutorService pool, boolean ownPool)
+    {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("The image size must be positive");
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.rowBytes = width * BPP;
+        this.pool = pool;
+        this.ownPool = ownPool;
+        this.pending = new ArrayDeque<Future<Band>>();
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.adler = 1;
+    }
+
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    /**
+     * Obtains the deflate compression level.
+     * @return the compression level (0-9) or {@code Deflater.DEFAULT_COMPRESSION}
+     */
+    public int getCompressionLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Sets the deflate compression level. The level must be set before writing the first rows.
+     * @param level the compression level (0-9) or {@code Deflater.DEFAULT_COMPRESSION}
+     */
+    public void setCompressionLevel(int level)
+    {
+        this.level = level;
+    }
+
+    //=====================================================================================
+
+    /**
+     * Encodes a complete image and finishes the encoding.
+     * @param image the image to be encoded. Its size must correspond to the encoder image size.
+     * @throws IOException when the output cannot be written
+     */
+    public void writeImage(BufferedImage image) throws IOException
+    {
+        if (image.getWidth() != width || image.getHeight() != height)
+            throw new IllegalArgumentException("The image size does not correspond to the encoder size");
+        for (int y = 0; y < height; y += DEFAULT_BAND_HEIGHT)
+        {
+            final int rows = Math.min(DEFAULT_BAND_HEIGHT, height - y);
+            startBand(y, rows);
+            copyPixels(image, 0, y, width, rows, 0);
+            finishBand();
+        }
+        finish();
+    }
+
+    /**
+     * Encodes the next rows of the image.
+     * @param rows the image that contains the rows. Its width must be equal to the encoder image width.
+     * @throws IOException when the output cannot be written
+     */
+    public void writeRows(BufferedImage rows) throws IOException
+    {
+        if (rows.getWidth() != width)
+            throw new IllegalArgumentException("The row width does not correspond to the image width");
+        startBand(nextRow, rows.getHeight());
+        copyPixels(rows, 0, 0, width, rows.getHeight(), 0);
+        finishBand();
+    }
+
+    /**
+     * Encodes a tile of the image. The tiles must be passed in the row-major order as produced
+     * by {@link TiledRenderer#render(TiledRenderer.TileConsumer)}; the tile row is encoded when its last
+     * tile is passed.
+     */
+    @Override
+    public void tileRendered(TiledRenderer.Tile tile) throws IOException
+    {
+        final Rectangle b = tile.getBounds();
+        if (b.x == 0)
+            startBand(b.y, b.height);
+        else if (band == null || b.y != bandY || b.height != bandRows)
+            throw new IllegalStateException("The tiles must be passed in the row-major order");
+        copyPixels(tile.getImage(), 0, 0, Math.min(b.width, width - b.x), b.height, b.x);
+        if (b.x + b.width >= width)
+            finishBand();
+    }
+
+    /**
+     * Waits for all the bands being compressed and writes the end of the image. All the image rows
+     * must have been written before.
+     * @throws IOException when the output cannot be written
+     */
+    public void finish() throws IOException
+    {
+        if (!finished)
+        {
+            if (nextRow != height || band != null)
+                throw new IllegalStateException("Incomplete image: " + nextRow + " of " + height + " rows written");
+            while (!pending.isEmpty())
+                writeBand(pending.poll());
+            writeChunk("IEND", new byte[0], 0);
+            out.flush();
+            finished = true;
+        }
+    }
+
+    /**
+     * Finishes the encoding when all the rows have been written and stops the pool threads if the pool
+     * has been created by this encoder. An incomplete image (e.g. after a rendering failure) is left
+     * unfinished. The output stream is not closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (nextRow == height && band == null)
+                finish();
+            else
+                for (Future<Band> f : pending)
+                    f.cancel(false);
+        } finally {
+            if (ownPool)
+                pool.shutdown();
+        }
+    }
+
+    //=====================================================================================
+
+    private void startBand(int y, int rows)
+    {
+        if (y != nextRow || rows <= 0 || y + rows > height)
+            throw new IllegalStateException("Invalid rows " + y + ".." + (y + rows - 1) + ", expected to start with row " + nextRow);
+        if (band != null)
+            throw new IllegalStateException("The previous band is not complete");
+        band = new byte[rows * rowBytes];
+        bandY = y;
+        bandRows = rows;
+    }
+
+    private void copyPixels(BufferedImage src, int sx, int sy, int w, int h, int dx)
+    {
+        final int[] pixels = new int[w];
+        final boolean direct = (src.getType() == BufferedImage.TYPE_INT_RGB || src.getType() == BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < h; y++)
+        {
+            if (direct)
+                src.getRaster().getDataElements(sx, sy + y, w, 1, pixels);
+            else
+                src.getRGB(sx, sy + y, w, 1, pixels, 0, w);
+            int ofs = y * rowBytes + dx * BPP;
+            for (int x = 0; x < w; x++)
+            {
+                final int p = pixels[x];
+                band[ofs++] = (byte) (p >> 16);
+                band[ofs++] = (byte) (p >> 8);
+                band[ofs++] = (byte) p;
+            }
+        }
+    }
+
+    private void finishBand() throws IOException
+    {
+        if (!started)
+        {
+            writeHeader();
+            started = true;
+        }
+        final byte[] data = band;
+        final byte[] prev = lastRow;
+        final boolean last = (bandY + bandRows == height);
+        lastRow = new byte[rowBytes];
+        System.arraycopy(data, data.length - rowBytes, lastRow, 0, rowBytes);
+        band = null;
+        nextRow = bandY + bandRows;
+
+        final Callable<Band> task = new Callable<Band>() {
+            @Override
+            public Band call()
+            {
+                return encodeBand(data, prev, last);
+            }
+        };
+        if (pool == null)
+            writeBand(task);
+        else
+        {
+            pending.add(pool.submit(task));
+            //write the completed bands and limit the number of bands waiting in memory
+            final int limit = (pool instanceof ForkJoinPool) ? 2 * ((ForkJoinPool) pool).getParallelism() : 2 * Runtime.getRuntime().availableProcessors();
+            while (!pending.isEmpty() && (pending.size() > limit || pending.peek().isDone()))
+                writeBand(pending.poll());
+        }
+    }
+
+    private void writeBand(Callable<Band> task) throws IOException
+    {
+        try
+        {
+            writeBand(task.call());
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeBand(Future<Band> future) throws IOException
+    {
+        try
+        {
+            writeBand(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding the image");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new IllegalStateException(cause);
+        }
+    }
+
+    private void writeBand(Band b) throws IOException
+    {
+        adler = adler32Combine(adler, b.adler, b.length);
+        if (b.last)
+        {
+            //append the checksum that finishes the zlib stream
+            byte[] data = new byte[b.data.length + 4];
+            System.arraycopy(b.data, 0, data, 0, b.data.length);
+            writeInt(data, b.data.length, (int) adler);
+            writeChunk("IDAT", data, data.length);
+        }
+        else
+            writeChunk("IDAT", b.data, b.data.length);
+    }
+
+    private void writeHeader() throws IOException
+    {
+        out.write(SIGNATURE);
+        byte[] ihdr = new byte[13];
+        writeInt(ihdr, 0, width);
+        writeInt(ihdr, 4, height);
+        ihdr[8] = 8; //bit depth
+        ihdr[9] = 2; //color type: RGB
+        ihdr[10] = 0; //compression: deflate
+        ihdr[11] = 0; //filter method: adaptive
+        ihdr[12] = 0; //no interlace
+        writeChunk("IHDR", ihdr, ihdr.length);
+        writeChunk("IDAT", ZLIB_HEADER, ZLIB_HEADER.length);
+    }
+
+    private void writeChunk(String type, byte[] data, int len) throws IOException
+    {
+        final byte[] tb = type.getBytes("US-ASCII");
+        final byte[] head = new byte[8];
+        writeInt(head, 0, len);
+        System.arraycopy(tb, 0, head, 4, 4);
+        CRC32 crc = new CRC32();
+        crc.update(tb);
+        crc.update(data, 0, len);
+        final byte[] tail = new byte[4];
+        writeInt(tail, 0, (int) crc.getValue());
+        out.write(head);
+        out.write(data, 0, len);
+        out.write(tail);
+    }
+
+    private static void writeInt(byte[] dest, int ofs, int value)
+    {
+        dest[ofs] = (byte) (value >>> 24);
+        dest[ofs + 1] = (byte) (value >>> 16);
+        dest[ofs + 2] = (byte) (value >>> 8);
+        dest[ofs + 3] = (byte) value;
+    }
+
+    //=====================================================================================
+
+    /**
+     * Filters and compresses a band of rows.
+     * @param raw the raw RGB data of the rows
+     * @param prev the raw data of the row preceding the band or {@code null} for the first band
+     * @param last {@code true} for the last band of the image
+     * @return the compressed band
+     */
+    private Band encodeBand(byte[] raw, byte[] prev, boolean last)
+    {
+        final int rows = raw.length / rowBytes;
+        final byte[] filtered = new byte[rows * (rowBytes + 1)];
+        final byte[][] candidates = new byte[5][rowBytes];
+        for (int y = 0; y < rows; y++)
+        {
+            final int ofs = y * rowBytes;
+            final int pofs = (y == 0) ? 0 : ofs - rowBytes;
+            final byte[] psrc = (y == 0) ? prev : raw;
+            final int type = filterRow(raw, ofs, psrc, pofs, candidates);
+            final int fofs = y * (rowBytes + 1);
+            filtered[fofs] = (byte) type;
+            System.arraycopy(candidates[type], 0, filtered, fofs + 1, rowBytes);
+        }
+
+        Adler32 checksum = new Adler32();
+        checksum.update(filtered, 0, filtered.length);
+
+        final Deflater deflater = new Deflater(level, true); //raw deflate, the zlib wrapper is written by the encoder
+        final ByteArrayOutputStream dest = new ByteArrayOutputStream(filtered.length / 4 + 64);
+        final byte[] buf = new byte[65536];
+        try
+        {
+            deflater.setInput(filtered);
+            if (last)
+            {
+                deflater.finish();
+                while (!deflater.finished())
+                {
+                    final int n = deflater.deflate(buf);
+                    dest.write(buf, 0, n);
+                }
+            }
+            else
+            {
+                //sync flush: the next band continues the same deflate stream from a byte boundary
+                int n;
+                do
+                {
+                    n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                    dest.write(buf, 0, n);
+                } while (n == buf.length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return new Band(dest.toByteArray(), checksum.getValue(), filtered.length, last);
+    }
+
+    /**
+     * Computes all the filter types for a row and chooses the best one using the minimal sum
+     * of absolute differences heuristic.
+     * @return the chosen filter type; the filtered row is stored in {@code candidates[type]}
+     */
+    private int filterRow(byte[] raw, int ofs, byte[] prev, int pofs, byte[][] candidates)
+    {
+        final int len = rowBytes;
+        final byte[] none = candidates[0], sub = candidates[1], up = candidates[2], avg = candidates[3], paeth = candidates[4];
+        for (int i = 0; i < len; i++)
+        {
+            final int x = raw[ofs + i] & 0xff;
+            final int a = (i >= BPP) ? raw[ofs + i - BPP] & 0xff : 0;
+            final int b = (prev != null) ? prev[pofs + i] & 0xff : 0;
+            final int c = (i >= BPP && prev != null) ? prev[pofs + i - BPP] & 0xff : 0;
+            none[i] = (byte) x;
+            sub[i] = (byte) (x - a);
+            up[i] = (byte) (x - b);
+            avg[i] = (byte) (x - ((a + b) >> 1));
+            paeth[i] = (byte) (x - paethPredictor(a, b, c));
+        }
+        int best = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int type = 0; type < candidates.length; type++)
+        {
+            long sum = 0;
+            final byte[] row = candidates[type];
+            for (int i = 0; i < len; i++)
+                sum += Math.abs((int) row[i]);
+            if (sum < bestSum)
+            {
+                bestSum = sum;
+                best = type;
+            }
+        }
+        return best;
+    }
+
+    private static int paethPredictor(int a, int b, int c)
+    {
+        final int p = a + b - c;
+        final int pa = Math.abs(p - a);
+        final int pb = Math.abs(p - b);
+        final int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc)
+            return a;
+        else if (pb <= pc)
+            return b;
+        else
+            return c;
+    }
+
+    /**
+     * Computes the Adler-32 checksum of two concatenated blocks of data from the checksums of the blocks.
+     * @param adler1 the checksum of the first block
+     * @param adler2 the checksum of the second block
+     * @param len2 the length of the second block
+     * @return the checksum of the concatenated data
+     */
+    private static long adler32Combine(long adler1, long adler2, long len2)
+    {
+        final long rem = len2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + ADLER_BASE - rem;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= (ADLER_BASE << 1)) sum2 -= (ADLER_BASE << 1);
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * A compressed band of rows.
+     */
+    private static class Band
+    {
+        public final byte[] data;
+        public final long adler;
+        public final long length;
+        public final boolean last;
+
+        public Band(byte[] data, long adler, long length, boolean last)
+        {
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+            this.last = last;
+        }
+    }
+
+}
@@ -22,10 +22,17 @@ package org.fit.cssbox.render;
 import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.imageio.ImageIO;
 
@@ -50,11 +57,19 @@ import org.fit.cssbox.misc.Base64Coder;
 
 /**
  * A renderer that produces an SVG output.
+ * <p>
+ * The elements are composed in a reusable buffer and written to a buffered output. The embedded
+ * images are encoded to PNG first and the PNG data is base64-encoded while it is being written. By default, the repeated style
+ * declarations are replaced by CSS classes that are defined in a style sheet at the end of the
+ * document; this may be switched off by {@link #setUseStyleClasses(boolean)}. Each distinct bitmap
+ * is embedded only once as a symbol that is referenced by all its occurrences.
  * 
  * @author burgetr
  */
 public class SVGRenderer implements BoxRenderer
 {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
     private PrintWriter out;
     
     private int rootw;
@@ -62,15 +77,58 @@ public class SVGRenderer implements BoxRenderer
     
     private int idcounter;
     
+    /** The buffer used for composing the elements */
+    private StringBuilder buf;
+    /** The buffer used for composing the style declarations */
+    private StringBuilder sbuf;
+    private char[] chars;
+    
+    private boolean useStyleClasses;
+    /** The CSS class names assigned to the style declarations */
+    private Map<String, String> styleClasses;
+    
+    private int imgcounter;
+    /** The symbol IDs of the images already written */
+    private Map<BufferedImage, String> imageIds;
+    /** The symbol IDs of the images already written indexed by the image contents */
+    private Map<ImageKey, String> imageContentIds;
+    
     public SVGRenderer(int rootWidth, int rootHeight, Writer out)
     {
         idcounter = 1;
         rootw = rootWidth;
         rooth = rootHeight;
-        this.out = new PrintWriter(out);
+        this.out = new PrintWriter((out instanceof BufferedWriter) ? out : new BufferedWriter(out, 65536));
+        buf = new StringBuilder(1024);
+        sbuf = new StringBuilder(256);
+        chars = new char[1024];
+        useStyleClasses = true;
+        styleClasses = new LinkedHashMap<String, String>();
+        imgcounter = 1;
+        imageIds = new IdentityHashMap<BufferedImage, String>();
+        imageContentIds = new HashMap<ImageKey, String>();
         writeHeader();
     }
     
+    /**
+     * Checks whether the style declarations are written as CSS classes.
+     * @return {@code true} when the CSS classes are used
+     */
+    public boolean getUseStyleClasses()
+    {
+        return useStyleClasses;
+    }
+
+    /**
+     * Configures whether the style declarations should be written as CSS classes defined in a style sheet
+     * ({@code true}, the default) or using the {@code style} attributes of the individual elements.
+     * @param useStyleClasses {@code true} when the CSS classes should be used
+     */
+    public void setUseStyleClasses(boolean useStyleClasses)
+    {
+        this.useStyleClasses = useStyleClasses;
+    }
+
     //====================================================================================================
     
     public void startElementContents(ElementBox elem)
@@ -78,13 +136,7 @@ public class SVGRenderer implements BoxRenderer
         if (elem instanceof BlockBox && ((BlockBox) elem).getOverflowX() != BlockBox.OVERFLOW_VISIBLE)
         {
             //for blocks with overflow != visible generate a clipping group
-            Rectangle cb = elem.getClippedContentBounds();
-            String clip = "cssbox-clip-" + idcounter;
-            out.print("<clipPath id=\"" + clip + "\">");
-            out.print("<rect x=\"" + cb.x + "\" y=\"" + cb.y + "\" width=\"" + cb.width + "\" height=\"" + cb.height + "\" />");
-            out.println("</clipPath>");
-            out.println("<g id=\"cssbox-obj-" + idcounter + "\" clip-path=\"url(#" + clip + ")\">");
-            idcounter++;
+            writeClipGroup(elem.getClippedContentBounds());
         }
     }
 
@@ -93,7 +145,7 @@ public class SVGRenderer implements BoxRenderer
         if (elem instanceof BlockBox && ((BlockBox) elem).getOverflowX() != BlockBox.OVERFLOW_VISIBLE)
         {
             //for blocks with overflow != visible finish the clipping group
-            out.println("</g>");
+            out.write("</g>\n");
         }
     }
 
@@ -107,8 +159,13 @@ public class SVGRenderer implements BoxRenderer
         //background color
         if (bg != null)
         {
-            String style = "stroke:none;fill-opacity:1;fill:" + colorString(bg);
-            out.println("<rect x=\"" + bb.x + "\" y=\"" + bb.y + "\" width=\"" + bb.width + "\" height=\"" + bb.height + "\" style=\"" + style + "\" />");
+            sbuf.setLength(0);
+            sbuf.append("stroke:none;fill-opacity:1;fill:");
+            appendColor(sbuf, bg);
+            startElement("rect");
+            appendRect(bb.x, bb.y, bb.width, bb.height);
+            appendStyle();
+            endElement();
         }
         
         //background image
@@ -119,20 +176,11 @@ public class SVGRenderer implements BoxRenderer
                 BufferedImage img = bimg.getBufferedImage();
                 if (img != null)
                 {
-                    ByteArrayOutputStream os = new ByteArrayOutputStream();
-                    try
-                    {
-                        ImageIO.write(img, "png", os);
-                    } catch (IOException e) {
-                        out.println("<!-- I/O error: " + e.getMessage() + " -->");
-                    }
-                    char[] data = Base64Coder.encode(os.toByteArray());
-                    String imgdata = "data:image/png;base64," + new String(data);
                     int ix = bb.x + eb.getBorder().left;
                     int iy = bb.y + eb.getBorder().top;
                     int iw = bb.width - eb.getBorder().right - eb.getBorder().left;
                     int ih = bb.height - eb.getBorder().bottom - eb.getBorder().top;
-                    out.println("<image x=\"" + ix + "\" y=\"" + iy + "\" width=\"" + iw + "\" height=\"" + ih + "\" xlink:href=\"" + imgdata + "\" />");
+                    writeImage(ix, iy, iw, ih, img);
                 }
             }
             
@@ -165,8 +213,8 @@ public class SVGRenderer implements BoxRenderer
     public void renderTextContent(TextBox text)
     {
         Rectangle b = text.getAbsoluteBounds();
-        String style = textStyle(text.getVisualContext());
-        writeText(b.x, b.y + text.getBaselineOffset(), b.width, b.height, style, text.getText());
+        textStyle(text.getVisualContext());
+        writeText(b.x, b.y + text.getBaselineOffset(), b.width, b.height, text.getText());
     }
 
     public void renderReplacedContent(ReplacedBox box)
@@ -179,32 +227,17 @@ public class SVGRenderer implements BoxRenderer
                 BufferedImage img = ((ReplacedImage) cont).getBufferedImage();
                 if (img != null)
                 {
-                    ByteArrayOutputStream os = new ByteArrayOutputStream();
-                    try
-                    {
-                        ImageIO.write(img, "png", os);
-                    } catch (IOException e) {
-                        out.println("<!-- I/O error: " + e.getMessage() + " -->");
-                    }
-                    char[] data = Base64Coder.encode(os.toByteArray());
-                    String imgdata = "data:image/png;base64," + new String(data);
                     Rectangle cb = ((Box) box).getAbsoluteContentBounds();
-                    out.println("<image x=\"" + cb.x + "\" y=\"" + cb.y + "\" width=\"" + cb.width + "\" height=\"" + cb.height + "\" xlink:href=\"" + imgdata + "\" />");
+                    writeImage(cb.x, cb.y, cb.width, cb.height, img);
                 }
             }
             else if (cont instanceof ReplacedText) //HTML object
             {
-                //clipping rectangle for the object
-                Rectangle cb = ((Box) box).getClippedBounds();
-                String clip = "cssbox-clip-" + idcounter;
-                out.print("<clipPath id=\"" + clip + "\">");
-                out.print("<rect x=\"" + cb.x + "\" y=\"" + cb.y + "\" width=\"" + cb.width + "\" height=\"" + cb.height + "\" />");
-                out.println("</clipPath>");
-                //the group containing the rendered object
-                out.println("<g id=\"cssbox-obj-" + (idcounter++) + "\" clip-path=\"url(#" + clip + ")\">");
+                //clipping rectangle for the object and the group containing the rendered object
+                writeClipGroup(((Box) box).getClippedBounds());
                 ReplacedText rt = (ReplacedText) cont;
                 rt.getContentViewport().draw(this);
-                out.println("</g>");
+                out.write("</g>\n");
             }
         }
     }
@@ -212,6 +245,7 @@ public class SVGRenderer implements BoxRenderer
     public void close()
     {
         writeFooter();
+        out.flush();
     }
     
     //====================================================================================================
@@ -230,9 +264,33 @@ public class SVGRenderer implements BoxRenderer
     
     private void writeFooter()
     {
+        if (!styleClasses.isEmpty())
+        {
+            //the style sheet applies to the whole document regardless of its position
+            out.println("<style type=\"text/css\"><![CDATA[");
+            for (Map.Entry<String, String> entry : styleClasses.entrySet())
+            {
+                buf.setLength(0);
+                buf.append('.').append(entry.getValue()).append('{').append(entry.getKey()).append("}\n");
+                flushBuffer();
+            }
+            out.println("]]></style>");
+        }
         out.println("</svg>");
     }
 
+    private void writeClipGroup(Rectangle cb)
+    {
+        buf.setLength(0);
+        buf.append("<clipPath id=\"cssbox-clip-").append(idcounter).append("\">");
+        buf.append("<rect");
+        appendRect(cb.x, cb.y, cb.width, cb.height);
+        buf.append(" /></clipPath>\n");
+        buf.append("<g id=\"cssbox-obj-").append(idcounter).append("\" clip-path=\"url(#cssbox-clip-").append(idcounter).append(")\">\n");
+        flushBuffer();
+        idcounter++;
+    }
+    
     private void writeBorderSVG(ElementBox eb, int x1, int y1, int x2, int y2, String side, int width, int right, int down)
     {
         TermColor tclr = eb.getStyle().getValue(TermColor.class, "border-"+side+"-color");
@@ -249,43 +307,51 @@ public class SVGRenderer implements BoxRenderer
                     clr = Color.BLACK;
             }
 
-            String stroke = "";
-            if (bst == CSSProperty.BorderStyle.SOLID)
-            {
-                stroke = "stroke-width:" + width;
-            }
-            else if (bst == CSSProperty.BorderStyle.DOTTED)
-            {
-                stroke = "stroke-width:" + width + ";stroke-dasharray:" + width + "," + width;
-            }
+            sbuf.setLength(0);
+            sbuf.append("fill:none;stroke:");
+            appendColor(sbuf, clr);
+            sbuf.append(";stroke-width:").append(width);
+            if (bst == CSSProperty.BorderStyle.DOTTED)
+                sbuf.append(";stroke-dasharray:").append(width).append(',').append(width);
             else if (bst == CSSProperty.BorderStyle.DASHED)
-            {
-                stroke = "stroke-width:" + width + ";stroke-dasharray:" + (3*width) + "," + width;
-            }
-            else if (bst == CSSProperty.BorderStyle.DOUBLE)
-            {
-                //double is not supported yet, we'll use single
-                stroke = "stroke-width:" + width;
-            }
-            else //default or unsupported - draw a solid line
-            {
-                stroke = "stroke-width:" + width;
-            }
+                sbuf.append(";stroke-dasharray:").append(3*width).append(',').append(width);
+            //double is not supported yet, we'll use single; default or unsupported - draw a solid line
             
-            String coords = "M " + (x1+right) + "," + (y1+down) + " L " + (x2+right) + "," + (y2+down);
-            String style = "fill:none;stroke:" + colorString(clr) + ";" + stroke;
-            out.println("<path style=\"" + style + "\" d=\"" + coords + "\" />");  
+            startElement("path");
+            appendStyle();
+            buf.append(" d=\"M ").append(x1+right).append(',').append(y1+down)
+               .append(" L ").append(x2+right).append(',').append(y2+down).append('"');
+            endElement();
         }
     }
     
-    private void writeText(int x, int y, String style, String text)
+    /**
+     * Writes a text element using the style declaration from the style buffer.
+     */
+    private void writeText(int x, int y, String text)
     {
-        out.println("<text x=\"" + x + "\" y=\"" + y + "\" style=\"" + style + "\">" + htmlEntities(text) + "</text>");
+        startElement("text");
+        appendAttribute("x", x);
+        appendAttribute("y", y);
+        appendStyle();
+        buf.append('>');
+        appendEscaped(buf, text);
+        buf.append("</text>\n");
+        flushBuffer();
     }
     
-    private void writeText(int x, int y, int width, int height, String style, String text)
+    /**
+     * Writes a text element using the style declaration from the style buffer.
+     */
+    private void writeText(int x, int y, int width, int height, String text)
     {
-        out.println("<text x=\"" + x + "\" y=\"" + y + "\" width=\"" + width + "\" height=\"" + height + "\" style=\"" + style + "\">" + htmlEntities(text) + "</text>");
+        startElement("text");
+        appendRect(x, y, width, height);
+        appendStyle();
+        buf.append('>');
+        appendEscaped(buf, text);
+        buf.append("</text>\n");
+        flushBuffer();
     }
     
     private void writeBullet(ListItemBox lb)
@@ -297,35 +363,61 @@ public class SVGRenderer implements BoxRenderer
             int y = (int) Math.round(lb.getAbsoluteContentY() + 0.5 * ctx.getEm());
             int r = (int) Math.round(0.4 * ctx.getEm());
             
-            String tclr = colorString(ctx.getColor());
-            String style = "";
-            
             switch (lb.getListStyleType())
             {
                 case "circle":
-                    style = "fill:none;fill-opacity:1;stroke:" + tclr + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
-                    out.println("<circle style=\"" + style + "\" cx=\"" + (x + r / 2) + "\" cy=\"" + (y + r / 2) + "\" r=\"" + (r / 2) + "\" />");
+                    sbuf.setLength(0);
+                    sbuf.append("fill:none");
+                    appendBulletStroke(ctx.getColor());
+                    startElement("circle");
+                    appendStyle();
+                    appendAttribute("cx", x + r / 2);
+                    appendAttribute("cy", y + r / 2);
+                    appendAttribute("r", r / 2);
+                    endElement();
                     break;
                 case "square":
-                    style = "fill:" + tclr +";fill-opacity:1;stroke:" + tclr + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
-                    out.println("<rect style=\"" + style + "\" x=\"" + x + "\" y=\"" + y + "\" width=\"" + r + "\" height=\"" + r + "\" />");
+                    sbuf.setLength(0);
+                    sbuf.append("fill:");
+                    appendColor(sbuf, ctx.getColor());
+                    appendBulletStroke(ctx.getColor());
+                    startElement("rect");
+                    appendStyle();
+                    appendRect(x, y, r, r);
+                    endElement();
                     break;
                 case "disc":
-                    style = "fill:" + tclr +";fill-opacity:1;stroke:" + tclr + ";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1";
-                    out.println("<circle style=\"" + style + "\" cx=\"" + (x + r / 2) + "\" cy=\"" + (y + r / 2) + "\" r=\"" + (r / 2) + "\" />");
+                    sbuf.setLength(0);
+                    sbuf.append("fill:");
+                    appendColor(sbuf, ctx.getColor());
+                    appendBulletStroke(ctx.getColor());
+                    startElement("circle");
+                    appendStyle();
+                    appendAttribute("cx", x + r / 2);
+                    appendAttribute("cy", y + r / 2);
+                    appendAttribute("r", r / 2);
+                    endElement();
                     break;
                 default:
                     
                     int baseline = lb.getFirstInlineBoxBaseline();
                     if (baseline == -1)
                         baseline = ctx.getBaselineOffset(); //use the font baseline
-                    style = textStyle(ctx) + ";text-align:end;text-anchor:end";
-                    writeText((int) Math.round(lb.getAbsoluteContentX() - 0.5 * ctx.getEm()), lb.getAbsoluteContentY() + baseline, style, lb.getMarkerText());
+                    textStyle(ctx);
+                    sbuf.append(";text-align:end;text-anchor:end");
+                    writeText((int) Math.round(lb.getAbsoluteContentX() - 0.5 * ctx.getEm()), lb.getAbsoluteContentY() + baseline, lb.getMarkerText());
                     break;
             }
         }
     }
     
+    private void appendBulletStroke(Color color)
+    {
+        sbuf.append(";fill-opacity:1;stroke:");
+        appendColor(sbuf, color);
+        sbuf.append(";stroke-width:1;stroke-miterlimit:4;stroke-dasharray:none;stroke-dashoffset:0;stroke-opacity:1");
+    }
+    
     private boolean writeMarkerImage(ListItemBox lb)
     {
         VisualContext ctx = lb.getVisualContext();
@@ -337,47 +429,291 @@ public class SVGRenderer implements BoxRenderer
         BufferedImage img = lb.getMarkerImage().getBufferedImage();
         if (img != null)
         {
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            try
-            {
-                ImageIO.write(img, "png", os);
-            } catch (IOException e) {
-                out.println("<!-- I/O error: " + e.getMessage() + " -->");
-            }
-            char[] data = Base64Coder.encode(os.toByteArray());
-            String imgdata = "data:image/png;base64," + new String(data);
             int iw = img.getWidth();
             int ih = img.getHeight();
             int ix = x - iw;
             int iy = y - ih;
-            out.println("<image x=\"" + ix + "\" y=\"" + iy + "\" width=\"" + iw + "\" height=\"" + ih + "\" xlink:href=\"" + imgdata + "\" />");
+            writeImage(ix, iy, iw, ih, img);
             return true;
         }
         else
             return false;
     }
     
-    private String textStyle(VisualContext ctx)
+    /**
+     * Writes a reference to an image. The image data is written upon the first occurrence of the image.
+     */
+    private void writeImage(int x, int y, int width, int height, BufferedImage img)
+    {
+        String id = imageIds.get(img);
+        if (id == null)
+        {
+            final ImageKey key = new ImageKey(img);
+            id = imageContentIds.get(key);
+            if (id == null)
+            {
+                final String newId = "cssbox-img-" + imgcounter;
+                if (!writeImageSymbol(newId, img))
+                    return; //the image cannot be encoded, omit it
+                imgcounter++;
+                id = newId;
+                imageContentIds.put(key, id);
+            }
+            imageIds.put(img, id);
+        }
+        //the symbol is scaled in the same way as an image element of the given size
+        startElement("use");
+        buf.append(" xlink:href=\"#").append(id).append('"');
+        appendRect(x, y, width, height);
+        endElement();
+    }
+    
+    /**
+     * Writes a symbol containing an image element with the image data embedded as a PNG data URI.
+     * The PNG data is base64-encoded directly to the output. Nothing but a comment is written when
+     * the image cannot be encoded.
+     * @return {@code true} when the symbol has been written
+     */
+    private boolean writeImageSymbol(String id, BufferedImage img)
+    {
+        //encode the complete image first so that no truncated data is written on errors
+        final ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try
+        {
+            if (!ImageIO.write(img, "png", png))
+                throw new IOException("No PNG writer available");
+        } catch (IOException e) {
+            out.println("<!-- I/O error: " + String.valueOf(e.getMessage()).replace("--", "- -") + " -->");
+            return false;
+        }
+        
+        buf.setLength(0);
+        buf.append("<defs><symbol id=\"").append(id).append("\" viewBox=\"0 0 ")
+           .append(img.getWidth()).append(' ').append(img.getHeight()).append("\"><image");
+        appendRect(0, 0, img.getWidth(), img.getHeight());
+        buf.append(" xlink:href=\"data:image/png;base64,");
+        flushBuffer();
+        Base64OutputStream os = new Base64OutputStream();
+        try
+        {
+            png.writeTo(os); //the buffer is passed directly without copying
+        } catch (IOException e) {
+            //not thrown, the base64 stream writes to the renderer output
+        }
+        os.finish();
+        out.write("\" /></symbol></defs>\n");
+        return true;
+    }
+    
+    /**
+     * Creates the style declaration for the text in the style buffer.
+     */
+    private void textStyle(VisualContext ctx)
     {
-        String style = "font-size:" + ctx.getFontSize() + "pt;" + 
-                       "font-weight:" + (ctx.getFont().isBold()?"bold":"normal") + ";" + 
-                       "font-style:" + (ctx.getFont().isItalic()?"italic":"normal") + ";" +
-                       "font-family:" + ctx.getFont().getFamily() + ";" +
-                       "fill:" + colorString(ctx.getColor()) + ";" +
-                       "stroke:none";
+        sbuf.setLength(0);
+        sbuf.append("font-size:").append(ctx.getFontSize()).append("pt;")
+            .append("font-weight:").append(ctx.getFont().isBold()?"bold":"normal").append(';')
+            .append("font-style:").append(ctx.getFont().isItalic()?"italic":"normal").append(';')
+            .append("font-family:").append(ctx.getFont().getFamily()).append(';')
+            .append("fill:");
+        appendColor(sbuf, ctx.getColor());
+        sbuf.append(";stroke:none");
         if (!ctx.getTextDecoration().isEmpty())
-            style += ";text-decoration:" + ctx.getTextDecorationString();
-        return style;
+            sbuf.append(";text-decoration:").append(ctx.getTextDecorationString());
     }
 
-    private String colorString(Color color)
+    //====================================================================================================
+    
+    private void startElement(String name)
+    {
+        buf.setLength(0);
+        buf.append('<').append(name);
+    }
+    
+    private void endElement()
+    {
+        buf.append(" />\n");
+        flushBuffer();
+    }
+    
+    private void appendAttribute(String name, int value)
+    {
+        buf.append(' ').append(name).append("=\"").append(value).append('"');
+    }
+    
+    private void appendRect(int x, int y, int width, int height)
     {
-        return String.format("#%02x%02x%02x", color.getRed(), color.getGreen(), color.getBlue());
+        appendAttribute("x", x);
+        appendAttribute("y", y);
+        appendAttribute("width", width);
+        appendAttribute("height", height);
     }
     
-    private String htmlEntities(String s)
+    /**
+     * Appends the style declaration from the style buffer either as a CSS class or as a style attribute.
+     */
+    private void appendStyle()
     {
-        return s.replaceAll("&", "&amp;").replaceAll(">", "&gt;").replaceAll("<", "&lt;");
+        if (useStyleClasses)
+        {
+            final String style = sbuf.toString();
+            String cname = styleClasses.get(style);
+            if (cname == null)
+            {
+                cname = "s" + (styleClasses.size() + 1);
+                styleClasses.put(style, cname);
+            }
+            buf.append(" class=\"").append(cname).append('"');
+        }
+        else
+        {
+            buf.append(" style=\"");
+            appendEscaped(buf, sbuf);
+            buf.append('"');
+        }
+    }
+    
+    /**
+     * Writes the contents of the element buffer to the output.
+     */
+    private void flushBuffer()
+    {
+        final int len = buf.length();
+        if (chars.length < len)
+            chars = new char[Math.max(len, 2 * chars.length)];
+        buf.getChars(0, len, chars, 0);
+        out.write(chars, 0, len);
+    }
+    
+    private static void appendColor(StringBuilder dest, Color color)
+    {
+        dest.append('#');
+        appendHex(dest, color.getRed());
+        appendHex(dest, color.getGreen());
+        appendHex(dest, color.getBlue());
+    }
+    
+    private static void appendHex(StringBuilder dest, int value)
+    {
+        dest.append(HEX[(value >> 4) & 0x0f]).append(HEX[value & 0x0f]);
+    }
+    
+    private static void appendEscaped(StringBuilder dest, CharSequence s)
+    {
+        final int len = s.length();
+        for (int i = 0; i < len; i++)
+        {
+            final char c = s.charAt(i);
+            switch (c)
+            {
+                case '&': dest.append("&amp;"); break;
+                case '<': dest.append("&lt;"); break;
+                case '>': dest.append("&gt;"); break;
+                case '"': dest.append("&quot;"); break;
+                default: dest.append(c);
+            }
+        }
+    }
+    
+    //====================================================================================================
+    
+    /**
+     * An output stream that base64-encodes the written data to the renderer output in chunks.
+     */
+    private class Base64OutputStream extends OutputStream
+    {
+        private final byte[] data = new byte[3 * 1024];
+        private final char[] encoded = new char[4 * 1024];
+        private int len = 0;
+        
+        @Override
+        public void write(int b)
+        {
+            data[len++] = (byte) b;
+            if (len == data.length)
+                encodeData();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int blen)
+        {
+            while (blen > 0)
+            {
+                final int n = Math.min(blen, data.length - len);
+                System.arraycopy(b, off, data, len, n);
+                len += n;
+                off += n;
+                blen -= n;
+                if (len == data.length)
+                    encodeData();
+            }
+        }
+
+        /**
+         * Encodes the remaining data including the padding.
+         */
+        public void finish()
+        {
+            if (len > 0)
+                encodeData();
+        }
+        
+        private void encodeData()
+        {
+            final int n = Base64Coder.encode(data, 0, len, encoded, 0);
+            out.write(encoded, 0, n);
+            len = 0;
+        }
+    }
+    
+    /**
+     * An image identified by its contents.
+     */
+    private static class ImageKey
+    {
+        private final BufferedImage image;
+        private final int hash;
+        
+        public ImageKey(BufferedImage image)
+        {
+            this.image = image;
+            int h = 31 * image.getWidth() + image.getHeight();
+            final int[] row = new int[image.getWidth()];
+            for (int y = 0; y < image.getHeight(); y++)
+            {
+                image.getRGB(0, y, row.length, 1, row, 0, row.length);
+                h = 31 * h + Arrays.hashCode(row);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) return true;
+            if (!(obj instanceof ImageKey)) return false;
+            final ImageKey other = (ImageKey) obj;
+            if (hash != other.hash
+                    || image.getWidth() != other.image.getWidth()
+                    || image.getHeight() != other.image.getHeight())
+                return false;
+            final int[] row1 = new int[image.getWidth()];
+            final int[] row2 = new int[image.getWidth()];
+            for (int y = 0; y < image.getHeight(); y++)
+            {
+                image.getRGB(0, y, row1.length, 1, row1, 0, row1.length);
+                other.image.getRGB(0, y, row2.length, 1, row2, 0, row2.length);
+                if (!Arrays.equals(row1, row2))
+                    return false;
+            }
+            return true;
+        }
     }
     
 }
@@ -0,0 +1,340 @@
+/*
+ * TiledRenderer.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 17:12:46
+ */
+package org.fit.cssbox.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.fit.cssbox.layout.Viewport;
+
+/**
+ * Renders the page raster as a sequence of fixed-size tiles instead of a single page image.
+ * The tiles are painted in parallel on a fork-join pool; each tile is drawn by its own
+ * {@link GraphicsRenderer} that uses a translated graphics context clipped to the tile area.
+ * The rendered tiles are passed to a {@link TileConsumer} in the calling thread in the row-major
+ * order so that they may be streamed to an encoder. Only a limited number of tiles is rendered
+ * ahead of the consumer and the tile images are reused; the peak memory is therefore given by
+ * the tile size and the pool parallelism instead of the page size.
+ * <p>
+ * The layout of the viewport must be completely computed (including the absolute positions)
+ * before rendering. The renderer should be closed using {@link #close()} when it is not used
+ * anymore in order to stop the pool threads (unless an external pool has been provided).
+ */
+public class TiledRenderer implements Closeable
+{
+    /** The default tile width and height in pixels */
+    public static final int DEFAULT_TILE_SIZE = 512;
+
+    private final Viewport viewport;
+    private final int tileWidth;
+    private final int tileHeight;
+    private final ForkJoinPool pool;
+    private final boolean ownPool;
+    private final Queue<BufferedImage> buffers;
+
+    /**
+     * Creates a renderer with the default tile size that uses its own pool with one thread
+     * for each available processor.
+     * @param viewport the viewport to be rendered
+     */
+    public TiledRenderer(Viewport viewport)
+    {
+        this(viewport, DEFAULT_TILE_SIZE, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a renderer that uses its own pool with one thread for each available processor.
+     * @param viewport the viewport to be rendered
+     * @param tileWidth the tile width in pixels
+     * @param tileHeight the tile height in pixels
+     */
+    public TiledRenderer(Viewport viewport, int tileWidth, int tileHeight)
+    {
+        this(viewport, tileWidth, tileHeight, new ForkJoinPool(), true);
+    }
+
+    /**
+     * Creates a renderer that uses an existing pool. The pool is not shut down by {@link #close()}.
+     * @param viewport the viewport to be rendered
+     * @param tileWidth the tile width in pixels
+     * @param tileHeight the tile height in pixels
+     * @param pool the pool used for rendering the tiles
+     */
+    public TiledRenderer(Viewport viewport, int tileWidth, int tileHeight, ForkJoinPool pool)
+    {
+        this(viewport, tileWidth, tileHeight, pool, false);
+    }
+
+    private TiledRenderer(Viewport viewport, int tileWidth, int tileHeight, ForkJoinPool pool, boolean ownPool)
+    {
+        if (tileWidth <= 0 || tileHeight <= 0)
+            throw new IllegalArgumentException("The tile size must be positive");
+        this.viewport = viewport;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.pool = pool;
+        this.ownPool = ownPool;
+        this.buffers = new ConcurrentLinkedQueue<BufferedImage>();
+    }
+
+    public int getTileWidth()
+    {
+        return tileWidth;
+    }
+
+    public int getTileHeight()
+    {
+        return tileHeight;
+    }
+
+    /**
+     * Obtains the total width of the rendered page.
+     * @return the page width in pixels
+     */
+    public int getPageWidth()
+    {
+        return Math.max(viewport.getWidth(), 1);
+    }
+
+    /**
+     * Obtains the total height of the rendered page.
+     * @return the page height in pixels
+     */
+    public int getPageHeight()
+    {
+        return Math.max(viewport.getHeight(), 1);
+    }
+
+    /**
+     * Obtains the number of tile columns of the page.
+     * @return the number of columns
+     */
+    public int getColumnCount()
+    {
+        return (getPageWidth() + tileWidth - 1) / tileWidth;
+    }
+
+    /**
+     * Obtains the number of tile rows of the page.
+     * @return the number of rows
+     */
+    public int getRowCount()
+    {
+        return (getPageHeight() + tileHeight - 1) / tileHeight;
+    }
+
+    //=====================================================================================
+
+    /**
+     * Renders all the tiles of the page and passes them to the consumer in the row-major order.
+     * The consumer is invoked in the calling thread.
+     * @param consumer the consumer of the rendered tiles
+     * @throws IOException when the consumer fails
+     * @throws InterruptedException when the current thread is interrupted while waiting for the tiles
+     */
+    public void render(TileConsumer consumer) throws IOException, InterruptedException
+    {
+        final int cols = getColumnCount();
+        final int count = cols * getRowCount();
+        final int ahead = 2 * pool.getParallelism(); //max. number of tiles rendered ahead of the consumer
+        final Queue<Future<Tile>> pending = new ArrayDeque<Future<Tile>>(ahead);
+        int next = 0;
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                while (next < count && next < i + ahead)
+                {
+                    pending.add(pool.submit(createTask(next % cols, next / cols)));
+                    next++;
+                }
+                Tile tile = getTile(pending.poll());
+                try
+                {
+                    consumer.tileRendered(tile);
+                } finally {
+                    buffers.add(tile.buffer); //reuse the image for the next tiles
+                }
+            }
+        } finally {
+            for (Future<Tile> f : pending) //cancel the remaining tiles on failure
+                f.cancel(false);
+        }
+    }
+
+    /**
+     * Renders a single tile in the current thread. The returned tile image is not reused by the renderer.
+     * @param col the tile column
+     * @param row the tile row
+     * @return the rendered tile
+     */
+    public Tile renderTile(int col, int row)
+    {
+        final BufferedImage buffer = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+        return drawTile(col, row, buffer);
+    }
+
+    /**
+     * Stops the pool threads if the pool has been created by this renderer.
+     */
+    @Override
+    public void close()
+    {
+        buffers.clear();
+        if (ownPool)
+            pool.shutdown();
+    }
+
+    //=====================================================================================
+
+    private Callable<Tile> createTask(final int col, final int row)
+    {
+        return new Callable<Tile>() {
+            @Override
+            public Tile call()
+            {
+                BufferedImage buffer = buffers.poll();
+                if (buffer == null)
+                    buffer = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+                return drawTile(col, row, buffer);
+            }
+        };
+    }
+
+    private Tile drawTile(int col, int row, BufferedImage buffer)
+    {
+        final int x = col * tileWidth;
+        final int y = row * tileHeight;
+        final int w = Math.min(tileWidth, getPageWidth() - x);
+        final int h = Math.min(tileHeight, getPageHeight() - y);
+        final BufferedImage img = (w == tileWidth && h == tileHeight) ? buffer : buffer.getSubimage(0, 0, w, h);
+        final Rectangle area = new Rectangle(x, y, w, h);
+
+        Graphics2D g = img.createGraphics();
+        try
+        {
+            g.setBackground(Color.BLACK); //the same as a new image
+            g.clearRect(0, 0, w, h); //the buffer may contain a previous tile
+            g.translate(-x, -y);
+            g.clip(area);
+            viewport.drawBackground(g);
+            GraphicsRenderer r = new GraphicsRenderer(g);
+            viewport.draw(r, area);
+            r.close();
+        } finally {
+            g.dispose();
+        }
+        return new Tile(col, row, area, img, buffer);
+    }
+
+    private Tile getTile(Future<Tile> future) throws InterruptedException
+    {
+        try
+        {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if (cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new IllegalStateException(cause);
+        }
+    }
+
+    //=====================================================================================
+
+    /**
+     * A rendered tile of the page.
+     */
+    public static class Tile
+    {
+        private final int col;
+        private final int row;
+        private final Rectangle bounds;
+        private final BufferedImage image;
+        private final BufferedImage buffer;
+
+        private Tile(int col, int row, Rectangle bounds, BufferedImage image, BufferedImage buffer)
+        {
+            this.col = col;
+            this.row = row;
+            this.bounds = bounds;
+            this.image = image;
+            this.buffer = buffer;
+        }
+
+        public int getColumn()
+        {
+            return col;
+        }
+
+        public int getRow()
+        {
+            return row;
+        }
+
+        /**
+         * Obtains the tile position and size on the page.
+         * @return the tile bounds in absolute page coordinates
+         */
+        public Rectangle getBounds()
+        {
+            return bounds;
+        }
+
+        /**
+         * Obtains the tile image. The tiles at the right and bottom edge of the page may be smaller
+         * than the tile size.
+         * @return the tile image
+         */
+        public BufferedImage getImage()
+        {
+            return image;
+        }
+    }
+
+    /**
+     * A consumer of the rendered tiles.
+     */
+    public interface TileConsumer
+    {
+        /**
+         * Processes a rendered tile. The tile image is reused for rendering the following tiles after
+         * this method returns; it must be copied when it should be kept.
+         * @param tile the rendered tile
+         * @throws IOException when the tile cannot be processed
+         */
+        public void tileRendered(Tile tile) throws IOException;
+    }
+
+}
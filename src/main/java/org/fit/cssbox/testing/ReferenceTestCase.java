@@ -31,13 +31,12 @@ import java.util.concurrent.Callable;
 
 import javax.imageio.ImageIO;
 
-import org.fit.cssbox.css.CSSNorm;
 import org.fit.cssbox.css.DOMAnalyzer;
 import org.fit.cssbox.io.DOMSource;
 import org.fit.cssbox.io.DefaultDOMSource;
 import org.fit.cssbox.io.DefaultDocumentSource;
 import org.fit.cssbox.io.DocumentSource;
-import org.fit.cssbox.layout.BrowserCanvas;
+import org.fit.cssbox.layout.LayoutEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -179,19 +178,17 @@ public class ReferenceTestCase implements Callable<Float>
         DOMAnalyzer da = new DOMAnalyzer(doc, docSource.getURL());
         da.setMediaSpec(media);
         da.attributesToStyles(); //convert the HTML presentation attributes to inline styles
-        da.addStyleSheet(null, CSSNorm.stdStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the standard style sheet
-        da.addStyleSheet(null, CSSNorm.userStyleSheet(), DOMAnalyzer.Origin.AGENT); //use the additional style sheet
-        da.addStyleSheet(null, CSSNorm.formsStyleSheet(), DOMAnalyzer.Origin.AGENT); //render form fields using css
+        da.addAgentStyleSheets(); //use the standard agent style sheets including the form fields
         da.getStyleSheets(); //load the author style sheets
         
-        BrowserCanvas contentCanvas = new BrowserCanvas(da.getRoot(), da, docSource.getURL());
-        contentCanvas.setAutoMediaUpdate(false); //we have a correct media specification, do not update
-        contentCanvas.getConfig().setClipViewport(cropWindow);
-        contentCanvas.getConfig().setLoadImages(loadImages);
-        contentCanvas.getConfig().setLoadBackgroundImages(loadBackgroundImages);
+        LayoutEngine engine = new LayoutEngine(da.getRoot(), da, docSource.getURL());
+        engine.setAutoMediaUpdate(false); //we have a correct media specification, do not update
+        engine.getConfig().setClipViewport(cropWindow);
+        engine.getConfig().setLoadImages(loadImages);
+        engine.getConfig().setLoadBackgroundImages(loadBackgroundImages);
 
-        contentCanvas.createLayout(windowSize);
-        return contentCanvas.getImage();
+        engine.createLayout(windowSize);
+        return engine.renderImage();
     }
     
     /**
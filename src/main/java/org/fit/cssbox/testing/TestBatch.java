@@ -25,6 +25,8 @@ import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -32,7 +34,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -70,6 +74,8 @@ public class TestBatch
     private int threadsUsed;
     private List<SourceEntry> tests;
     private Map<String, Float> results;
+    private Map<String, Long> timings;
+    private long wallTime;
     private int totalCount;
     private int completedCount;
     
@@ -97,6 +103,7 @@ public class TestBatch
         this.testURL = testURL;
         this.tests = new LinkedList<SourceEntry>();
         this.results = new LinkedHashMap<String, Float>();
+        this.timings = new LinkedHashMap<String, Long>();
         parseToc();
     }
     
@@ -227,7 +234,9 @@ public class TestBatch
     
     /**
      * Runs all the test from the TOC. The tests are executed as separate tasks
-     * passed to the executor service.
+     * passed to the executor service. All the tasks are submitted at once and the results
+     * are collected as the tasks complete. The tasks that run longer than the task timeout
+     * are cancelled and considered failed.
      * @param selected the list of selected test to be used or {@code null} to use all the
      * tests that are not blacklisted
      */
@@ -239,60 +248,124 @@ public class TestBatch
             runTestsInSequence(selected);
             return;
         }
-        //ExecutorService exec = Executors.newSingleThreadExecutor();
-        ExecutorService exec = Executors.newFixedThreadPool(threadsUsed);
         List<Callable<Float>> list = getTestList(selected);
-        List<Future<Float>> futures = new ArrayList<Future<Float>>(list.size());
         totalCount = list.size();
         completedCount = 0;
-        //exec all tests with time limit; collect the futures
-        for (int i = 0; i < list.size(); i++)
+        final long startTime = System.currentTimeMillis();
+        final float[] values = new float[list.size()];
+        final long[] times = new long[list.size()];
+        
+        ExecutorService exec = Executors.newFixedThreadPool(threadsUsed);
+        CompletionService<Float> ecs = new ExecutorCompletionService<Float>(exec);
+        Map<Future<Float>, TimedTest> running = new HashMap<Future<Float>, TimedTest>();
+        try
         {
-            try
+            //submit all the tests
+            for (int i = 0; i < list.size(); i++)
             {
-                List<Future<Float>> fl = exec.invokeAll(list.subList(i, i + 1), TASK_TIMEOUT, TimeUnit.SECONDS);
-                futures.add(fl.get(0));
-            } catch (InterruptedException e) {
-                log.error("Test " + i + " interrupted: " + e.getMessage());
-                futures.add(null);
+                TimedTest task = new TimedTest(i, (ReferenceTestCase) list.get(i));
+                running.put(ecs.submit(task), task);
             }
-        }
-        //get the results from the futures
-        for (int i = 0; i < futures.size(); i++)
-        {
-            String tname = ((ReferenceTestCase) list.get(i)).getName();
-            float tvalue;
-            
-            Future<Float> future = futures.get(i);
-            if (future != null)
+            //collect the results as they complete
+            long lastCheck = System.currentTimeMillis();
+            while (!running.isEmpty())
             {
-                try
+                Future<Float> future = ecs.poll(1, TimeUnit.SECONDS);
+                if (future != null)
                 {
-                    tvalue = future.get();
-                } catch (ExecutionException e) {
-                    log.error(tname + " (" + i + "): " + e.getMessage());
-                    e.printStackTrace();
-                    tvalue = 1.0f;
-                } catch (CancellationException e) {
-                    log.error(tname + " (" + i + "): " + e.getMessage());
-                    e.printStackTrace();
-                    tvalue = 1.0f;
-                } catch (InterruptedException e) {
-                    log.error(tname + " (" + i + "): " + e.getMessage());
-                    e.printStackTrace();
-                    tvalue = 1.0f;
+                    TimedTest task = running.remove(future);
+                    values[task.index] = getResult(future, task);
+                    times[task.index] = task.getDuration();
+                    reportCompletion(task.test);
+                }
+                if (System.currentTimeMillis() - lastCheck >= 1000)
+                {
+                    cancelTimedOut(running);
+                    lastCheck = System.currentTimeMillis();
                 }
             }
-            else
+        } catch (InterruptedException e) {
+            log.error("Interrupted: {}", e.getMessage());
+            for (Map.Entry<Future<Float>, TimedTest> entry : running.entrySet())
             {
-                log.error(tname + " (" + i + "): result not available");
-                tvalue = 1.0f;
+                entry.getKey().cancel(true);
+                values[entry.getValue().index] = 1.0f;
             }
-            
-            results.put(tname, tvalue);
+        } finally {
+            exec.shutdownNow();
+        }
+        wallTime = System.currentTimeMillis() - startTime;
+        
+        //store the results in the test order
+        for (int i = 0; i < list.size(); i++)
+        {
+            String tname = ((ReferenceTestCase) list.get(i)).getName();
+            results.put(tname, values[i]);
+            timings.put(tname, times[i]);
+        }
+        logSummary(list.size());
+    }
+    
+    /**
+     * Obtains the result of a completed test task.
+     * @param future the future of the completed task
+     * @param task the task
+     * @return the test result or 1.0 when the test failed
+     */
+    private float getResult(Future<Float> future, TimedTest task)
+    {
+        final String tname = task.test.getName();
+        try
+        {
+            return future.get();
+        } catch (ExecutionException e) {
+            log.error(tname + " (" + task.index + "): " + e.getMessage());
+            e.printStackTrace();
+            return 1.0f;
+        } catch (CancellationException e) {
+            log.error(tname + " (" + task.index + "): cancelled after timeout");
+            return 1.0f;
+        } catch (InterruptedException e) {
+            log.error(tname + " (" + task.index + "): " + e.getMessage());
+            return 1.0f;
         }
     }
     
+    /**
+     * Cancels the tasks that are running longer than the task timeout.
+     * @param running the running tasks
+     */
+    private void cancelTimedOut(Map<Future<Float>, TimedTest> running)
+    {
+        for (Iterator<Map.Entry<Future<Float>, TimedTest>> it = running.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<Future<Float>, TimedTest> entry = it.next();
+            if (entry.getValue().getDuration() > TASK_TIMEOUT * 1000L)
+                entry.getKey().cancel(true); //the cancelled future will be obtained from the completion service
+        }
+    }
+    
+    private void logSummary(int count)
+    {
+        double seconds = wallTime / 1000.0;
+        log.info(String.format("Completed %d tests in %.1f s using %d threads (%.2f tests/s)",
+                count, seconds, threadsUsed, (seconds > 0) ? count / seconds : 0.0));
+        long total = 0;
+        String slowest = null;
+        long slowestTime = -1;
+        for (Map.Entry<String, Long> entry : timings.entrySet())
+        {
+            total += entry.getValue();
+            if (entry.getValue() > slowestTime)
+            {
+                slowestTime = entry.getValue();
+                slowest = entry.getKey();
+            }
+        }
+        if (slowest != null)
+            log.info("Total test time {} ms, average {} ms, slowest {} ({} ms)", total, total / timings.size(), slowest, slowestTime);
+    }
+    
     /**
      * Runs all the tests sequentionally.
      * @param selected the list of selected test to be used or {@code null} to use all the
@@ -309,6 +382,7 @@ public class TestBatch
             String tname = ((ReferenceTestCase) test).getName();
             log.info("Test {}/{} {}", i, list.size(), tname);
             System.out.print("Test " + i + "/" + list.size() + " " + tname);
+            long start = System.currentTimeMillis();
             try
             {
                 Float result = test.call();
@@ -316,6 +390,7 @@ public class TestBatch
             } catch (Exception e) {
                 log.error(e.getMessage());
             }
+            timings.put(tname, System.currentTimeMillis() - start);
             long free = runtime.freeMemory();
             if (free < minFree) minFree = free;
             list.set(i, null); //do not hold the tests in memory
@@ -387,6 +462,24 @@ public class TestBatch
         return results;
     }
     
+    /**
+     * Obtains the execution times of the individual tests from the last run.
+     * @return a map of test names to the execution times in miliseconds
+     */
+    public Map<String, Long> getTimings()
+    {
+        return timings;
+    }
+    
+    /**
+     * Obtains the total wall-clock time of the last parallel run.
+     * @return the time in miliseconds
+     */
+    public long getWallTime()
+    {
+        return wallTime;
+    }
+    
     /**
      * Runs a test specified by its name when it is present in the testing batch.
      * @param name the test name
@@ -428,6 +521,48 @@ public class TestBatch
             log.info("Completed " + completedCount + "/" + totalCount);
     }
     
+    /**
+     * A test task that measures its execution time.
+     */
+    private static class TimedTest implements Callable<Float>
+    {
+        public final int index;
+        public final ReferenceTestCase test;
+        private volatile long startTime; //0 means not started yet
+        private volatile long endTime;
+        
+        public TimedTest(int index, ReferenceTestCase test)
+        {
+            this.index = index;
+            this.test = test;
+        }
+
+        @Override
+        public Float call() throws Exception
+        {
+            startTime = System.nanoTime();
+            try
+            {
+                return test.call();
+            } finally {
+                endTime = System.nanoTime();
+            }
+        }
+        
+        /**
+         * Obtains the task execution time.
+         * @return the time in miliseconds (0 when not started yet)
+         */
+        public long getDuration()
+        {
+            final long start = startTime;
+            if (start == 0)
+                return 0;
+            final long end = endTime;
+            return ((end != 0) ? end - start : System.nanoTime() - start) / 1000000L;
+        }
+    }
+    
     public class SourceEntry
     {
         public String name;
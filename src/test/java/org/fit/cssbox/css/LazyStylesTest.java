@@ -0,0 +1,108 @@
+/*
+ * LazyStylesTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 11:27:52
+ */
+package org.fit.cssbox.css;
+
+import java.net.URL;
+
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Checks that the styles computed on demand ({@link DOMAnalyzer#setLazyStyles(boolean)}) are the same
+ * as the styles computed for the whole document at once.
+ */
+public class LazyStylesTest
+{
+    private static final String PAGE = "<!DOCTYPE html><html><head><style>"
+            + "body { font-size: 14px; color: #333; } .box { padding: 1em; border: 1px solid red; }"
+            + "li + li { margin-top: 2px; } li:first-child { font-weight: bold; }"
+            + "p.note::before { content: 'Note: '; color: blue; } p.note::after { content: '!'; }"
+            + ".hidden { display: none; color: green; } .hidden span { font-size: 200%; }"
+            + "</style></head><body>"
+            + "<div class=\"box\"><p class=\"note\">First <em>note</em></p><p>Plain <span>text</span></p></div>"
+            + "<ul><li>One</li><li>Two <b>bold</b></li><li>Three</li></ul>"
+            + "<div class=\"hidden\"><p class=\"note\">Hidden <span>inner</span></p><div><em>deep</em></div></div>"
+            + "<table><tr><td style=\"font-size: 80%\">A <i>B</i></td></tr></table>"
+            + "</body></html>";
+
+    @Test
+    public void lazyMatchesEager() throws Exception
+    {
+        checkLazy(false);
+    }
+
+    @Test
+    public void lazySharedMatchesEager() throws Exception
+    {
+        checkLazy(true);
+    }
+
+    @Test
+    public void lazyRecomputed() throws Exception
+    {
+        DOMAnalyzer lazy = createAnalyzer(true, false);
+        Element li = (Element) lazy.getBody().getElementsByTagName("li").item(1);
+        Assert.assertEquals("2px", lazy.getElementStyleInherited(li).getAsString("margin-top", true));
+
+        //the classified rules are used until the styles are recomputed
+        lazy.addStyleSheet(null, "ul li { margin-top: 3px; }", DOMAnalyzer.Origin.AUTHOR);
+        lazy.recomputeStyles();
+        Assert.assertEquals("3px", lazy.getElementStyleInherited(li).getAsString("margin-top", true));
+    }
+
+    //=====================================================================================
+
+    private void checkLazy(boolean sharing) throws Exception
+    {
+        DOMAnalyzer eager = createAnalyzer(false, false);
+        DOMAnalyzer lazy = createAnalyzer(true, sharing);
+        NodeList el1 = eager.getRoot().getOwnerDocument().getElementsByTagName("*");
+        NodeList el2 = lazy.getRoot().getOwnerDocument().getElementsByTagName("*");
+        Assert.assertEquals(el1.getLength(), el2.getLength());
+
+        //the descendants first (including the display: none subtree) so that the parents are computed on demand
+        for (int i = el2.getLength() - 1; i >= 0; i--)
+            TestPages.assertSameStyles("reverse #" + i, eager, (Element) el1.item(i), lazy, (Element) el2.item(i));
+
+        //release some styles and compute them again
+        for (int i = 0; i < el2.getLength(); i += 2)
+            lazy.releaseStyles((Element) el2.item(i));
+        for (int i = 0; i < el2.getLength(); i++)
+            TestPages.assertSameStyles("released #" + i, eager, (Element) el1.item(i), lazy, (Element) el2.item(i));
+
+        //release everything starting from the root
+        for (int i = 0; i < el2.getLength(); i++)
+            lazy.releaseStyles((Element) el2.item(i));
+        for (int i = el2.getLength() - 1; i >= 0; i--)
+            TestPages.assertSameStyles("all released #" + i, eager, (Element) el1.item(i), lazy, (Element) el2.item(i));
+    }
+
+    private DOMAnalyzer createAnalyzer(boolean lazy, boolean sharing) throws Exception
+    {
+        DOMAnalyzer da = TestPages.createAnalyzer(PAGE, new URL("http://localhost/lazy.html"));
+        da.setLazyStyles(lazy);
+        da.setStyleSharing(sharing);
+        return da;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * PresentationalHintsTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 09:58:13
+ */
+package org.fit.cssbox.css;
+
+import java.net.URL;
+
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import cz.vutbr.web.css.NodeData;
+import cz.vutbr.web.css.TermURI;
+
+/**
+ * Checks that applying the HTML presentation attributes directly ({@link DOMAnalyzer#attributesToHints()})
+ * gives the same computed styles as converting them to inline styles ({@link DOMAnalyzer#attributesToStyles()}).
+ */
+public class PresentationalHintsTest
+{
+    private static final String PAGE = "<!DOCTYPE html><html><head><style>"
+            + "td.own { padding: 7px; background-color: #123456; } th { text-align: right; }"
+            + "</style></head><body background=\"img/page.gif\" bgcolor=\"#ffffee\">"
+            + "<table border=\"2\" cellpadding=\"4\" cellspacing=\"1\" bgcolor=\"#cccccc\" background=\"img/table.gif\">"
+            + "<tr bgcolor=\"red\" valign=\"top\"><th align=\"left\">A</th><th>B</th><td class=\"own\" bgcolor=\"blue\">C</td></tr>"
+            + "<tr><td background=\"../img/cell.gif\" align=\"center\">D</td>"
+            + "<td><table border=\"0\" cellpadding=\"1\" frame=\"box\" rules=\"rows\"><tr><td>E</td></tr></table></td>"
+            + "<td><font color=\"green\" size=\"+2\" face=\"Arial, Helvetica\">F</font><img src=\"x.png\" border=\"0\" align=\"right\"></td></tr>"
+            + "</table></body></html>";
+
+    @Test
+    public void hintsMatchInlineStyles() throws Exception
+    {
+        URL url = new URL("http://localhost/pages/hints.html");
+        DOMAnalyzer styles = TestPages.createAnalyzer(PAGE, url, false);
+        DOMAnalyzer hints = TestPages.createAnalyzer(PAGE, url, true);
+
+        NodeList el1 = styles.getRoot().getOwnerDocument().getElementsByTagName("*");
+        NodeList el2 = hints.getRoot().getOwnerDocument().getElementsByTagName("*");
+        Assert.assertEquals(el1.getLength(), el2.getLength());
+        int images = 0;
+        for (int i = 0; i < el1.getLength(); i++)
+        {
+            final Element e1 = (Element) el1.item(i);
+            final Element e2 = (Element) el2.item(i);
+            final NodeData s1 = styles.getElementStyleInherited(e1);
+            final NodeData s2 = hints.getElementStyleInherited(e2);
+            //the background images are compared separately including the base URL
+            Assert.assertEquals("Style of <" + e1.getTagName() + "> #" + i,
+                    TestPages.dump(s1, "background-image"), TestPages.dump(s2, "background-image"));
+
+            TermURI u1 = s1.getValue(TermURI.class, "background-image");
+            TermURI u2 = s2.getValue(TermURI.class, "background-image");
+            if (u1 != null)
+            {
+                Assert.assertNotNull("Background image base of <" + e2.getTagName() + ">", u2.getBase());
+                Assert.assertEquals(new URL(u1.getBase(), u1.getValue()), new URL(u2.getBase(), u2.getValue()));
+                images++;
+            }
+        }
+        Assert.assertEquals("All the background images are resolved", 3, images);
+    }
+
+    @Test
+    public void hintsResolveAgainstDocumentBase() throws Exception
+    {
+        //the same hint string used in different documents must be resolved against each document base
+        DOMAnalyzer da1 = TestPages.createAnalyzer(PAGE, new URL("http://one.example/a/page.html"), true);
+        DOMAnalyzer da2 = TestPages.createAnalyzer(PAGE, new URL("http://two.example/b/page.html"), true);
+        TermURI u1 = da1.getElementStyleInherited(da1.getBody()).getValue(TermURI.class, "background-image");
+        TermURI u2 = da2.getElementStyleInherited(da2.getBody()).getValue(TermURI.class, "background-image");
+        Assert.assertEquals(new URL("http://one.example/a/img/page.gif"), new URL(u1.getBase(), u1.getValue()));
+        Assert.assertEquals(new URL("http://two.example/b/img/page.gif"), new URL(u2.getBase(), u2.getValue()));
+    }
+
+}
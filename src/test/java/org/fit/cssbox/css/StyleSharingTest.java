@@ -0,0 +1,130 @@
+/*
+ * StyleSharingTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 13:48:09
+ */
+package org.fit.cssbox.css;
+
+import java.awt.Dimension;
+import java.net.URL;
+
+import org.fit.cssbox.layout.LayoutEngine;
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import cz.vutbr.web.css.NodeData;
+
+/**
+ * Checks that sharing the computed styles among the sibling elements ({@link DOMAnalyzer#setStyleSharing(boolean)})
+ * gives the same styles as computing them for each element separately and that the shared styles
+ * are not modified by the boxes during the layout.
+ */
+public class StyleSharingTest
+{
+    private static final String PAGE = "<!DOCTYPE html><html><head><style>"
+            + "li:first-child { color: red; } li + li { margin-top: 3px; } p + p { text-indent: 2em; }"
+            + "td { padding: 2px; } td.num { text-align: right; } span::before { content: '-'; }"
+            + "</style></head><body>"
+            + "<ul><li>One</li><li>Two</li><li>Two</li><li class=\"x\">Three</li></ul>"
+            + "<p>First <span>a</span><span>a</span></p><p>Second</p><p>Third</p>"
+            + "<div><table width=\"200\" height=\"40\"><tr><td>1</td><td>1</td><td class=\"num\">2</td></tr>"
+            + "<tr><td>1</td><td>1</td><td class=\"num\">2</td></tr></table>"
+            + "<table width=\"200\" height=\"40\"><tr><td>1</td><td>1</td></tr></table>"
+            + "<table width=\"50%\"><tr><td>3</td></tr></table>"
+            + "<table><tr><td>4</td></tr></table></div>"
+            + "</body></html>";
+
+    private static final String COPY_PAGE = "<!DOCTYPE html><html><head><style>"
+            + "div { margin: 5px; margin-top: 1px; border: 1px solid red; border-color: blue; border-top: 2px dashed; }"
+            + "p { margin-left: 3px; margin: 2px 4px; font: italic 12px serif; font-weight: bold; color: green; }"
+            + "span { border: inherit; margin: inherit; color: initial; font-style: unset; padding: 1px !important; }"
+            + "#x { padding: 7px; background: yellow url(a.png); background-color: inherit; }"
+            + "</style></head><body>"
+            + "<div>One <span>two</span><p>Three <span id=\"x\" style=\"padding-left: 2px; border-left: 3px dotted\">four</span></p></div>"
+            + "<table width=\"200\" height=\"40\" style=\"margin: 4px auto\"><tr><td>1</td></tr></table>"
+            + "</body></html>";
+
+    @Test
+    public void sharedMatchesUnshared() throws Exception
+    {
+        DOMAnalyzer unshared = createAnalyzer(false);
+        DOMAnalyzer shared = createAnalyzer(true);
+        Assert.assertTrue("Some styles are shared", shared.getSharedStyleCount() > 0);
+
+        NodeList el1 = unshared.getRoot().getOwnerDocument().getElementsByTagName("*");
+        NodeList el2 = shared.getRoot().getOwnerDocument().getElementsByTagName("*");
+        Assert.assertEquals(el1.getLength(), el2.getLength());
+        for (int i = 0; i < el1.getLength(); i++)
+            TestPages.assertSameStyles("#" + i, unshared, (Element) el1.item(i), shared, (Element) el2.item(i));
+    }
+
+    @Test
+    public void stylesNotModifiedByLayout() throws Exception
+    {
+        URL url = new URL("http://localhost/sharing.html");
+        DOMAnalyzer da = TestPages.createAnalyzer(PAGE, url);
+        da.setStyleSharing(true);
+        NodeList elems = da.getRoot().getOwnerDocument().getElementsByTagName("*");
+        String[] before = new String[elems.getLength()];
+        for (int i = 0; i < elems.getLength(); i++)
+            before[i] = TestPages.dump(da.getElementStyleInherited((Element) elems.item(i)));
+        createLayout(da, url);
+        for (int i = 0; i < elems.getLength(); i++)
+            Assert.assertEquals("#" + i + " <" + ((Element) elems.item(i)).getTagName() + ">",
+                    before[i], TestPages.dump(da.getElementStyleInherited((Element) elems.item(i))));
+    }
+
+    @Test
+    public void copiedStyles() throws Exception
+    {
+        DOMAnalyzer da = TestPages.createAnalyzer(COPY_PAGE, new URL("http://localhost/copy.html"));
+        NodeList elems = da.getRoot().getOwnerDocument().getElementsByTagName("*");
+        for (int i = 0; i < elems.getLength(); i++)
+        {
+            final Element el = (Element) elems.item(i);
+            final NodeData style = da.getElementStyleInherited(el);
+            final NodeData copy = StyleSharing.copyStyle(style);
+            Assert.assertNotSame(style, copy);
+            Assert.assertEquals("#" + i + " <" + el.getTagName() + ">", TestPages.dump(style), TestPages.dump(copy));
+        }
+    }
+
+    //=====================================================================================
+
+    /**
+     * Creates the analyzer and the box tree so that the styles are used by the boxes as well.
+     */
+    private DOMAnalyzer createAnalyzer(boolean sharing) throws Exception
+    {
+        URL url = new URL("http://localhost/sharing.html");
+        DOMAnalyzer da = TestPages.createAnalyzer(PAGE, url);
+        da.setStyleSharing(sharing);
+        createLayout(da, url);
+        return da;
+    }
+
+    private void createLayout(DOMAnalyzer da, URL url)
+    {
+        LayoutEngine engine = TestPages.createEngine(da, url);
+        engine.getConfig().setLoadImages(false);
+        engine.createLayout(new Dimension(800, 600));
+    }
+
+}
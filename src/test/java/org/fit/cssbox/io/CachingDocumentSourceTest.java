@@ -0,0 +1,354 @@
+/*
+ * CachingDocumentSourceTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 12:06:31
+ */
+package org.fit.cssbox.io;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks the HTTP caching of {@link CachingDocumentSource} and {@link HTTPCache} against a local
+ * HTTP server.
+ */
+public class CachingDocumentSourceTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private URL base;
+    private HTTPCache cache;
+    /** The number of requests received for each path */
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<String, AtomicInteger>();
+    /** The number of {@code 304 Not Modified} responses sent */
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    @Before
+    public void startServer() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new TestHandler());
+        server.start();
+        base = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+    }
+
+    @After
+    public void stopServer() throws IOException
+    {
+        CachingDocumentSource.setCache(null);
+        if (cache != null)
+            cache.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void freshHit() throws IOException
+    {
+        useCache(new HTTPCache(folder.newFolder("cache")));
+        Assert.assertEquals("fresh resource", fetch("fresh"));
+        Assert.assertEquals("fresh resource", fetch("fresh"));
+        Assert.assertEquals(1, getRequests("/fresh"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getStoreCount());
+    }
+
+    @Test
+    public void maxAgeZeroRevalidates() throws IOException
+    {
+        useCache(new HTTPCache(folder.newFolder("cache")));
+        Assert.assertEquals("tagged resource", fetch("etag"));
+        Assert.assertEquals("tagged resource", fetch("etag"));
+        Assert.assertEquals("tagged resource", fetch("etag"));
+        Assert.assertEquals(3, getRequests("/etag"));
+        Assert.assertEquals(2, notModified.get());
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(2, cache.getRevalidationCount());
+        Assert.assertEquals(1, cache.getStoreCount());
+    }
+
+    @Test
+    public void noCacheKeptAfterRevalidation() throws IOException
+    {
+        File dir = folder.newFolder("cache");
+        useCache(new HTTPCache(dir));
+        Assert.assertEquals("revalidated resource", fetch("nocache"));
+        Assert.assertEquals("revalidated resource", fetch("nocache"));
+        Assert.assertEquals("revalidated resource", fetch("nocache"));
+        cache.close();
+
+        useCache(new HTTPCache(dir));
+        Assert.assertEquals("revalidated resource", fetch("nocache"));
+        Assert.assertEquals("Each request is revalidated", 4, getRequests("/nocache"));
+        Assert.assertEquals(3, notModified.get());
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void noStore() throws IOException
+    {
+        useCache(new HTTPCache(folder.newFolder("cache")));
+        Assert.assertEquals("private resource", fetch("nostore"));
+        Assert.assertEquals("private resource", fetch("nostore"));
+        Assert.assertEquals(2, getRequests("/nostore"));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getStoreCount());
+        Assert.assertEquals(0, getBodyFiles(cache.getDirectory()).length);
+    }
+
+    @Test
+    public void journalReload() throws IOException
+    {
+        File dir = folder.newFolder("cache");
+        useCache(new HTTPCache(dir));
+        Assert.assertEquals("fresh resource", fetch("fresh"));
+        Assert.assertEquals("tagged resource", fetch("etag"));
+        cache.close();
+
+        useCache(new HTTPCache(dir));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals("fresh resource", fetch("fresh"));
+        Assert.assertEquals("tagged resource", fetch("etag"));
+        Assert.assertEquals(1, getRequests("/fresh"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getRevalidationCount());
+    }
+
+    @Test
+    public void sizeLimit() throws IOException
+    {
+        useCache(new HTTPCache(folder.newFolder("cache"), 2500));
+        fetch("size/a");
+        fetch("size/b");
+        fetch("size/a"); //a is now more recently used than b
+        fetch("size/c");
+        Assert.assertTrue("The size limit is kept", cache.getStoredSize() <= 2500);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(2, getBodyFiles(cache.getDirectory()).length);
+        Assert.assertNull(cache.get(new URL(base, "size/b")));
+
+        fetch("size/a");
+        fetch("size/b");
+        Assert.assertEquals(1, getRequests("/size/a"));
+        Assert.assertEquals(2, getRequests("/size/b"));
+        Assert.assertEquals(1, getRequests("/size/c"));
+    }
+
+    @Test
+    public void supersededBodies() throws IOException
+    {
+        File dir = folder.newFolder("cache");
+        useCache(new HTTPCache(dir));
+        final int count = HTTPCache.COMPACT_MIN_RECORDS + 50;
+        String last = null;
+        for (int i = 0; i < count; i++)
+            last = fetch("changing");
+        Assert.assertEquals("version " + count, last);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, getBodyFiles(dir).length);
+        Assert.assertTrue("The journal is compacted", countLines(new File(dir, "index.txt")) <= 2 * HTTPCache.COMPACT_MIN_RECORDS);
+        cache.close();
+
+        useCache(new HTTPCache(dir));
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(1, countLines(new File(dir, "index.txt")));
+        HTTPCache.Entry entry = cache.get(new URL(base, "changing"));
+        Assert.assertEquals("version " + count, read(cache.openBody(entry)));
+    }
+
+    @Test
+    public void storeFailure() throws IOException
+    {
+        useCache(new HTTPCache(folder.newFolder("cache")) {
+            @Override
+            public Entry store(URL url, HttpURLConnection con, InputStream body) throws IOException
+            {
+                body.read(new byte[4]);
+                throw new IOException("No space left on device");
+            }
+        });
+        Assert.assertEquals("fresh resource", fetch("fresh"));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    //=====================================================================================
+
+    private void useCache(HTTPCache cache)
+    {
+        this.cache = cache;
+        CachingDocumentSource.setCache(cache);
+    }
+
+    private String fetch(String path) throws IOException
+    {
+        DocumentSource src = new CachingDocumentSource(new URL(base, path));
+        try
+        {
+            return read(src.getInputStream());
+        } finally {
+            src.close();
+        }
+    }
+
+    private static String read(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = is.read(buffer)) != -1)
+            out.write(buffer, 0, n);
+        is.close();
+        return out.toString("UTF-8");
+    }
+
+    private int getRequests(String path)
+    {
+        AtomicInteger cnt = requests.get(path);
+        return (cnt == null) ? 0 : cnt.get();
+    }
+
+    private static File[] getBodyFiles(File dir)
+    {
+        File[] ret = dir.listFiles();
+        int cnt = 0;
+        for (File f : ret)
+        {
+            if (!f.getName().startsWith("index"))
+                ret[cnt++] = f;
+        }
+        return Arrays.copyOf(ret, cnt);
+    }
+
+    private static int countLines(File file) throws IOException
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try
+        {
+            int ret = 0;
+            while (reader.readLine() != null)
+                ret++;
+            return ret;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Serves the test resources. The path determines the caching headers of the response.
+     */
+    private class TestHandler implements HttpHandler
+    {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            final String path = exchange.getRequestURI().getPath();
+            AtomicInteger cnt = requests.putIfAbsent(path, new AtomicInteger(1));
+            final int n = (cnt == null) ? 1 : cnt.incrementAndGet();
+
+            String body;
+            if (path.equals("/fresh"))
+            {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=3600");
+                body = "fresh resource";
+            }
+            else if (path.equals("/etag"))
+            {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                    exchange.close();
+                    return;
+                }
+                body = "tagged resource";
+            }
+            else if (path.equals("/nocache"))
+            {
+                //an old Last-Modified date would make the response fresh for a long time heuristically
+                exchange.getResponseHeaders().set("ETag", "\"n1\"");
+                exchange.getResponseHeaders().set("Last-Modified", "Mon, 01 Jan 2001 00:00:00 GMT");
+                if ("\"n1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                {
+                    notModified.incrementAndGet(); //no Cache-Control, the stored no-cache applies
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                    exchange.close();
+                    return;
+                }
+                exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+                body = "revalidated resource";
+            }
+            else if (path.equals("/nostore"))
+            {
+                exchange.getResponseHeaders().set("Cache-Control", "no-store");
+                body = "private resource";
+            }
+            else if (path.equals("/changing"))
+            {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+                body = "version " + n;
+            }
+            else if (path.startsWith("/size/"))
+            {
+                exchange.getResponseHeaders().set("Cache-Control", "max-age=3600");
+                char[] data = new char[1000];
+                Arrays.fill(data, path.charAt(path.length() - 1));
+                body = new String(data);
+            }
+            else
+            {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+                exchange.close();
+                return;
+            }
+
+            byte[] data = body.getBytes("UTF-8");
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, data.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(data);
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * BoxFactoryTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 17:26:03
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Dimension;
+import java.net.URL;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import cz.vutbr.web.css.NodeData;
+
+/**
+ * Checks that {@link BoxFactory#createElementInstance(ElementBox, Element, NodeData)} creates the same boxes
+ * as converting an inline box to the box class that corresponds to the display value.
+ */
+public class BoxFactoryTest
+{
+    private static final String PAGE = "<!DOCTYPE html><html><body>"
+            + "<div>Block <span>inline</span> <b style=\"display: inline-block\">ib</b> <i style=\"display: block\">b</i></div>"
+            + "<ul><li>Item</li><li style=\"display: inline\">Inline item</li></ul>"
+            + "<table><caption>Caption</caption><colgroup><col><col span=\"2\"></colgroup><col>"
+            + "<thead><tr><th>H</th></tr></thead><tbody><tr><td>C</td></tr></tbody><tfoot><tr><td>F</td></tr></tfoot></table>"
+            + "<p><span style=\"display: table\">t</span><span style=\"display: table-row-group\">rg</span>"
+            + "<span style=\"display: table-row\">r</span><span style=\"display: table-cell\">c</span>"
+            + "<span style=\"display: table-column\">col</span><span style=\"display: table-column-group\">cg</span>"
+            + "<span style=\"display: table-caption\">cap</span><span style=\"display: inline-table\">it</span>"
+            + "<span style=\"display: list-item\">li</span><span style=\"display: none\">none</span>"
+            + "<span style=\"float: left\">float</span><span style=\"position: absolute\">abs</span></p>"
+            + "</body></html>";
+
+    @Test
+    public void sameBoxesAsConversion() throws Exception
+    {
+        URL url = new URL("http://localhost/factory.html");
+        DOMAnalyzer da = TestPages.createAnalyzer(PAGE, url);
+        LayoutEngine engine = TestPages.createEngine(da, url);
+        engine.getConfig().setLoadImages(false);
+        Viewport viewport = engine.createLayout(new Dimension(800, 600));
+
+        NodeList elems = da.getBody().getElementsByTagName("*");
+        for (int i = 0; i < elems.getLength(); i++)
+        {
+            final Element el = (Element) elems.item(i);
+            final NodeData style = da.getElementStyleInherited(el);
+            final String name = "#" + i + " <" + el.getTagName() + " style=\"" + el.getAttribute("style") + "\">";
+            ElementBox created = viewport.getFactory().createElementInstance(viewport, el, style);
+            ElementBox converted = convert(viewport, el, style);
+            Assert.assertEquals(name + " class", converted.getClass(), created.getClass());
+            Assert.assertEquals(name + " display", converted.getDisplay(), created.getDisplay());
+            Assert.assertEquals(name + " block", converted.isBlock(), created.isBlock());
+            Assert.assertEquals(name + " displayed", converted.isDisplayed(), created.isDisplayed());
+        }
+    }
+
+    //=====================================================================================
+
+    /**
+     * Creates the box by creating an inline box and converting it according to its display value.
+     */
+    private ElementBox convert(ElementBox parent, Element n, NodeData style)
+    {
+        ElementBox root = new InlineBox(n, parent.getGraphics(), parent.getVisualContext().create());
+        root.setViewport(parent.getViewport());
+        root.setStyle(style);
+        if (root.getDisplay() == ElementBox.DISPLAY_LIST_ITEM)
+            root = new ListItemBox((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE)
+            root = new BlockTableBox((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_CAPTION)
+            root = new TableCaptionBox((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_ROW_GROUP
+                 || root.getDisplay() == ElementBox.DISPLAY_TABLE_HEADER_GROUP
+                 || root.getDisplay() == ElementBox.DISPLAY_TABLE_FOOTER_GROUP)
+            root = new TableBodyBox((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_ROW)
+            root = new TableRowBox((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_CELL)
+            root = new TableCellBox((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_COLUMN)
+            root = new TableColumn((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_TABLE_COLUMN_GROUP)
+            root = new TableColumnGroup((InlineBox) root);
+        else if (root.getDisplay() == ElementBox.DISPLAY_INLINE_BLOCK)
+            root = new InlineBlockBox((InlineBox) root);
+        else if (root.isBlock())
+            root = new BlockBox((InlineBox) root);
+        return root;
+    }
+
+}
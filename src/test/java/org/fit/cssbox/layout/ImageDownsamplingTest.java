@@ -0,0 +1,234 @@
+/*
+ * ImageDownsamplingTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 10:41:26
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+
+import org.fit.cssbox.io.DocumentSource;
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import cz.vutbr.web.css.MediaSpec;
+
+/**
+ * Checks decoding the content images at their used size and that the repeated images are
+ * downloaded only once. Checks the resources fetched by the {@link ResourceLoader}.
+ */
+public class ImageDownsamplingTest
+{
+    private static final String PAGE = "<!DOCTYPE html><html><body>"
+            + "<p><img src=\"img/photo.png\" width=\"50\" height=\"40\">"
+            + "<img src=\"img/photo.png\" width=\"100\" height=\"75\">"
+            + "<img src=\"img/photo.png\" width=\"50\" height=\"40\"></p>"
+            + "</body></html>";
+
+    /** The encoded test image (400x300 pixels) */
+    private static byte[] png;
+    /** The number of document sources created for each URL */
+    private static final ConcurrentHashMap<String, AtomicInteger> opened = new ConcurrentHashMap<String, AtomicInteger>();
+
+    @BeforeClass
+    public static void init() throws IOException
+    {
+        BufferedImage img = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < img.getHeight(); y++)
+            for (int x = 0; x < img.getWidth(); x++)
+                img.setRGB(x, y, (x * 255 / img.getWidth()) << 16 | (y * 255 / img.getHeight()) << 8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        png = out.toByteArray();
+    }
+
+    @Before
+    public void resetCounters()
+    {
+        opened.clear();
+    }
+
+    @Test
+    public void subsampledDecode() throws IOException
+    {
+        URL url = new URL("http://test.invalid/img/photo.png");
+        BufferedImage full = ContentImage.decodeImage(url, png, -1, -1);
+        Assert.assertEquals(new Dimension(400, 300), new Dimension(full.getWidth(), full.getHeight()));
+
+        BufferedImage exact = ContentImage.decodeImage(url, png, 100, 100);
+        Assert.assertEquals(new Dimension(100, 100), new Dimension(exact.getWidth(), exact.getHeight()));
+
+        final int[][] sizes = {{150, 120}, {399, 299}, {30, 200}, {7, 5}};
+        for (int[] size : sizes)
+        {
+            BufferedImage img = ContentImage.decodeImage(url, png, size[0], size[1]);
+            Assert.assertTrue("Not smaller than the used width " + size[0], img.getWidth() >= size[0]);
+            Assert.assertTrue("Not smaller than the used height " + size[1], img.getHeight() >= size[1]);
+            Assert.assertTrue("Less than double width for " + size[0], img.getWidth() < 2 * size[0]);
+            Assert.assertTrue("Less than double height for " + size[1], img.getHeight() < 2 * size[1]);
+        }
+    }
+
+    @Test
+    public void singleDownloadWithoutLoader() throws Exception
+    {
+        LRUImageCache cache = new LRUImageCache();
+        LayoutEngine engine = createEngine(cache);
+        engine.createLayout(new Dimension(800, 600));
+        Assert.assertEquals(1, getOpened("http://test.invalid/img/photo.png"));
+        Assert.assertNotNull(cache.getData(new URL("http://test.invalid/img/photo.png")));
+    }
+
+    @Test
+    public void singleDownloadWithLoader() throws Exception
+    {
+        LRUImageCache cache = new LRUImageCache();
+        LayoutEngine engine = createEngine(cache);
+        ResourceLoader loader = new ResourceLoader(engine.getConfig());
+        try
+        {
+            engine.getConfig().setResourceLoader(loader);
+            loader.prefetchDocument(engine.root, engine.baseurl, engine.decoder.getMediaSpec());
+            engine.createLayout(new Dimension(800, 600));
+            loader.getImage(new URL("http://test.invalid/img/photo.png")); //the full image shares the data
+        } finally {
+            loader.close();
+        }
+        Assert.assertEquals(1, getOpened("http://test.invalid/img/photo.png"));
+    }
+
+    @Test
+    public void prefetchMatchingStyleSheets() throws Exception
+    {
+        final String page = "<!DOCTYPE html><html><head>"
+                + "<link rel=\"stylesheet\" href=\"print.css\" media=\"print\">"
+                + "<link rel=\"stylesheet\" href=\"wide.css\" media=\"screen and (min-width: 1000px)\">"
+                + "<link rel=\"alternate stylesheet\" href=\"other.css\" type=\"text/plain\">"
+                + "<link rel=\"stylesheet\" href=\"all.css\">"
+                + "<link rel=\"stylesheet\" href=\"screen.css\" media=\"print, screen\">"
+                + "</head><body></body></html>";
+        URL url = new URL("http://test.invalid/page.html");
+        Document doc = TestPages.parse(page, url);
+        BrowserConfig config = new BrowserConfig();
+        config.registerDocumentSource(CountingDocumentSource.class);
+        MediaSpec media = new MediaSpec("screen");
+        media.setDimensions(800, 600);
+        //a single connection fetches the resources in the document order
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ResourceLoader loader = new ResourceLoader(config, executor, 1);
+        try
+        {
+            loader.prefetchDocument(doc.getDocumentElement(), url, media);
+            loader.getData(new URL("http://test.invalid/screen.css"));
+        } finally {
+            loader.close();
+            executor.shutdown();
+        }
+        Assert.assertEquals(0, getOpened("http://test.invalid/print.css"));
+        Assert.assertEquals(0, getOpened("http://test.invalid/wide.css"));
+        Assert.assertEquals(0, getOpened("http://test.invalid/other.css"));
+        Assert.assertEquals(1, getOpened("http://test.invalid/all.css"));
+        Assert.assertEquals(1, getOpened("http://test.invalid/screen.css"));
+    }
+
+    @Test
+    public void imageUnavailableAfterClose() throws Exception
+    {
+        ResourceLoader loader = new ResourceLoader(new BrowserConfig());
+        loader.close();
+        Assert.assertNull(loader.getImage(new URL("http://test.invalid/img/photo.png")));
+    }
+
+    //=====================================================================================
+
+    private LayoutEngine createEngine(ImageCache cache) throws Exception
+    {
+        LayoutEngine engine = TestPages.createEngine(PAGE, new URL("http://test.invalid/page.html"));
+        engine.getConfig().registerDocumentSource(CountingDocumentSource.class);
+        engine.getConfig().setImageCache(cache);
+        engine.getConfig().setImageDownsampling(true);
+        return engine;
+    }
+
+    private static int getOpened(String url)
+    {
+        AtomicInteger cnt = opened.get(url);
+        return (cnt == null) ? 0 : cnt.get();
+    }
+
+    /**
+     * A document source that serves the test image for any URL and counts the created instances.
+     */
+    public static class CountingDocumentSource extends DocumentSource
+    {
+        private URL url;
+
+        public CountingDocumentSource(URL url) throws IOException
+        {
+            super(url);
+            this.url = url;
+            AtomicInteger cnt = opened.putIfAbsent(url.toString(), new AtomicInteger(1));
+            if (cnt != null)
+                cnt.incrementAndGet();
+        }
+
+        public CountingDocumentSource(URL base, String urlstring) throws IOException
+        {
+            this(new URL(base, urlstring));
+        }
+
+        @Override
+        public URL getURL()
+        {
+            return url;
+        }
+
+        @Override
+        public String getContentType()
+        {
+            return "image/png";
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException
+        {
+            return new ByteArrayInputStream(png);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * RelayoutTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 09:12:40
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Dimension;
+import java.net.URL;
+
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that {@link LayoutEngine#relayout(Dimension)} gives the same box tree as a fresh layout
+ * of the same document at the new size.
+ */
+public class RelayoutTest
+{
+    private static final String PAGE = "<!DOCTYPE html><html><head><style>"
+            + "p { font-family: serif; font-size: 16px; margin: 0 0 1em 0; }"
+            + "span.b { font-weight: bold; } em { letter-spacing: 1px; }"
+            + "</style></head><body>"
+            + "<p>  Lorem ipsum dolor sit amet, <span class=\"b\"> consectetur </span> adipiscing elit, "
+            + "<em>sed do eiusmod</em>  tempor incididunt <span> </span> ut labore et dolore magna aliqua.</p>"
+            + "<p><span>   </span> Ut enim ad minim veniam,<br> quis nostrud exercitation ullamco laboris "
+            + "nisi ut aliquip ex ea commodo consequat. <span class=\"b\">Duis aute irure dolor</span> "
+            + "in reprehenderit in voluptate velit esse cillum dolore eu fugiat nulla pariatur.</p>"
+            + "<p style=\"white-space: pre-line\">  Excepteur sint occaecat\n   cupidatat non proident, "
+            + "sunt in culpa qui officia deserunt mollit anim id est laborum.</p>"
+            + "</body></html>";
+
+    private static final String TABLE_PAGE = "<!DOCTYPE html><html><head><style>"
+            + "body { font-family: serif; font-size: 16px; } td { border: 1px solid black; padding: 2px; }"
+            + "</style></head><body>"
+            + "<table><tr><td>Short</td><td>Lorem ipsum dolor sit amet, consectetur adipiscing elit</td></tr>"
+            + "<tr><td colspan=\"2\">Sed do eiusmod tempor incididunt ut labore et dolore magna aliqua.</td></tr></table>"
+            + "<table width=\"100%\"><col width=\"60\"><tr><td>A</td><td width=\"30%\">Ut enim ad minim veniam</td>"
+            + "<td width=\"120\">Quis nostrud exercitation</td><td>Ullamco laboris nisi ut aliquip ex ea commodo</td></tr>"
+            + "<tr><td>Duis</td><td>aute</td><td>irure dolor in reprehenderit in voluptate velit esse</td><td></td></tr></table>"
+            + "<table style=\"width: 300px\"><tr><td>Cillum</td><td style=\"width: 50%\">Dolore eu fugiat nulla pariatur</td></tr></table>"
+            + "</body></html>";
+
+    private static final int[][] SIZES = {{800, 200}, {200, 90}, {90, 800}, {400, 1000}};
+
+    @Test
+    public void relayoutMatchesFreshLayout() throws Exception
+    {
+        checkRelayout(PAGE);
+    }
+
+    @Test
+    public void tableRelayoutMatchesFreshLayout() throws Exception
+    {
+        checkRelayout(TABLE_PAGE);
+    }
+
+    //=====================================================================================
+
+    private void checkRelayout(String page) throws Exception
+    {
+        for (int[] pair : SIZES)
+        {
+            final Dimension first = new Dimension(pair[0], 600);
+            final Dimension second = new Dimension(pair[1], 600);
+
+            LayoutEngine engine = createEngine(page);
+            engine.createLayout(first);
+            Viewport relaid = engine.relayout(second);
+
+            LayoutEngine fresh = createEngine(page);
+            Viewport expected = fresh.createLayout(second);
+
+            Assert.assertEquals("Relayout from " + pair[0] + " to " + pair[1],
+                    dump(expected), dump(relaid));
+        }
+    }
+
+    private LayoutEngine createEngine(String page) throws Exception
+    {
+        LayoutEngine engine = TestPages.createEngine(page, new URL("http://localhost/relayout.html"));
+        engine.getConfig().setLoadImages(false);
+        return engine;
+    }
+
+    private String dump(Viewport viewport)
+    {
+        StringBuilder ret = new StringBuilder();
+        dump(viewport, 0, ret);
+        return ret.toString();
+    }
+
+    private void dump(Box box, int level, StringBuilder out)
+    {
+        for (int i = 0; i < level; i++)
+            out.append("  ");
+        out.append(box.getClass().getSimpleName()).append(' ').append(box.getBounds());
+        if (box instanceof TextBox)
+            out.append(" '").append(box.getText()).append("'")
+               .append(((TextBox) box).collapsedCompletely() ? " collapsed" : "");
+        out.append('\n');
+        if (box instanceof ElementBox)
+        {
+            ElementBox el = (ElementBox) box;
+            for (int i = el.getStartChild(); i < el.getEndChild(); i++)
+                dump(el.getSubBox(i), level + 1, out);
+        }
+    }
+
+}
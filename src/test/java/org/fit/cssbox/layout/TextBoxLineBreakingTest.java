@@ -0,0 +1,163 @@
+/*
+ * TextBoxLineBreakingTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 16. 10. 2026, 11:40:22
+ */
+package org.fit.cssbox.layout;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import cz.vutbr.web.css.CSSProperty;
+
+/**
+ * Checks that the binary search line breaking in {@link TextBox} gives exactly the same
+ * results as the original word-by-word algorithm that measures the text using the font metrics.
+ */
+public class TextBoxLineBreakingTest
+{
+    private static final String CORPUS = "/linebreak_corpus.txt";
+
+    private static final int[] WIDTHS = {-1, 0, 1, 5, 10, 25, 40, 60, 80, 100, 150, 200, 300, 500, 1000, 5000};
+
+    private static final CSSProperty.WhiteSpace[] WHITESPACES = {
+        ElementBox.WHITESPACE_NORMAL, ElementBox.WHITESPACE_PRE, ElementBox.WHITESPACE_NOWRAP,
+        ElementBox.WHITESPACE_PRE_WRAP, ElementBox.WHITESPACE_PRE_LINE };
+
+    /** Maximal number of lines for a single text (avoids infinite loops when something goes wrong) */
+    private static final int MAX_LINES = 1000;
+
+    private static Document doc;
+    private static BufferedImage img;
+    private static List<String> corpus;
+
+    @BeforeClass
+    public static void init() throws Exception
+    {
+        doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        img = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        corpus = loadCorpus();
+    }
+
+    @Test
+    public void binarySearchMatchesLinearSearch()
+    {
+        int cnt = 0;
+        int fastCnt = 0;
+        for (String text : corpus)
+        {
+            for (CSSProperty.WhiteSpace ws : WHITESPACES)
+            {
+                if (createBox(text, ws, true).getBreaks() != null)
+                    fastCnt++;
+                for (int width : WIDTHS)
+                {
+                    for (int mode = 0; mode < 4; mode++)
+                    {
+                        final boolean force = (mode & 1) != 0;
+                        final boolean linestart = (mode & 2) != 0;
+                        List<String> expected = layoutLines(text, ws, width, force, linestart, false);
+                        List<String> result = layoutLines(text, ws, width, force, linestart, true);
+                        Assert.assertEquals("Line breaks for '" + text + "' ws=" + ws + " width=" + width
+                                + " force=" + force + " linestart=" + linestart, expected, result);
+                        cnt++;
+                    }
+                }
+            }
+        }
+        Assert.assertTrue("Some cases have been checked", cnt > 0);
+        Assert.assertTrue("Some texts use the binary search", fastCnt > 0);
+    }
+
+    @Test
+    public void breakOpportunities()
+    {
+        TextBox box = createBox("  one two   three ", ElementBox.WHITESPACE_PRE, true);
+        int[] breaks = box.getBreaks();
+        Assert.assertNotNull("The text widths are obtained from the cached advances", breaks);
+        Assert.assertArrayEquals(new int[] {0, 5, 9, 17}, breaks);
+    }
+
+    //=====================================================================================
+
+    /**
+     * Lays out the text repeatedly to the lines of the given width and records the results.
+     */
+    private List<String> layoutLines(String text, CSSProperty.WhiteSpace ws, int width, boolean force, boolean linestart, boolean fast)
+    {
+        List<String> ret = new ArrayList<String>();
+        TextBox box = createBox(text, ws, fast);
+        boolean f = force;
+        for (int i = 0; box != null && i < MAX_LINES; i++)
+        {
+            boolean success = box.doLayout(width, f, linestart);
+            ret.add(box.getTextStart() + "-" + box.getTextEnd() + ":" + box.getWidth() + "x" + box.getHeight()
+                    + (success ? " ok" : " fail") + (box.finishedByLineBreak() ? " br" : ""));
+            if (box.getRest() != null)
+            {
+                box = (TextBox) box.getRest();
+                f = force;
+            }
+            else if (!success && !f)
+                f = true; //try again on an empty line
+            else
+                box = null;
+        }
+        return ret;
+    }
+
+    private TextBox createBox(String text, CSSProperty.WhiteSpace ws, boolean fast)
+    {
+        Graphics2D g = img.createGraphics();
+        TextBox box = new TextBox(doc.createTextNode(text), g, new VisualContext(null, null));
+        box.setFastLineBreaking(fast); //before the widths are computed
+        box.setWhiteSpace(ws);
+        return box;
+    }
+
+    private static List<String> loadCorpus() throws IOException
+    {
+        List<String> ret = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                TextBoxLineBreakingTest.class.getResourceAsStream(CORPUS), "UTF-8"));
+        try
+        {
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                if (!line.startsWith("#"))
+                    ret.add(line.replace("\\n", "\n"));
+            }
+        } finally {
+            in.close();
+        }
+        return ret;
+    }
+
+}
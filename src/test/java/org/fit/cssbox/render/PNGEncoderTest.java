@@ -0,0 +1,179 @@
+/*
+ * PNGEncoderTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 16:48:20
+ */
+package org.fit.cssbox.render;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import javax.imageio.ImageIO;
+
+import org.fit.cssbox.layout.LayoutEngine;
+import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that the images encoded by {@link PNGEncoder} are decoded to the original pixels, including
+ * the sizes that are not multiples of the band or tile size.
+ */
+public class PNGEncoderTest
+{
+    /** Image sizes: single pixel, single column and row, a partial last band and several bands */
+    private static final int[][] SIZES = {{1, 1}, {1, 300}, {300, 1}, {7, 128}, {129, 257}, {517, 131}};
+
+    private static final String PAGE = "<!DOCTYPE html><html><head><style>"
+            + "body { margin: 3px; font-size: 13px; } div { height: 37px; border: 1px solid blue; }"
+            + ".a { background: #f80; width: 50%; } .b { background: #083; margin-left: 33px; }"
+            + "</style></head><body>"
+            + "<div class=\"a\">First block</div><p>Some text crossing the tile edges.</p>"
+            + "<div class=\"b\">Second block</div><div class=\"a b\" style=\"height: 101px\">Last</div>"
+            + "</body></html>";
+
+    @Test
+    public void encodeImages() throws IOException
+    {
+        for (int[] size : SIZES)
+        {
+            BufferedImage img = createImage(size[0], size[1]);
+            check(img, encode(img, true, Deflater.DEFAULT_COMPRESSION), "pool " + size[0] + "x" + size[1]);
+            check(img, encode(img, false, Deflater.DEFAULT_COMPRESSION), "single thread " + size[0] + "x" + size[1]);
+            check(img, encode(img, true, Deflater.NO_COMPRESSION), "stored " + size[0] + "x" + size[1]);
+        }
+    }
+
+    @Test
+    public void encodeRows() throws IOException
+    {
+        final int[] bands = {1, 7, 128, 3, 200, 1, 60}; //400 rows in total
+        BufferedImage img = createImage(211, 400);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PNGEncoder encoder = new PNGEncoder(out, img.getWidth(), img.getHeight());
+        try
+        {
+            int y = 0;
+            for (int rows : bands)
+            {
+                encoder.writeRows(img.getSubimage(0, y, img.getWidth(), rows));
+                y += rows;
+            }
+            encoder.finish();
+        } finally {
+            encoder.close();
+        }
+        check(img, out.toByteArray(), "rows");
+    }
+
+    @Test
+    public void encodeTiles() throws Exception
+    {
+        LayoutEngine engine = TestPages.createEngine(PAGE, new URL("http://localhost/tiles.html"));
+        engine.getConfig().setLoadImages(false);
+        Viewport viewport = engine.createLayout(new Dimension(301, 200));
+
+        final int[][] tiles = {{64, 48}, {301, 1}, {1, 77}, {1000, 1000}};
+        for (int[] tile : tiles)
+        {
+            TiledRenderer render = new TiledRenderer(viewport, tile[0], tile[1]);
+            final BufferedImage expected = new BufferedImage(render.getPageWidth(), render.getPageHeight(), BufferedImage.TYPE_INT_RGB);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final PNGEncoder encoder = new PNGEncoder(out, render.getPageWidth(), render.getPageHeight());
+            try
+            {
+                render.render(new TiledRenderer.TileConsumer() {
+                    @Override
+                    public void tileRendered(TiledRenderer.Tile t) throws IOException
+                    {
+                        //keep the tile pixels before the image is reused
+                        final Rectangle b = t.getBounds();
+                        final int[] pixels = t.getImage().getRGB(0, 0, b.width, b.height, null, 0, b.width);
+                        expected.setRGB(b.x, b.y, b.width, b.height, pixels, 0, b.width);
+                        encoder.tileRendered(t);
+                    }
+                });
+                encoder.finish();
+            } finally {
+                encoder.close();
+                render.close();
+            }
+            Assert.assertTrue("Multiple tile rows for " + tile[0] + "x" + tile[1],
+                    tile[1] > 200 || render.getRowCount() > 1);
+            check(expected, out.toByteArray(), "tiles " + tile[0] + "x" + tile[1]);
+        }
+    }
+
+    //=====================================================================================
+
+    private byte[] encode(BufferedImage img, boolean pool, int level) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PNGEncoder encoder = pool ? new PNGEncoder(out, img.getWidth(), img.getHeight())
+                                  : new PNGEncoder(out, img.getWidth(), img.getHeight(), null);
+        try
+        {
+            encoder.setCompressionLevel(level);
+            encoder.writeImage(img);
+        } finally {
+            encoder.close();
+        }
+        return out.toByteArray();
+    }
+
+    private void check(BufferedImage expected, byte[] png, String msg) throws IOException
+    {
+        BufferedImage img = ImageIO.read(new ByteArrayInputStream(png));
+        Assert.assertNotNull(msg + ": decoded", img);
+        Assert.assertEquals(msg + ": width", expected.getWidth(), img.getWidth());
+        Assert.assertEquals(msg + ": height", expected.getHeight(), img.getHeight());
+        for (int y = 0; y < img.getHeight(); y++)
+            for (int x = 0; x < img.getWidth(); x++)
+            {
+                if ((expected.getRGB(x, y) & 0xffffff) != (img.getRGB(x, y) & 0xffffff))
+                    Assert.fail(msg + ": pixel [" + x + "," + y + "] " + Integer.toHexString(expected.getRGB(x, y))
+                            + " decoded as " + Integer.toHexString(img.getRGB(x, y)));
+            }
+    }
+
+    /**
+     * Creates an image with some smooth areas and some noise so that all the filters are used.
+     */
+    private static BufferedImage createImage(int width, int height)
+    {
+        Random rnd = new Random(width * 31 + height);
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+            {
+                if ((x / 16 + y / 16) % 3 == 0)
+                    img.setRGB(x, y, rnd.nextInt());
+                else
+                    img.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x + y) & 0xff));
+            }
+        return img;
+    }
+
+}
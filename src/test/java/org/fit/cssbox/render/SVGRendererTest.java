@@ -0,0 +1,189 @@
+/*
+ * SVGRendererTest.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 14:32:18
+ */
+package org.fit.cssbox.render;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.fit.cssbox.layout.LayoutEngine;
+import org.fit.cssbox.layout.Viewport;
+import org.fit.cssbox.misc.Base64Coder;
+import org.fit.cssbox.test.TestPages;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * Checks the SVG output: well-formed XML, the style classes and embedding each distinct image only once.
+ */
+public class SVGRendererTest
+{
+    private static final String SVG_NS = "http://www.w3.org/2000/svg";
+    private static final String XLINK_NS = "http://www.w3.org/1999/xlink";
+
+    private static String page;
+
+    @BeforeClass
+    public static void init() throws IOException
+    {
+        final String red = createDataURL(0xff0000, BufferedImage.TYPE_INT_RGB);
+        final String redArgb = createDataURL(0xffff0000, BufferedImage.TYPE_INT_ARGB); //other data, same pixels
+        final String blue = createDataURL(0x0000ff, BufferedImage.TYPE_INT_RGB);
+        page = "<!DOCTYPE html><html><head><style>"
+                + "p { color: #336; font-size: 12px; } .box { border: 1px solid black; background: #eee; }"
+                + "</style></head><body>"
+                + "<p>Some <b>bold</b> &amp; <i>\"quoted\" &lt;text&gt;</i></p>"
+                + "<div class=\"box\"><p>Images: <img src=\"" + red + "\" width=\"8\" height=\"6\">"
+                + "<img src=\"" + red + "\" width=\"16\" height=\"12\">"
+                + "<img src=\"" + redArgb + "\" width=\"8\" height=\"6\">"
+                + "<img src=\"" + blue + "\" width=\"8\" height=\"6\"></p></div>"
+                + "<p style=\"font-weight: bold\">The end</p>"
+                + "</body></html>";
+    }
+
+    @Test
+    public void styleClasses() throws Exception
+    {
+        Document svg = render(true);
+        NodeList styles = svg.getElementsByTagNameNS(SVG_NS, "style");
+        Assert.assertEquals(1, styles.getLength());
+        Set<String> defined = new HashSet<String>();
+        Matcher m = Pattern.compile("\\.(s[0-9]+)\\{").matcher(styles.item(0).getTextContent());
+        while (m.find())
+            defined.add(m.group(1));
+
+        int used = 0;
+        NodeList all = svg.getElementsByTagNameNS(SVG_NS, "*");
+        for (int i = 0; i < all.getLength(); i++)
+        {
+            Element el = (Element) all.item(i);
+            Assert.assertFalse("No style attributes", el.hasAttribute("style"));
+            if (el.hasAttribute("class"))
+            {
+                Assert.assertTrue("Class " + el.getAttribute("class") + " defined", defined.contains(el.getAttribute("class")));
+                used++;
+            }
+        }
+        Assert.assertTrue("Some classes are used", used > 0);
+        checkImages(svg);
+    }
+
+    @Test
+    public void styleAttributes() throws Exception
+    {
+        Document svg = render(false);
+        Assert.assertEquals(0, svg.getElementsByTagNameNS(SVG_NS, "style").getLength());
+        int used = 0;
+        NodeList all = svg.getElementsByTagNameNS(SVG_NS, "*");
+        for (int i = 0; i < all.getLength(); i++)
+        {
+            Element el = (Element) all.item(i);
+            Assert.assertFalse("No class attributes", el.hasAttribute("class"));
+            if (el.hasAttribute("style"))
+                used++;
+        }
+        Assert.assertTrue("Some style attributes are used", used > 0);
+        checkImages(svg);
+    }
+
+    //=====================================================================================
+
+    /**
+     * Checks that each distinct image is embedded once and all the occurrences refer to it.
+     */
+    private void checkImages(Document svg)
+    {
+        NodeList symbols = svg.getElementsByTagNameNS(SVG_NS, "symbol");
+        Assert.assertEquals("A single symbol for the red and blue image each", 2, symbols.getLength());
+        Set<String> ids = new HashSet<String>();
+        for (int i = 0; i < symbols.getLength(); i++)
+        {
+            Element symbol = (Element) symbols.item(i);
+            ids.add(symbol.getAttribute("id"));
+            Element image = (Element) symbol.getElementsByTagNameNS(SVG_NS, "image").item(0);
+            String href = image.getAttributeNS(XLINK_NS, "href");
+            Assert.assertTrue(href.startsWith("data:image/png;base64,"));
+            byte[] png = Base64Coder.decode(href.substring(href.indexOf(',') + 1));
+            Assert.assertTrue("The embedded PNG is complete", png.length > 8 && png[1] == 'P' && png[2] == 'N' && png[3] == 'G');
+        }
+        NodeList uses = svg.getElementsByTagNameNS(SVG_NS, "use");
+        Assert.assertEquals(4, uses.getLength());
+        for (int i = 0; i < uses.getLength(); i++)
+        {
+            String href = ((Element) uses.item(i)).getAttributeNS(XLINK_NS, "href");
+            Assert.assertTrue("Reference " + href, href.startsWith("#") && ids.contains(href.substring(1)));
+        }
+    }
+
+    private Document render(boolean useStyleClasses) throws Exception
+    {
+        LayoutEngine engine = TestPages.createEngine(page, new URL("http://localhost/svg.html"));
+        Viewport viewport = engine.createLayout(new Dimension(400, 300));
+
+        StringWriter out = new StringWriter();
+        SVGRenderer renderer = new SVGRenderer(400, 300, out);
+        renderer.setUseStyleClasses(useStyleClasses);
+        viewport.draw(renderer);
+        renderer.close();
+
+        //parse the result; fails when the output is not well-formed
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        builder.setEntityResolver(new EntityResolver() {
+            @Override
+            public InputSource resolveEntity(String publicId, String systemId)
+            {
+                return new InputSource(new StringReader("")); //do not load the SVG DTD
+            }
+        });
+        return builder.parse(new InputSource(new StringReader(out.toString())));
+    }
+
+    private static String createDataURL(int rgb, int type) throws IOException
+    {
+        BufferedImage img = new BufferedImage(4, 3, type);
+        for (int y = 0; y < img.getHeight(); y++)
+            for (int x = 0; x < img.getWidth(); x++)
+                img.setRGB(x, y, rgb);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return "data:image/png;base64," + new String(Base64Coder.encode(out.toByteArray()));
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * TestPages.java
+ * Copyright (c) 2005-2026 Radek Burget
+ *
+ * CSSBox is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * CSSBox is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with CSSBox. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Created on 17. 10. 2026, 16:05:41
+ */
+package org.fit.cssbox.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.fit.cssbox.css.DOMAnalyzer;
+import org.fit.cssbox.io.DefaultDOMSource;
+import org.fit.cssbox.io.DocumentSource;
+import org.fit.cssbox.io.StreamDocumentSource;
+import org.fit.cssbox.layout.LayoutEngine;
+import org.junit.Assert;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import cz.vutbr.web.css.NodeData;
+import cz.vutbr.web.css.Selector.PseudoElementType;
+
+/**
+ * The common fixture of the tests that process small HTML pages given as strings.
+ */
+public class TestPages
+{
+    /** The pseudo-elements compared by {@link #assertSameStyles(String, DOMAnalyzer, Element, DOMAnalyzer, Element)} */
+    private static final PseudoElementType[] PSEUDO = {PseudoElementType.BEFORE, PseudoElementType.AFTER};
+
+    /**
+     * Parses a HTML page.
+     * @param page the page source
+     * @param url the page URL
+     * @return the parsed document
+     */
+    public static Document parse(String page, URL url) throws IOException, SAXException
+    {
+        DocumentSource src = new StreamDocumentSource(new ByteArrayInputStream(page.getBytes("UTF-8")),
+                url, "text/html; charset=utf-8");
+        try
+        {
+            return new DefaultDOMSource(src).parse();
+        } finally {
+            src.close();
+        }
+    }
+
+    /**
+     * Parses a HTML page and creates its analyzer with the presentation attributes converted
+     * to inline styles and the user agent and document style sheets loaded.
+     * @param page the page source
+     * @param url the page URL
+     * @return the analyzer
+     */
+    public static DOMAnalyzer createAnalyzer(String page, URL url) throws IOException, SAXException
+    {
+        return createAnalyzer(page, url, false);
+    }
+
+    /**
+     * Parses a HTML page and creates its analyzer with the user agent and document style sheets loaded.
+     * @param page the page source
+     * @param url the page URL
+     * @param hints {@code true} for applying the presentation attributes directly ({@link DOMAnalyzer#attributesToHints()}),
+     * {@code false} for converting them to inline styles ({@link DOMAnalyzer#attributesToStyles()})
+     * @return the analyzer
+     */
+    public static DOMAnalyzer createAnalyzer(String page, URL url, boolean hints) throws IOException, SAXException
+    {
+        DOMAnalyzer da = new DOMAnalyzer(parse(page, url), url);
+        if (hints)
+            da.attributesToHints();
+        else
+            da.attributesToStyles();
+        da.addAgentStyleSheets();
+        da.getStyleSheets();
+        return da;
+    }
+
+    /**
+     * Creates a layout engine for an analyzed page. The media are not updated automatically.
+     * @param da the page analyzer
+     * @param url the page URL
+     * @return the layout engine
+     */
+    public static LayoutEngine createEngine(DOMAnalyzer da, URL url)
+    {
+        LayoutEngine engine = new LayoutEngine(da.getRoot(), da, url);
+        engine.setAutoMediaUpdate(false);
+        return engine;
+    }
+
+    /**
+     * Parses a HTML page and creates a layout engine for it.
+     * @param page the page source
+     * @param url the page URL
+     * @return the layout engine
+     */
+    public static LayoutEngine createEngine(String page, URL url) throws IOException, SAXException
+    {
+        return createEngine(createAnalyzer(page, url), url);
+    }
+
+    /**
+     * Serializes a style to a string that contains all the properties sorted by their names.
+     * @param style the style to be serialized or {@code null}
+     * @param skip the names of the properties that should be omitted
+     * @return the resulting string
+     */
+    public static String dump(NodeData style, String... skip)
+    {
+        if (style == null)
+            return "null";
+        final List<String> skipped = Arrays.asList(skip);
+        StringBuilder ret = new StringBuilder();
+        Set<String> names = new TreeSet<String>(style.getPropertyNames());
+        for (String name : names)
+        {
+            if (!skipped.contains(name))
+                ret.append(name).append(": ").append(style.getAsString(name, true)).append(";\n");
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Checks that two elements have the same inherited styles including their <code>:before</code>
+     * and <code>:after</code> pseudo-elements.
+     * @param msg the message used for the failures
+     * @param da1 the analyzer of the first element
+     * @param e1 the first element
+     * @param da2 the analyzer of the second element
+     * @param e2 the second element
+     */
+    public static void assertSameStyles(String msg, DOMAnalyzer da1, Element e1, DOMAnalyzer da2, Element e2)
+    {
+        final String name = msg + " <" + e1.getTagName() + ">";
+        Assert.assertEquals(name, dump(da1.getElementStyleInherited(e1)), dump(da2.getElementStyleInherited(e2)));
+        for (PseudoElementType pseudo : PSEUDO)
+        {
+            Assert.assertEquals(name + "::" + pseudo, da1.hasPseudoDef(e1, pseudo), da2.hasPseudoDef(e2, pseudo));
+            if (da1.hasPseudoDef(e1, pseudo))
+                Assert.assertEquals(name + "::" + pseudo,
+                        dump(da1.getElementStyleInherited(e1, pseudo)), dump(da2.getElementStyleInherited(e2, pseudo)));
+        }
+    }
+
+}